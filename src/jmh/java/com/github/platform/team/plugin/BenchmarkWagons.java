@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin;
+
+import com.amazonaws.services.s3.AmazonS3;
+
+/**
+ * Gives benchmarks access to wagons that talk to a given client instead of connecting to S3.
+ */
+public abstract class BenchmarkWagons {
+
+    /**
+     * Creates a wagon that is ready to use without connecting
+     *
+     * @param amazonS3      The client the wagon sends its requests to
+     * @param bucketName    The bucket of the repository
+     * @param baseDirectory The base directory of the repository, empty or ending with {@code /}
+     * @return The wagon
+     */
+    public static AmazonS3Wagon newWagon(AmazonS3 amazonS3, String bucketName, String baseDirectory) {
+        return new AmazonS3Wagon(amazonS3, bucketName, baseDirectory);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.TransferProgressFileOutputStream;
+import com.github.platform.team.plugin.util.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the download copy loop of the wagon, from a response stream into the destination file with progress
+ * reporting, between the original {@link IOUtils#copy(InputStream, OutputStream)} through a
+ * {@link TransferProgressFileOutputStream} and the pooled, channel based
+ * {@link IOUtils#copy(InputStream, java.nio.channels.FileChannel, TransferProgress)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopyBenchmark {
+
+    @Param({"1024", "1048576", "524288000"})
+    private int size;
+
+    private File source;
+
+    private File destination;
+
+    @Setup(Level.Trial)
+    public void createSource() throws IOException {
+        this.source = File.createTempFile("copy-benchmark", ".bin");
+        this.destination = File.createTempFile("copy-benchmark", ".out");
+
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(0).nextBytes(chunk);
+        try (OutputStream out = new FileOutputStream(this.source)) {
+            for (int remaining = this.size; remaining > 0; remaining -= chunk.length) {
+                out.write(chunk, 0, Math.min(chunk.length, remaining));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(this.source.toPath());
+        Files.deleteIfExists(this.destination.toPath());
+    }
+
+    @Benchmark
+    public void streamCopy(Blackhole blackhole) throws IOException {
+        TransferProgress transferProgress = (buffer, length) -> blackhole.consume(length);
+        try (InputStream in = new FileInputStream(this.source);
+             OutputStream out = new TransferProgressFileOutputStream(this.destination, transferProgress)) {
+            IOUtils.copy(in, out);
+        }
+    }
+
+    @Benchmark
+    public void channelCopy(Blackhole blackhole) throws IOException {
+        TransferProgress transferProgress = (buffer, length) -> blackhole.consume(length);
+        try (InputStream in = new FileInputStream(this.source);
+             FileOutputStream out = new FileOutputStream(this.destination)) {
+            IOUtils.copy(in, out.getChannel(), transferProgress);
+        }
+    }
+}
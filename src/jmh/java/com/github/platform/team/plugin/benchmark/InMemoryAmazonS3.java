@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.util.BinaryUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A single bucket held in memory, answering the requests the wagon sends the way S3 does, so that benchmarks measure
+ * the wagon rather than the network. Requests the wagon does not send throw {@link UnsupportedOperationException}.
+ */
+public final class InMemoryAmazonS3 extends AbstractAmazonS3 {
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private static final int NOT_FOUND = 404;
+
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+
+    /**
+     * Stores an object directly, without going through a request
+     *
+     * @param key     The key of the object
+     * @param content The content of the object
+     */
+    public void put(String key, byte[] content) {
+        this.objects.put(key, new StoredObject(content));
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        String prefix = listObjectsV2Request.getPrefix() == null ? "" : listObjectsV2Request.getPrefix();
+        String delimiter = listObjectsV2Request.getDelimiter();
+        int maxKeys = listObjectsV2Request.getMaxKeys() == null ? DEFAULT_MAX_KEYS
+                : listObjectsV2Request.getMaxKeys();
+        String after = listObjectsV2Request.getContinuationToken() != null
+                ? listObjectsV2Request.getContinuationToken() : listObjectsV2Request.getStartAfter();
+
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        result.setBucketName(listObjectsV2Request.getBucketName());
+        result.setPrefix(prefix);
+        result.setDelimiter(delimiter);
+
+        NavigableMap<String, StoredObject> candidates = after == null ? this.objects.tailMap(prefix, true)
+                : this.objects.tailMap(after, false);
+        int count = 0;
+        // a continuation token naming a common prefix skips the keys below it
+        String last = after;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            String commonPrefix = index == -1 ? null : key.substring(0, index + delimiter.length());
+            if (commonPrefix != null && commonPrefix.equals(last)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                result.setTruncated(true);
+                result.setNextContinuationToken(last);
+                break;
+            }
+
+            if (commonPrefix != null) {
+                result.getCommonPrefixes().add(commonPrefix);
+                last = commonPrefix;
+            } else {
+                result.getObjectSummaries().add(entry.getValue().summary(listObjectsV2Request.getBucketName(), key));
+                last = key;
+            }
+            count++;
+        }
+        result.setKeyCount(count);
+        return result;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+        return get(key).metadata();
+    }
+
+    @Override
+    public S3Object getObject(String bucketName, String key) {
+        return getObject(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest getObjectRequest) {
+        StoredObject storedObject = get(getObjectRequest.getKey());
+        if (getObjectRequest.getNonmatchingETagConstraints().contains(storedObject.eTag)) {
+            return null;
+        }
+
+        byte[] content = storedObject.content;
+        long[] range = getObjectRequest.getRange();
+        if (range != null) {
+            content = Arrays.copyOfRange(content, (int) range[0], (int) Math.min(range[1] + 1, content.length));
+        }
+
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(getObjectRequest.getBucketName());
+        s3Object.setKey(getObjectRequest.getKey());
+        s3Object.setObjectMetadata(storedObject.metadata());
+        s3Object.setObjectContent(new ByteArrayInputStream(content));
+        return s3Object;
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest putObjectRequest) {
+        byte[] content;
+        try {
+            content = putObjectRequest.getFile() != null ? Files.readAllBytes(putObjectRequest.getFile().toPath())
+                    : read(putObjectRequest.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        StoredObject storedObject = new StoredObject(content);
+        this.objects.put(putObjectRequest.getKey(), storedObject);
+
+        PutObjectResult putObjectResult = new PutObjectResult();
+        putObjectResult.setETag(storedObject.eTag);
+        return putObjectResult;
+    }
+
+    private StoredObject get(String key) {
+        StoredObject storedObject = this.objects.get(key);
+        if (storedObject == null) {
+            AmazonS3Exception exception = new AmazonS3Exception(String.format("'%s' does not exist", key));
+            exception.setStatusCode(NOT_FOUND);
+            throw exception;
+        }
+        return storedObject;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class StoredObject {
+
+        private final byte[] content;
+
+        private final String eTag;
+
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] content) {
+            this.content = content;
+            try {
+                this.eTag = BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(content));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private ObjectMetadata metadata() {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(this.content.length);
+            metadata.setHeader("ETag", this.eTag);
+            metadata.setLastModified(this.lastModified);
+            return metadata;
+        }
+
+        private S3ObjectSummary summary(String bucketName, String key) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setBucketName(bucketName);
+            summary.setKey(key);
+            summary.setSize(this.content.length);
+            summary.setETag(this.eTag);
+            summary.setLastModified(this.lastModified);
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.AmazonS3Wagon;
+import com.github.platform.team.plugin.BenchmarkWagons;
+import org.apache.maven.wagon.WagonException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures directory listings of the wagon against an {@link InMemoryAmazonS3}, which covers paging through the
+ * results and stripping the directory prefix from every key and common prefix with the resource name pattern, and of
+ * the same listing answered from the key index once it is loaded. Half of the entries of the listed directory are
+ * files and half are subdirectories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListingBenchmark {
+
+    private static final String BUCKET_NAME = "benchmark";
+
+    private static final String BASE_DIRECTORY = "release/";
+
+    private static final String DIRECTORY = "com/example/example/";
+
+    private static final byte[] CONTENT = new byte[0];
+
+    @Param({"100", "10000", "100000"})
+    private int entries;
+
+    private AmazonS3Wagon wagon;
+
+    private AmazonS3Wagon indexedWagon;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryAmazonS3 amazonS3 = new InMemoryAmazonS3();
+        for (int i = 0; i < this.entries; i++) {
+            String key = i % 2 == 0 ? String.format("example-%d.jar", i) : String.format("%d/example-%d.pom", i, i);
+            amazonS3.put(BASE_DIRECTORY + DIRECTORY + key, CONTENT);
+        }
+        this.wagon = BenchmarkWagons.newWagon(amazonS3, BUCKET_NAME, BASE_DIRECTORY);
+        this.indexedWagon = BenchmarkWagons.newWagon(amazonS3, BUCKET_NAME, BASE_DIRECTORY);
+        this.indexedWagon.setKeyIndex(true);
+        this.indexedWagon.setKeyIndexTtl(TimeUnit.DAYS.toSeconds(1));
+    }
+
+    @Benchmark
+    public List<String> getFileList() throws WagonException {
+        return this.wagon.getFileList(DIRECTORY);
+    }
+
+    @Benchmark
+    public List<String> getFileListFromKeyIndex() throws WagonException {
+        return this.indexedWagon.getFileList(DIRECTORY);
+    }
+
+    @Benchmark
+    public String getFileIteratorFirstEntry() {
+        Iterator<String> fileIterator = this.wagon.getFileIterator(DIRECTORY);
+        return fileIterator.next();
+    }
+}
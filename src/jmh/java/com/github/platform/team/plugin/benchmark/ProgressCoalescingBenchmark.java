@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.AmazonS3Wagon;
+import com.github.platform.team.plugin.data.transfer.CoalescingTransferProgress;
+import com.github.platform.team.plugin.data.transfer.StandardTransferListenerSupport;
+import com.github.platform.team.plugin.data.transfer.StandardTransferProgress;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.observers.AbstractTransferListener;
+import org.apache.maven.wagon.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU spent reporting the progress of a 1 GiB transfer read in 8 KiB chunks to a listener that, like
+ * Maven's console transfer listener, formats and prints a progress line for every notification, with progress
+ * notifications passed on as they are or coalesced up to {@code threshold} bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProgressCoalescingBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final long TRANSFER_SIZE = 1024L * 1024 * 1024;
+
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+
+    @Param({"0", "65536", "1048576"})
+    private int threshold;
+
+    private StandardTransferListenerSupport transferListenerSupport;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrintStream console = new PrintStream(new DiscardingOutputStream());
+        this.transferListenerSupport = new StandardTransferListenerSupport(new AmazonS3Wagon());
+        this.transferListenerSupport.addTransferListener(new AbstractTransferListener() {
+
+            private long transferred;
+
+            @Override
+            public void transferStarted(TransferEvent transferEvent) {
+                this.transferred = 0;
+            }
+
+            @Override
+            public void transferProgress(TransferEvent transferEvent, byte[] buffer, int length) {
+                this.transferred += length;
+                console.print(String.format("Progress (1): %s (%d/%d kB)\r", transferEvent.getResource().getName(),
+                        this.transferred / 1024, TRANSFER_SIZE / 1024));
+            }
+        });
+    }
+
+    @Benchmark
+    public void transfer() {
+        Resource resource = new Resource("benchmark.jar");
+        this.transferListenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_GET);
+        CoalescingTransferProgress transferProgress = new CoalescingTransferProgress(
+                new StandardTransferProgress(resource, TransferEvent.REQUEST_GET, this.transferListenerSupport),
+                this.threshold, 100, TimeUnit.MILLISECONDS);
+        for (long transferred = 0; transferred < TRANSFER_SIZE; transferred += CHUNK_SIZE) {
+            transferProgress.notify(this.buffer, CHUNK_SIZE);
+        }
+        transferProgress.flush();
+        this.transferListenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_GET);
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            // a terminal would draw the progress line here
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // a terminal would draw the progress line here
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.AmazonS3Wagon;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.StandardTransferListenerSupport;
+import com.github.platform.team.plugin.data.transfer.StandardTransferProgress;
+import com.github.platform.team.plugin.data.transfer.TransferProgressFileInputStream;
+import com.github.platform.team.plugin.data.transfer.TransferProgressFileOutputStream;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.observers.AbstractTransferListener;
+import org.apache.maven.wagon.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of progress reporting in the upload and download file streams, from the stream through
+ * {@link StandardTransferProgress} and {@link StandardTransferListenerSupport} to a registered listener. The chunked
+ * benchmarks use a non-zero buffer offset, the way HTTP clients hand out their buffers. Run with {@code -prof gc} to
+ * see the allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgressStreamBenchmark {
+
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    private static final int SINGLE_BYTES = 64 * 1024;
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final int OFFSET = 16;
+
+    private final byte[] buffer = new byte[OFFSET + CHUNK_SIZE];
+
+    private File source;
+
+    private File destination;
+
+    private TransferProgress transferProgress;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) throws IOException {
+        this.source = File.createTempFile("progress-benchmark", ".bin");
+        this.destination = File.createTempFile("progress-benchmark", ".out");
+        byte[] content = new byte[FILE_SIZE];
+        new Random(0).nextBytes(content);
+        Files.write(this.source.toPath(), content);
+
+        StandardTransferListenerSupport transferListenerSupport =
+                new StandardTransferListenerSupport(new AmazonS3Wagon());
+        transferListenerSupport.addTransferListener(new AbstractTransferListener() {
+            @Override
+            public void transferProgress(TransferEvent transferEvent, byte[] buffer, int length) {
+                blackhole.consume(transferEvent);
+                blackhole.consume(length);
+            }
+        });
+        this.transferProgress = new StandardTransferProgress(new Resource("benchmark.bin"),
+                TransferEvent.REQUEST_PUT, transferListenerSupport);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(this.source.toPath());
+        Files.deleteIfExists(this.destination.toPath());
+    }
+
+    @Benchmark
+    public long uploadChunks() throws IOException {
+        long total = 0;
+        try (InputStream in = new TransferProgressFileInputStream(this.source, this.transferProgress)) {
+            int read;
+            while ((read = in.read(this.buffer, OFFSET, CHUNK_SIZE)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long uploadSingleBytes() throws IOException {
+        long total = 0;
+        try (InputStream in = new TransferProgressFileInputStream(this.source, this.transferProgress)) {
+            for (int i = 0; i < SINGLE_BYTES; i++) {
+                total += in.read();
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void downloadChunks() throws IOException {
+        try (OutputStream out = new TransferProgressFileOutputStream(this.destination, this.transferProgress)) {
+            for (int written = 0; written < FILE_SIZE; written += CHUNK_SIZE) {
+                out.write(this.buffer, OFFSET, CHUNK_SIZE);
+            }
+        }
+    }
+}
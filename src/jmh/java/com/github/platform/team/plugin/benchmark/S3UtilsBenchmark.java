@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.util.S3Utils;
+import org.apache.maven.wagon.repository.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the bucket, base directory and region are derived from repository URLs by {@link S3Utils}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S3UtilsBenchmark {
+
+    @Param({"s3://bucket", "s3://bucket/release/nested", "s3://bucket/release/nested?region=eu-west-1"})
+    private String url;
+
+    private Repository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.repository = new Repository("benchmark", this.url);
+    }
+
+    @Benchmark
+    public String getBucketName() {
+        return S3Utils.getBucketName(this.repository);
+    }
+
+    @Benchmark
+    public String getBaseDirectory() {
+        return S3Utils.getBaseDirectory(this.repository);
+    }
+
+    @Benchmark
+    public String getRegion() {
+        return S3Utils.getRegion(this.repository);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.aws.SmallObjectUploader;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.FileRegionInputStream;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single PUT of a small file, such as a checksum, a POM or {@code maven-metadata.xml},
+ * through a real S3 client against a local HTTP endpoint that answers like S3. Compares the streamed upload used for
+ * larger files with the in-memory {@link SmallObjectUploader}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SmallObjectUploadBenchmark {
+
+    private static final String BUCKET_NAME = "benchmark";
+
+    private static final String KEY = "com/example/example/1.0/example-1.0.pom";
+
+    private static final TransferProgress NO_PROGRESS = (buffer, length) -> {
+    };
+
+    @Param({"40", "2048", "32768"})
+    private int size;
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private AmazonS3 amazonS3;
+
+    private File source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.serverExecutor = Executors.newCachedThreadPool();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", SmallObjectUploadBenchmark::handle);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+
+        this.amazonS3 = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(
+                        String.format("http://localhost:%d", this.server.getAddress().getPort()), "us-east-1"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new AnonymousAWSCredentials()))
+                .build();
+
+        this.source = File.createTempFile("small-object-benchmark", ".pom");
+        byte[] content = new byte[this.size];
+        new Random(0).nextBytes(content);
+        Files.write(this.source.toPath(), content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.amazonS3.shutdown();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+        Files.deleteIfExists(this.source.toPath());
+    }
+
+    @Benchmark
+    public PutObjectResult streamed() throws IOException {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(this.source.length());
+        try (FileChannel channel = FileChannel.open(this.source.toPath(), StandardOpenOption.READ)) {
+            InputStream in = new FileRegionInputStream(channel, 0, objectMetadata.getContentLength(), NO_PROGRESS);
+            return this.amazonS3.putObject(new PutObjectRequest(BUCKET_NAME, KEY, in, objectMetadata));
+        }
+    }
+
+    @Benchmark
+    public PutObjectResult inMemory() throws IOException {
+        return new SmallObjectUploader(this.amazonS3).upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                NO_PROGRESS);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] buffer = new byte[8192];
+            try (InputStream in = exchange.getRequestBody()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            // the client checks the ETag of a PUT against the MD5 of what it sent
+            exchange.getResponseHeaders().set("ETag", String.format("\"%s\"", BinaryUtils.toHex(digest.digest())));
+            exchange.sendResponseHeaders(200, -1);
+        } catch (NoSuchAlgorithmException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.benchmark;
+
+import com.github.platform.team.plugin.AmazonS3Wagon;
+import com.github.platform.team.plugin.data.transfer.StandardTransferListenerSupport;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.observers.AbstractTransferListener;
+import org.apache.maven.wagon.resource.Resource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fan-out of transfer events by {@link StandardTransferListenerSupport} to no, one and many listeners,
+ * for the events of a whole 4 MiB transfer reported in 8 KiB chunks. Run with {@code -prof gc} to see the events
+ * allocated per transfer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferListenerBenchmark {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final int CHUNKS = 512;
+
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+
+    @Param({"0", "1", "16"})
+    private int listeners;
+
+    private StandardTransferListenerSupport transferListenerSupport;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        this.transferListenerSupport = new StandardTransferListenerSupport(new AmazonS3Wagon());
+        for (int i = 0; i < this.listeners; i++) {
+            this.transferListenerSupport.addTransferListener(new AbstractTransferListener() {
+                @Override
+                public void transferStarted(TransferEvent transferEvent) {
+                    blackhole.consume(transferEvent);
+                }
+
+                @Override
+                public void transferProgress(TransferEvent transferEvent, byte[] buffer, int length) {
+                    blackhole.consume(transferEvent);
+                    blackhole.consume(length);
+                }
+
+                @Override
+                public void transferCompleted(TransferEvent transferEvent) {
+                    blackhole.consume(transferEvent);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public void transfer() {
+        Resource resource = new Resource("benchmark.jar");
+        this.transferListenerSupport.fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
+        this.transferListenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_GET);
+        for (int i = 0; i < CHUNKS; i++) {
+            this.transferListenerSupport.fireTransferProgress(resource, TransferEvent.REQUEST_GET, this.buffer,
+                    CHUNK_SIZE);
+        }
+        this.transferListenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_GET);
+    }
+}
@@ -19,39 +19,82 @@ package com.github.platform.team.plugin;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.StreamSupport;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.TransferFailedException;
 import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.authorization.AuthorizationException;
 import org.apache.maven.wagon.proxy.ProxyInfoProvider;
 import org.apache.maven.wagon.repository.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.internal.Mimetypes;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.github.platform.team.plugin.aws.AWSMavenCredentialsProviderChain;
+import com.github.platform.team.plugin.aws.AmazonS3ClientRegistry;
+import com.github.platform.team.plugin.aws.BatchMetadataResolver;
+import com.github.platform.team.plugin.aws.BucketRegionResolver;
+import com.github.platform.team.plugin.aws.ETagCalculator;
+import com.github.platform.team.plugin.aws.KeyIndexLoader;
+import com.github.platform.team.plugin.aws.ListObjectsV2Pager;
+import com.github.platform.team.plugin.aws.MultipartUploader;
+import com.github.platform.team.plugin.aws.RangedDownloader;
+import com.github.platform.team.plugin.aws.SmallObjectUploader;
+import com.github.platform.team.plugin.aws.ThrottleController;
+import com.github.platform.team.plugin.cache.ContentCache;
+import com.github.platform.team.plugin.cache.KeyIndex;
+import com.github.platform.team.plugin.cache.NegativeLookupCache;
+import com.github.platform.team.plugin.cache.ObjectMetadataCache;
+import com.github.platform.team.plugin.cache.ResourceMetadata;
 import com.github.platform.team.plugin.data.TransferProgress;
-import com.github.platform.team.plugin.data.transfer.TransferProgressFileInputStream;
-import com.github.platform.team.plugin.data.transfer.TransferProgressFileOutputStream;
+import com.github.platform.team.plugin.data.transfer.DigestingTransferProgress;
+import com.github.platform.team.plugin.data.transfer.FileRegionInputStream;
 import com.github.platform.team.plugin.maven.AbstractWagon;
+import com.github.platform.team.plugin.metrics.MetricsSnapshot;
+import com.github.platform.team.plugin.metrics.S3Metrics;
+import com.github.platform.team.plugin.util.BufferPool;
+import com.github.platform.team.plugin.util.ExecutorUtils;
 import com.github.platform.team.plugin.util.IOUtils;
 import com.github.platform.team.plugin.util.S3Utils;
 
@@ -68,47 +111,443 @@ import com.github.platform.team.plugin.util.S3Utils;
  */
 public final class AmazonS3Wagon extends AbstractWagon {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AmazonS3Wagon.class);
+
     private static final String KEY_FORMAT = "%s%s";
 
     private static final String RESOURCE_FORMAT = "%s(.*)";
 
+    private static final String DEFAULT_REGION_CACHE_FILE = new File(System.getProperty("user.home"),
+            ".m2/aws-maven/bucket-regions.properties").getPath();
+
+    private static final long DEFAULT_REGION_CACHE_TTL = TimeUnit.DAYS.toSeconds(1);
+
+    private static final String DIRECTORY_FORMAT = "%s/%s";
+
+    private static final long MINIMUM_PART_SIZE = 5L * 1024 * 1024;
+
+    private static final long DEFAULT_SMALL_OBJECT_THRESHOLD = 128L * 1024;
+
+    private static final long MAXIMUM_SMALL_OBJECT_THRESHOLD = 16L * 1024 * 1024;
+
+    private static final long DEFAULT_MULTIPART_THRESHOLD = 64L * 1024 * 1024;
+
+    private static final long DEFAULT_MULTIPART_PART_SIZE = 16L * 1024 * 1024;
+
+    private static final int DEFAULT_MULTIPART_CONCURRENCY = 4;
+
+    private static final long DEFAULT_RANGED_DOWNLOAD_THRESHOLD = 64L * 1024 * 1024;
+
+    private static final long DEFAULT_RANGED_DOWNLOAD_PART_SIZE = 16L * 1024 * 1024;
+
+    private static final int DEFAULT_RANGED_DOWNLOAD_CONCURRENCY = 4;
+
+    private static final long DEFAULT_METADATA_CACHE_TTL = 60;
+
+    private static final long DEFAULT_NEGATIVE_CACHE_TTL = 60;
+
+    private static final long DEFAULT_CONTENT_CACHE_SIZE = 1024L * 1024 * 1024;
+
+    private static final int DEFAULT_BATCH_LIST_THRESHOLD = 4;
+
+    private static final int DEFAULT_BATCH_CONCURRENCY = 16;
+
+    private static final long DEFAULT_KEY_INDEX_TTL = 300;
+
+    private static final long[] COMMON_PART_SIZES = {5L * 1024 * 1024, 8L * 1024 * 1024, 16L * 1024 * 1024};
+
+    private static final String MD5 = "MD5";
+
+    private static final int NOT_FOUND = 404;
+
+    private static final int FORBIDDEN = 403;
+
+    private static final Set<String> SHARED_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
     private volatile AmazonS3 amazonS3;
 
+    private volatile AmazonS3ClientRegistry.Key clientKey;
+
     private volatile String bucketName;
 
     private volatile String baseDirectory;
 
+    private volatile String region;
+
+    private volatile String endpoint;
+
+    private volatile boolean pathStyleAccess = false;
+
+    private volatile String regionCacheFile = DEFAULT_REGION_CACHE_FILE;
+
+    private volatile long regionCacheTtl = DEFAULT_REGION_CACHE_TTL;
+
+    private volatile boolean directoryMarkers = true;
+
+    private volatile boolean shareDirectoryMarkers = false;
+
+    private final Set<String> sessionDirectories = ConcurrentHashMap.newKeySet();
+
+    private volatile long smallObjectThreshold = DEFAULT_SMALL_OBJECT_THRESHOLD;
+
+    private volatile long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+
+    private volatile long multipartPartSize = DEFAULT_MULTIPART_PART_SIZE;
+
+    private volatile int multipartConcurrency = DEFAULT_MULTIPART_CONCURRENCY;
+
+    private volatile long rangedDownloadThreshold = DEFAULT_RANGED_DOWNLOAD_THRESHOLD;
+
+    private volatile long rangedDownloadPartSize = DEFAULT_RANGED_DOWNLOAD_PART_SIZE;
+
+    private volatile int rangedDownloadConcurrency = DEFAULT_RANGED_DOWNLOAD_CONCURRENCY;
+
+    private final ObjectMetadataCache metadataCache;
+
+    private volatile long metadataCacheTtl = DEFAULT_METADATA_CACHE_TTL;
+
+    private final NegativeLookupCache negativeCache;
+
+    private volatile long negativeCacheTtl = DEFAULT_NEGATIVE_CACHE_TTL;
+
+    private volatile String contentCacheDirectory;
+
+    private volatile long contentCacheSize = DEFAULT_CONTENT_CACHE_SIZE;
+
+    private volatile int batchListThreshold = DEFAULT_BATCH_LIST_THRESHOLD;
+
+    private volatile int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+
+    private volatile boolean skipIdenticalUploads = false;
+
+    private volatile boolean keyIndex = false;
+
+    private volatile long keyIndexTtl = DEFAULT_KEY_INDEX_TTL;
+
+    private final Object keyIndexLock = new Object();
+
+    private volatile KeyIndex loadedKeyIndex;
+
+    private volatile long keyIndexLoaded;
+
+    private volatile boolean metricsSummary = false;
+
+    private volatile String metricsFile;
+
+    private volatile S3Metrics metrics;
+
+    private volatile MetricsSnapshot connectMetrics;
+
     /**
      * Creates a new instance of the wagon
      */
     public AmazonS3Wagon() {
         super(true);
+        this.metadataCache = ObjectMetadataCache.getInstance();
+        this.negativeCache = NegativeLookupCache.getInstance();
     }
 
     AmazonS3Wagon(AmazonS3 amazonS3, String bucketName, String baseDirectory) {
         super(true);
+        this.metadataCache = new ObjectMetadataCache(ObjectMetadataCache.DEFAULT_MAXIMUM_SIZE);
+        this.negativeCache = new NegativeLookupCache(NegativeLookupCache.DEFAULT_MAXIMUM_SIZE);
         this.amazonS3 = amazonS3;
         this.bucketName = bucketName;
         this.baseDirectory = baseDirectory;
     }
 
-    private static ObjectMetadata getObjectMetadata(AmazonS3 amazonS3, String bucketName, String baseDirectory,
-            String resourceName) {
-        return amazonS3.getObjectMetadata(bucketName, getKey(baseDirectory, resourceName));
+    /**
+     * Sets the endpoint of an S3 compatible service to connect to instead of AWS. The bucket region is not looked up
+     * for an endpoint, it is taken from the region setting or defaults to {@code us-east-1}.
+     *
+     * @param endpoint The URL of the service, e.g. {@code http://localhost:9000}, blank to connect to AWS
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Sets whether buckets are addressed in the path of requests rather than in the host name, as most S3 compatible
+     * services require
+     *
+     * @param pathStyleAccess {@code true} to address buckets in the path
+     */
+    public void setPathStyleAccess(boolean pathStyleAccess) {
+        this.pathStyleAccess = pathStyleAccess;
+    }
+
+    /**
+     * Sets the region of the bucket so that it is not looked up on connect. A {@code region} parameter in the
+     * repository URL, e.g. <code>s3://bucket/release?region=eu-west-1</code>, takes precedence.
+     *
+     * @param region The region name, e.g. {@code eu-west-1}
+     */
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    /**
+     * Sets the file bucket regions are cached in between Maven invocations. A blank value keeps regions in memory
+     * only.
+     *
+     * @param regionCacheFile The path of the cache file
+     */
+    public void setRegionCacheFile(String regionCacheFile) {
+        this.regionCacheFile = regionCacheFile;
+    }
+
+    /**
+     * Sets how long a cached bucket region is trusted before it is looked up again
+     *
+     * @param regionCacheTtl The time to live in seconds
+     */
+    public void setRegionCacheTtl(long regionCacheTtl) {
+        this.regionCacheTtl = regionCacheTtl;
+    }
+
+    /**
+     * Sets whether an empty object is written for every directory above an uploaded file. Buckets that are only
+     * accessed through this wagon or other S3 aware tools do not need them.
+     *
+     * @param directoryMarkers {@code true} to write directory markers
+     */
+    public void setDirectoryMarkers(boolean directoryMarkers) {
+        this.directoryMarkers = directoryMarkers;
+    }
+
+    /**
+     * Sets whether directory markers written by any wagon in this JVM are remembered, rather than only those written
+     * since this wagon connected
+     *
+     * @param shareDirectoryMarkers {@code true} to remember directory markers JVM-wide
+     */
+    public void setShareDirectoryMarkers(boolean shareDirectoryMarkers) {
+        this.shareDirectoryMarkers = shareDirectoryMarkers;
+    }
+
+    /**
+     * Sets the size below which files are read into memory and uploaded with their {@code Content-MD5}. Larger values
+     * are lowered to 16 MiB, so that a file is never read into an array it does not fit into.
+     *
+     * @param smallObjectThreshold The size in bytes, {@code 0} to stream every file
+     */
+    public void setSmallObjectThreshold(long smallObjectThreshold) {
+        this.smallObjectThreshold = Math.max(0, Math.min(MAXIMUM_SMALL_OBJECT_THRESHOLD, smallObjectThreshold));
+    }
+
+    /**
+     * Sets the size from which files are uploaded as multipart uploads
+     *
+     * @param multipartThreshold The size in bytes
+     */
+    public void setMultipartThreshold(long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    /**
+     * Sets the size of the parts of a multipart upload. S3 does not accept parts smaller than 5 MiB.
+     *
+     * @param multipartPartSize The size in bytes
+     */
+    public void setMultipartPartSize(long multipartPartSize) {
+        this.multipartPartSize = Math.max(MINIMUM_PART_SIZE, multipartPartSize);
+    }
+
+    /**
+     * Sets how many parts of a multipart upload are sent at a time
+     *
+     * @param multipartConcurrency The number of parts
+     */
+    public void setMultipartConcurrency(int multipartConcurrency) {
+        this.multipartConcurrency = Math.max(1, multipartConcurrency);
+    }
+
+    /**
+     * Sets the size from which objects are downloaded as several byte ranges at a time
+     *
+     * @param rangedDownloadThreshold The size in bytes
+     */
+    public void setRangedDownloadThreshold(long rangedDownloadThreshold) {
+        this.rangedDownloadThreshold = rangedDownloadThreshold;
+    }
+
+    /**
+     * Sets the size of the byte ranges of a ranged download
+     *
+     * @param rangedDownloadPartSize The size in bytes
+     */
+    public void setRangedDownloadPartSize(long rangedDownloadPartSize) {
+        this.rangedDownloadPartSize = Math.max(1, rangedDownloadPartSize);
+    }
+
+    /**
+     * Sets how many byte ranges of a ranged download are fetched at a time
+     *
+     * @param rangedDownloadConcurrency The number of ranges
+     */
+    public void setRangedDownloadConcurrency(int rangedDownloadConcurrency) {
+        this.rangedDownloadConcurrency = Math.max(1, rangedDownloadConcurrency);
+    }
+
+    /**
+     * Sets how long the metadata of an object, as returned by a GET or HEAD request, answers existence and freshness
+     * checks without asking S3 again. Objects written through this wagon are always looked up again.
+     *
+     * @param metadataCacheTtl The time to live in seconds, {@code 0} disables the cache
+     */
+    public void setMetadataCacheTtl(long metadataCacheTtl) {
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    /**
+     * Sets how long an object that S3 reported as missing is treated as missing by every wagon in this JVM without
+     * asking S3 again. Objects written by this JVM are always looked up again.
+     *
+     * @param negativeCacheTtl The time to live in seconds, {@code 0} disables the cache
+     */
+    public void setNegativeCacheTtl(long negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
+    /**
+     * Sets the directory downloaded objects are cached in. Objects in the cache are validated with a conditional GET
+     * and copied from the cache if they have not changed. The directory can be shared by concurrent Maven processes. A
+     * blank value, the default, disables the cache.
+     *
+     * @param contentCacheDirectory The path of the cache directory
+     */
+    public void setContentCacheDirectory(String contentCacheDirectory) {
+        this.contentCacheDirectory = contentCacheDirectory;
+    }
+
+    /**
+     * Sets the total size of the cached objects above which the least recently used objects are evicted
+     *
+     * @param contentCacheSize The size in bytes
+     */
+    public void setContentCacheSize(long contentCacheSize) {
+        this.contentCacheSize = contentCacheSize;
+    }
+
+    /**
+     * Sets how many of the resources checked by {@link #getResourceMetadata(Collection)} have to share a directory
+     * for the directory to be listed rather than each resource being looked up on its own
+     *
+     * @param batchListThreshold The number of resources
+     */
+    public void setBatchListThreshold(int batchListThreshold) {
+        this.batchListThreshold = Math.max(1, batchListThreshold);
+    }
+
+    /**
+     * Sets how many listings and lookups {@link #getResourceMetadata(Collection)} sends at a time
+     *
+     * @param batchConcurrency The number of requests
+     */
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = Math.max(1, batchConcurrency);
+    }
+
+    /**
+     * Sets whether a file is left out of an upload if the object at its destination already has the same content, as
+     * judged by comparing the MD5 of the file with the ETag of the object. The check costs a HEAD request and reading
+     * the file once, and only recognises objects stored unencrypted or with S3 managed keys.
+     *
+     * @param skipIdenticalUploads {@code true} to skip identical files
+     */
+    public void setSkipIdenticalUploads(boolean skipIdenticalUploads) {
+        this.skipIdenticalUploads = skipIdenticalUploads;
+    }
+
+    /**
+     * Sets whether directory listings are answered from an index of every key below the base directory. The index is
+     * loaded with the first listing, several subdirectories at a time, and includes the files this wagon uploads
+     * afterwards. Changes made by others show up once the index expires.
+     *
+     * @param keyIndex {@code true} to list directories from the index
+     */
+    public void setKeyIndex(boolean keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    /**
+     * Sets how long the key index is used before it is loaded again
+     *
+     * @param keyIndexTtl The time to live in seconds
+     */
+    public void setKeyIndexTtl(long keyIndexTtl) {
+        this.keyIndexTtl = keyIndexTtl;
+    }
+
+    /**
+     * Sets whether a single line summary of the requests sent to the bucket is logged on disconnect. The requests are
+     * counted per bucket, so the summary includes those of other connections to the bucket in the same JVM.
+     *
+     * @param metricsSummary {@code true} to log the summary
+     */
+    public void setMetricsSummary(boolean metricsSummary) {
+        this.metricsSummary = metricsSummary;
+    }
+
+    /**
+     * Sets the file the requests sent to the bucket are written to on disconnect, as JSON if its name ends with
+     * {@code .json} and in the Prometheus text format otherwise
+     *
+     * @param metricsFile The file, blank to not write one
+     */
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    private ResourceMetadata getResourceMetadata(String resourceName) {
+        String key = getKey(this.baseDirectory, resourceName);
+        ResourceMetadata metadata = getCachedMetadata(key);
+        if (metadata == null) {
+            metadata = ResourceMetadata.from(this.amazonS3.getObjectMetadata(this.bucketName, key));
+            this.metadataCache.put(this.bucketName, key, metadata);
+        }
+        return metadata;
+    }
+
+    private ResourceMetadata getCachedMetadata(String key) {
+        long timeToLive = TimeUnit.SECONDS.toMillis(this.metadataCacheTtl);
+        return timeToLive > 0 ? this.metadataCache.get(this.bucketName, key, timeToLive) : null;
+    }
+
+    private boolean isKnownMissing(String key) {
+        long timeToLive = TimeUnit.SECONDS.toMillis(this.negativeCacheTtl);
+        return timeToLive > 0 && this.negativeCache.isMissing(this.bucketName, key, timeToLive);
+    }
+
+    private void recordMissing(String key) {
+        this.metadataCache.invalidate(this.bucketName, key);
+        this.negativeCache.recordMissing(this.bucketName, key);
+    }
+
+    private static boolean isNotFound(AmazonClientException e) {
+        return e instanceof AmazonServiceException && ((AmazonServiceException) e).getStatusCode() == NOT_FOUND;
+    }
+
+    private static TransferFailedException lookupFailure(String resourceName, AmazonClientException e)
+            throws AuthorizationException {
+        if (e instanceof AmazonServiceException && ((AmazonServiceException) e).getStatusCode() == FORBIDDEN) {
+            throw new AuthorizationException(String.format("Access to '%s' is denied", resourceName), e);
+        }
+        return new TransferFailedException(String.format("Cannot look up '%s'", resourceName), e);
     }
 
     private static String getKey(String baseDirectory, String resourceName) {
         return String.format(KEY_FORMAT, baseDirectory, resourceName);
     }
 
-    private static List<String> getResourceNames(ObjectListing objectListing, Pattern pattern) {
+    private static List<String> getResourceNames(ListObjectsV2Result listing, Pattern pattern) {
         List<String> resourceNames = new ArrayList<>();
 
-        for (String commonPrefix : objectListing.getCommonPrefixes()) {
+        for (String commonPrefix : listing.getCommonPrefixes()) {
             resourceNames.add(getResourceName(commonPrefix, pattern));
         }
 
-        for (S3ObjectSummary s3ObjectSummary : objectListing.getObjectSummaries()) {
+        for (S3ObjectSummary s3ObjectSummary : listing.getObjectSummaries()) {
             resourceNames.add(getResourceName(s3ObjectSummary.getKey(), pattern));
         }
 
@@ -123,39 +562,149 @@ public final class AmazonS3Wagon extends AbstractWagon {
         return key;
     }
 
-    private static void mkdirs(AmazonS3 amazonS3, String bucketName, String path, int index)
-            throws TransferFailedException {
-        int directoryIndex = path.indexOf('/', index) + 1;
+    private static PutObjectRequest createDirectoryPutObjectRequest(String bucketName, String key) {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(0);
+        objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+
+        return new PutObjectRequest(bucketName, key, inputStream, objectMetadata);
+    }
 
-        if (directoryIndex != 0) {
-            String directory = path.substring(0, directoryIndex);
-            PutObjectRequest putObjectRequest = createDirectoryPutObjectRequest(bucketName, directory);
+    private KeyIndex getKeyIndex() {
+        synchronized (this.keyIndexLock) {
+            long now = System.currentTimeMillis();
+            if (this.loadedKeyIndex == null
+                    || now - this.keyIndexLoaded >= TimeUnit.SECONDS.toMillis(this.keyIndexTtl)) {
+                this.loadedKeyIndex = new KeyIndexLoader(this.amazonS3, this.batchConcurrency,
+                        ExecutorUtils.getExecutor()).load(this.bucketName, this.baseDirectory);
+                this.keyIndexLoaded = now;
+            }
+            return this.loadedKeyIndex;
+        }
+    }
+
+    private void addToKeyIndex(String key, List<String> directories) {
+        KeyIndex index = this.loadedKeyIndex;
+        if (index == null) {
+            return;
+        }
+
+        index.add(key.substring(this.baseDirectory.length()));
+        for (String directory : directories) {
+            // markers above the base directory are not part of the index
+            if (directory.startsWith(this.baseDirectory)) {
+                index.add(directory.substring(this.baseDirectory.length()));
+            }
+        }
+    }
+
+    private Set<String> getCreatedDirectories() {
+        return this.shareDirectoryMarkers ? SHARED_DIRECTORIES : this.sessionDirectories;
+    }
 
+    /**
+     * Claims the directory markers above a key that have not been written yet. A claimed marker is released again
+     * if writing it fails.
+     */
+    private List<String> claimDirectories(String key) {
+        List<String> directories = new ArrayList<>();
+        if (!this.directoryMarkers) {
+            return directories;
+        }
+
+        Set<String> createdDirectories = getCreatedDirectories();
+        int directoryIndex = key.indexOf('/') + 1;
+        while (directoryIndex != 0) {
+            String directory = key.substring(0, directoryIndex);
+            if (createdDirectories.add(String.format(DIRECTORY_FORMAT, this.bucketName, directory))) {
+                directories.add(directory);
+            }
+            directoryIndex = key.indexOf('/', directoryIndex) + 1;
+        }
+        return directories;
+    }
+
+    private Void mkdirs(List<String> directories) throws TransferFailedException {
+        for (int i = 0; i < directories.size(); i++) {
+            String directory = directories.get(i);
             try {
-                amazonS3.putObject(putObjectRequest);
-            } catch (AmazonServiceException e) {
+                this.amazonS3.putObject(createDirectoryPutObjectRequest(this.bucketName, directory));
+            } catch (RuntimeException e) {
+                // any failure, not only a rejected request, must leave the unwritten markers to a later upload
+                releaseDirectories(directories.subList(i, directories.size()));
                 throw new TransferFailedException(String.format("Cannot write directory '%s'", directory), e);
             }
+        }
+        return null;
+    }
 
-            mkdirs(amazonS3, bucketName, path, directoryIndex);
+    private void releaseDirectories(List<String> directories) {
+        Set<String> createdDirectories = getCreatedDirectories();
+        for (String directory : directories) {
+            createdDirectories.remove(String.format(DIRECTORY_FORMAT, this.bucketName, directory));
         }
     }
 
-    private static PutObjectRequest createDirectoryPutObjectRequest(String bucketName, String key) {
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[0]);
+    private static void awaitDirectories(Future<Void> directories) throws TransferFailedException {
+        if (directories == null) {
+            return;
+        }
 
-        ObjectMetadata objectMetadata = new ObjectMetadata();
-        objectMetadata.setContentLength(0);
-        objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+        try {
+            directories.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferFailedException("Interrupted while writing directories", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TransferFailedException) {
+                throw (TransferFailedException) e.getCause();
+            }
+            throw new TransferFailedException("Cannot write directories", e.getCause());
+        }
+    }
 
-        return new PutObjectRequest(bucketName, key, inputStream, objectMetadata);
+    /**
+     * Waits for the directory markers of a failed upload without reporting their own failure, so that they are
+     * neither written after the wagon is disconnected nor left claimed. If the wait is interrupted, the markers are
+     * cancelled and released, which at worst writes them again later.
+     */
+    private void awaitDirectoriesQuietly(Future<Void> directoriesWritten, List<String> directories) {
+        if (directoriesWritten == null) {
+            return;
+        }
+
+        try {
+            directoriesWritten.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            directoriesWritten.cancel(true);
+            releaseDirectories(directories);
+        } catch (ExecutionException e) {
+            // the failed upload is reported instead, and mkdirs has released the unwritten markers
+        }
     }
 
-    private static String getBucketRegion(AWSCredentialsProvider credentialsProvider,
-            ClientConfiguration clientConfiguration, String bucketName) {
-        return AmazonS3Client.builder().withCredentials(credentialsProvider)
-                .withClientConfiguration(clientConfiguration).enableForceGlobalBucketAccess().build()
-                .getBucketLocation(bucketName);
+    private String getBucketRegion(Repository repository, AWSCredentialsProvider credentialsProvider,
+            ClientConfiguration clientConfiguration) {
+        String explicitRegion = S3Utils.getRegion(repository);
+        if (explicitRegion == null) {
+            explicitRegion = this.region;
+        }
+        if (StringUtils.isNotBlank(explicitRegion)) {
+            return explicitRegion;
+        }
+        if (StringUtils.isNotBlank(this.endpoint)) {
+            // S3 compatible services rarely answer region lookups, and most of them ignore the region
+            return Regions.US_EAST_1.getName();
+        }
+
+        File cacheFile = StringUtils.isNotBlank(this.regionCacheFile) ? new File(this.regionCacheFile) : null;
+        return new BucketRegionResolver(cacheFile, TimeUnit.SECONDS.toMillis(this.regionCacheTtl)).resolve(
+                this.bucketName, () -> AmazonS3Client.builder().withCredentials(credentialsProvider)
+                        .withClientConfiguration(clientConfiguration).enableForceGlobalBucketAccess()
+                        .withRequestHandlers(this.metrics.getRequestHandler()).build());
     }
 
     @Override
@@ -168,38 +717,108 @@ public final class AmazonS3Wagon extends AbstractWagon {
 
             this.bucketName = S3Utils.getBucketName(repository);
             this.baseDirectory = S3Utils.getBaseDirectory(repository);
+            this.metrics = S3Metrics.forBucket(this.bucketName);
+            this.connectMetrics = this.metrics.snapshot();
+
+            String bucketRegion = getBucketRegion(repository, credentialsProvider, clientConfiguration);
+
+            // retries are paced and budgeted JVM-wide per bucket rather than per client
+            ThrottleController throttleController = ThrottleController.forBucket(this.bucketName);
+            clientConfiguration.withRetryPolicy(throttleController.getRetryPolicy()).withThrottledRetries(false);
 
-            this.amazonS3 = AmazonS3Client.builder().withCredentials(credentialsProvider)
-                    .withClientConfiguration(clientConfiguration)
-                    .withRegion(getBucketRegion(credentialsProvider, clientConfiguration, this.bucketName)).build();
+            String clientEndpoint = StringUtils.trimToNull(this.endpoint);
+            boolean clientPathStyleAccess = this.pathStyleAccess;
+            this.clientKey = new AmazonS3ClientRegistry.Key(this.bucketName, bucketRegion, clientEndpoint,
+                    clientPathStyleAccess, authenticationInfo, clientConfiguration);
+            this.amazonS3 = AmazonS3ClientRegistry.getInstance().acquire(this.clientKey, () -> {
+                AmazonS3ClientBuilder builder = AmazonS3Client.builder().withCredentials(credentialsProvider)
+                        .withClientConfiguration(clientConfiguration).withPathStyleAccessEnabled(clientPathStyleAccess)
+                        .withRequestHandlers(throttleController.getRequestHandler(),
+                                this.metrics.getRequestHandler());
+                if (clientEndpoint != null) {
+                    builder.withEndpointConfiguration(new EndpointConfiguration(clientEndpoint, bucketRegion));
+                } else {
+                    builder.withRegion(bucketRegion);
+                }
+                return builder.build();
+            });
         }
     }
 
     @Override
     protected void disconnectFromRepository() {
+        reportMetrics();
+        if (this.clientKey != null) {
+            AmazonS3ClientRegistry.getInstance().release(this.clientKey);
+            this.clientKey = null;
+        }
         this.amazonS3 = null;
         this.bucketName = null;
         this.baseDirectory = null;
+        this.sessionDirectories.clear();
+        this.loadedKeyIndex = null;
+    }
+
+    private void reportMetrics() {
+        S3Metrics metrics = this.metrics;
+        MetricsSnapshot connectMetrics = this.connectMetrics;
+        this.metrics = null;
+        this.connectMetrics = null;
+        if (metrics == null || (!this.metricsSummary && StringUtils.isBlank(this.metricsFile))) {
+            return;
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot().minus(connectMetrics);
+        if (this.metricsSummary) {
+            LOGGER.info(snapshot.toSummary());
+        }
+        if (StringUtils.isNotBlank(this.metricsFile)) {
+            try {
+                snapshot.writeTo(new File(this.metricsFile));
+            } catch (IOException e) {
+                // the transfers succeeded, failing the build over its metrics would be out of proportion
+                LOGGER.warn("Unable to write S3 metrics to '{}': {}", this.metricsFile, e.getMessage());
+            }
+        }
     }
 
     @Override
-    protected boolean doesRemoteResourceExist(String resourceName) {
+    protected boolean doesRemoteResourceExist(String resourceName) throws TransferFailedException,
+            AuthorizationException {
+        String key = getKey(this.baseDirectory, resourceName);
+        if (isKnownMissing(key)) {
+            return false;
+        }
+
         try {
-            getObjectMetadata(this.amazonS3, this.bucketName, this.baseDirectory, resourceName);
+            getResourceMetadata(resourceName);
             return true;
-        } catch (AmazonServiceException e) {
-            return false;
+        } catch (AmazonClientException e) {
+            if (isNotFound(e)) {
+                recordMissing(key);
+                return false;
+            }
+            throw lookupFailure(resourceName, e);
         }
     }
 
     @Override
-    protected boolean isRemoteResourceNewer(String resourceName, long timestamp) throws ResourceDoesNotExistException {
+    protected boolean isRemoteResourceNewer(String resourceName, long timestamp) throws TransferFailedException,
+            ResourceDoesNotExistException, AuthorizationException {
+        String key = getKey(this.baseDirectory, resourceName);
+        if (isKnownMissing(key)) {
+            throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName));
+        }
+
         try {
-            Date lastModified = getObjectMetadata(this.amazonS3, this.bucketName, this.baseDirectory, resourceName)
-                    .getLastModified();
+            Date lastModified = getResourceMetadata(resourceName).getLastModified();
             return lastModified == null || lastModified.getTime() > timestamp;
-        } catch (AmazonServiceException e) {
-            throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName), e);
+        } catch (AmazonClientException e) {
+            if (isNotFound(e)) {
+                recordMissing(key);
+                throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName), e);
+            }
+            throw lookupFailure(resourceName, e);
         }
     }
 
@@ -207,45 +826,229 @@ public final class AmazonS3Wagon extends AbstractWagon {
     protected List<String> listDirectory(String directory) throws ResourceDoesNotExistException {
         List<String> directoryContents = new ArrayList<String>();
 
-        try {
-            String prefix = getKey(this.baseDirectory, directory);
-            Pattern pattern = Pattern.compile(String.format(RESOURCE_FORMAT, prefix));
-
-            ListObjectsRequest listObjectsRequest = new ListObjectsRequest() //
-                    .withBucketName(this.bucketName) //
-                    .withPrefix(prefix) //
-                    .withDelimiter("/");
+        // without the delimiter the prefix would also match the siblings of the directory
+        String prefix = directory.isEmpty() ? directory : StringUtils.appendIfMissing(directory, "/");
 
-            ObjectListing objectListing;
-
-            objectListing = this.amazonS3.listObjects(listObjectsRequest);
-            directoryContents.addAll(getResourceNames(objectListing, pattern));
-
-            while (objectListing.isTruncated()) {
-                objectListing = this.amazonS3.listObjects(listObjectsRequest);
-                directoryContents.addAll(getResourceNames(objectListing, pattern));
+        try {
+            if (this.keyIndex) {
+                return getKeyIndex().list(prefix);
             }
-
+            getFileIterator(prefix).forEachRemaining(directoryContents::add);
             return directoryContents;
         } catch (AmazonServiceException e) {
             throw new ResourceDoesNotExistException(String.format("'%s' does not exist", directory), e);
         }
     }
 
+    /**
+     * Checks whether many resources exist and when they were last modified. Resources sharing a directory are
+     * answered from a listing of the directory, a few resources per directory are looked up on their own, and all
+     * requests are sent concurrently. The answers also serve later existence and freshness checks for as long as the
+     * metadata and negative caches keep them.
+     *
+     * @param resourceNames The resources to check
+     * @return The metadata of the resources that exist, by resource name
+     * @throws TransferFailedException if a listing or lookup fails
+     * @throws AuthorizationException  if access to the bucket is denied
+     */
+    public Map<String, ResourceMetadata> getResourceMetadata(Collection<String> resourceNames)
+            throws TransferFailedException, AuthorizationException {
+        Map<String, ResourceMetadata> metadata = new HashMap<>();
+        Map<String, String> uncached = new HashMap<>();
+        for (String resourceName : resourceNames) {
+            String key = getKey(this.baseDirectory, resourceName);
+            ResourceMetadata cached = getCachedMetadata(key);
+            if (cached != null) {
+                metadata.put(resourceName, cached);
+            } else if (!isKnownMissing(key)) {
+                uncached.put(key, resourceName);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return metadata;
+        }
+
+        Map<String, ResourceMetadata> found;
+        try {
+            found = new BatchMetadataResolver(this.amazonS3, this.batchListThreshold, this.batchConcurrency,
+                    ExecutorUtils.getExecutor()).resolve(this.bucketName, uncached.keySet());
+        } catch (AmazonClientException e) {
+            throw lookupFailure(this.bucketName, e);
+        }
+
+        for (Map.Entry<String, String> entry : uncached.entrySet()) {
+            ResourceMetadata resourceMetadata = found.get(entry.getKey());
+            if (resourceMetadata == null) {
+                recordMissing(entry.getKey());
+            } else {
+                this.metadataCache.put(this.bucketName, entry.getKey(), resourceMetadata);
+                metadata.put(entry.getValue(), resourceMetadata);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Lists the contents of a directory lazily. Unlike {@link #getFileList(String)} the listing is requested page by
+     * page as the iterator advances, so large directories can be scanned without holding all of their contents and
+     * the scan can be stopped early. Failures to list surface as {@link AmazonServiceException}s from the iterator.
+     *
+     * @param directory The directory to list
+     * @return The names of the files and subdirectories in the directory
+     */
+    public Iterator<String> getFileIterator(String directory) {
+        String prefix = getKey(this.baseDirectory, directory);
+        Pattern pattern = Pattern.compile(String.format(RESOURCE_FORMAT, prefix));
+
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request() //
+                .withBucketName(this.bucketName) //
+                .withPrefix(prefix) //
+                .withDelimiter("/");
+
+        Iterable<ListObjectsV2Result> pages = () -> new ListObjectsV2Pager(this.amazonS3, listObjectsRequest,
+                ExecutorUtils.getExecutor());
+        return StreamSupport.stream(pages.spliterator(), false)
+                .flatMap(page -> getResourceNames(page, pattern).stream())
+                .iterator();
+    }
+
     @Override
     protected void getResource(String resourceName, File destination, TransferProgress transferProgress)
-            throws TransferFailedException, ResourceDoesNotExistException {
-        InputStream in = null;
-        OutputStream out = null;
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        String key = getKey(this.baseDirectory, resourceName);
+        if (isKnownMissing(key)) {
+            throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName));
+        }
+
+        ContentCache contentCache = getContentCache();
+        String cachedETag = getCachedETag(contentCache, key);
+
+        S3Object s3Object;
+        try {
+            if (cachedETag == null) {
+                s3Object = this.amazonS3.getObject(this.bucketName, key);
+            } else {
+                // S3 answers 304 Not Modified, returned as null, if the cached copy is still current
+                s3Object = this.amazonS3.getObject(new GetObjectRequest(this.bucketName, key)
+                        .withNonmatchingETagConstraint(cachedETag));
+                if (s3Object == null) {
+                    if (getCachedResource(contentCache, resourceName, key, cachedETag, destination,
+                            transferProgress)) {
+                        return;
+                    }
+                    s3Object = this.amazonS3.getObject(this.bucketName, key);
+                }
+            }
+        } catch (AmazonClientException e) {
+            if (isNotFound(e)) {
+                recordMissing(key);
+                throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName), e);
+            }
+            throw lookupFailure(resourceName, e);
+        }
+
+        download(resourceName, key, s3Object, destination, transferProgress, contentCache);
+    }
+
+    @Override
+    protected boolean getResourceIfNewer(String resourceName, File destination, long timestamp,
+            TransferProgress transferProgress)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        String key = getKey(this.baseDirectory, resourceName);
+        if (isKnownMissing(key)) {
+            throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName));
+        }
+
+        ResourceMetadata metadata = getCachedMetadata(key);
+        if (metadata != null && metadata.getLastModified() != null
+                && metadata.getLastModified().getTime() <= timestamp) {
+            return false;
+        }
+
+        S3Object s3Object;
         try {
-            S3Object s3Object = this.amazonS3.getObject(this.bucketName, getKey(this.baseDirectory, resourceName));
+            // S3 answers 304 Not Modified, returned as null, unless the object changed after the timestamp
+            s3Object = this.amazonS3.getObject(new GetObjectRequest(this.bucketName, key)
+                    .withModifiedSinceConstraint(new Date(timestamp)));
+        } catch (AmazonClientException e) {
+            if (isNotFound(e)) {
+                recordMissing(key);
+                throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName), e);
+            }
+            throw lookupFailure(resourceName, e);
+        }
+        if (s3Object == null) {
+            return false;
+        }
+
+        download(resourceName, key, s3Object, destination, transferProgress, getContentCache());
+        return true;
+    }
+
+    private void download(String resourceName, String key, S3Object s3Object, File destination,
+            TransferProgress transferProgress, ContentCache contentCache) throws TransferFailedException {
+        ObjectMetadata objectMetadata = s3Object.getObjectMetadata();
+        if (objectMetadata != null) {
+            this.metadataCache.put(this.bucketName, key, ResourceMetadata.from(objectMetadata));
+        }
+
+        if (objectMetadata != null && objectMetadata.getContentLength() >= this.rangedDownloadThreshold) {
+            getRangedResource(resourceName, key, s3Object, destination, transferProgress);
+        } else {
+            getSingleResource(resourceName, s3Object, destination, transferProgress);
+        }
+
+        if (contentCache != null && objectMetadata != null && objectMetadata.getETag() != null) {
+            try {
+                contentCache.store(this.bucketName, key, objectMetadata.getETag(), destination);
+            } catch (IOException e) {
+                // the content cache is an optimisation only
+            }
+        }
+    }
+
+    private ContentCache getContentCache() {
+        String directory = this.contentCacheDirectory;
+        return StringUtils.isBlank(directory) ? null : new ContentCache(new File(directory).toPath(),
+                this.contentCacheSize);
+    }
+
+    private String getCachedETag(ContentCache contentCache, String key) {
+        if (contentCache == null) {
+            return null;
+        }
+        try {
+            return contentCache.getETag(this.bucketName, key);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean getCachedResource(ContentCache contentCache, String resourceName, String key, String eTag,
+            File destination, TransferProgress transferProgress) throws TransferFailedException {
+        try {
+            return contentCache.retrieve(this.bucketName, key, eTag, destination, transferProgress);
+        } catch (IOException e) {
+            throw new TransferFailedException(
+                    String.format("Cannot copy cached '%s' to '%s'", resourceName, destination), e);
+        }
+    }
+
+    private void getSingleResource(String resourceName, S3Object s3Object, File destination,
+            TransferProgress transferProgress) throws TransferFailedException {
+        ObjectMetadata objectMetadata = s3Object.getObjectMetadata();
+        String eTag = objectMetadata == null ? null : objectMetadata.getETag();
+        DigestingTransferProgress digestingProgress = ETagCalculator.isContentDigest(eTag,
+                objectMetadata == null ? null : objectMetadata.getSSEAlgorithm())
+                ? new DigestingTransferProgress(transferProgress, MD5) : null;
 
+        InputStream in = null;
+        FileOutputStream out = null;
+        try {
             in = s3Object.getObjectContent();
-            out = new TransferProgressFileOutputStream(destination, transferProgress);
+            out = new FileOutputStream(destination);
 
-            IOUtils.copy(in, out);
-        } catch (AmazonServiceException e) {
-            throw new ResourceDoesNotExistException(String.format("'%s' does not exist", resourceName), e);
+            IOUtils.copy(in, out.getChannel(), digestingProgress == null ? transferProgress : digestingProgress);
         } catch (FileNotFoundException e) {
             throw new TransferFailedException(String.format("Cannot write file to '%s'", destination), e);
         } catch (IOException e) {
@@ -254,31 +1057,170 @@ public final class AmazonS3Wagon extends AbstractWagon {
         } finally {
             IOUtils.closeQuietly(in, out);
         }
+
+        if (digestingProgress != null && !digestingProgress.getDigest(MD5).equalsIgnoreCase(eTag)) {
+            // a corrupt file must not be mistaken for a completed download
+            destination.delete();
+            throw new TransferFailedException(
+                    String.format("Content of '%s' does not match its ETag '%s'", resourceName, eTag));
+        }
+    }
+
+    private void getRangedResource(String resourceName, String key, S3Object s3Object, File destination,
+            TransferProgress transferProgress) throws TransferFailedException {
+        try {
+            new RangedDownloader(this.amazonS3, this.rangedDownloadPartSize, this.rangedDownloadConcurrency,
+                    ExecutorUtils.getExecutor()).download(this.bucketName, key, s3Object, destination,
+                            transferProgress);
+        } catch (AmazonClientException e) {
+            throw new TransferFailedException(String.format("Cannot read from '%s'", resourceName), e);
+        } catch (FileNotFoundException e) {
+            throw new TransferFailedException(String.format("Cannot write file to '%s'", destination), e);
+        } catch (IOException e) {
+            throw new TransferFailedException(
+                    String.format("Cannot read from '%s' and write to '%s'", resourceName, destination), e);
+        }
     }
 
     @Override
     protected void putResource(File source, String destination, TransferProgress transferProgress)
             throws TransferFailedException, ResourceDoesNotExistException {
         String key = getKey(this.baseDirectory, destination);
+        if (this.skipIdenticalUploads && isIdentical(source, key)) {
+            reportSkippedResource(source, destination, transferProgress);
+            return;
+        }
 
-        mkdirs(amazonS3, this.bucketName, key, 0);
+        // Directory markers do not depend on the payload, so they are written while the payload is uploaded
+        List<String> directories = claimDirectories(key);
+        Future<Void> directoriesWritten = directories.isEmpty() ? null
+                : ExecutorUtils.getExecutor().submit(() -> mkdirs(directories));
 
-        InputStream in = null;
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(source.length());
+        objectMetadata.setContentType(Mimetypes.getInstance().getMimetype(source));
+        objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+
+        boolean uploaded = false;
         try {
-            ObjectMetadata objectMetadata = new ObjectMetadata();
-            objectMetadata.setContentLength(source.length());
-            objectMetadata.setContentType(Mimetypes.getInstance().getMimetype(source));
-            objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+            if (source.length() >= this.multipartThreshold) {
+                putMultipartResource(source, destination, key, objectMetadata, transferProgress);
+            } else if (source.length() < this.smallObjectThreshold) {
+                putSmallResource(source, destination, key, objectMetadata, transferProgress);
+            } else {
+                putSingleResource(source, destination, key, objectMetadata, transferProgress);
+            }
+            uploaded = true;
+        } finally {
+            // even a failed upload may have replaced the object
+            this.metadataCache.invalidate(this.bucketName, key);
+            this.negativeCache.invalidate(this.bucketName, key);
+            if (!uploaded) {
+                awaitDirectoriesQuietly(directoriesWritten, directories);
+            }
+        }
+
+        awaitDirectories(directoriesWritten);
+        addToKeyIndex(key, directories);
+    }
+
+    private static void reportSkippedResource(File source, String destination, TransferProgress transferProgress)
+            throws TransferFailedException {
+        // Maven computes the checksums it deploys next to the file from the reported bytes, the ETag was computed
+        // concurrently per part, so the file is read again in order
+        byte[] buffer = BufferPool.acquire(BufferPool.MAXIMUM_SIZE);
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            IOUtils.report(channel, 0, channel.size(), buffer, transferProgress);
+        } catch (IOException e) {
+            throw new TransferFailedException(String.format("Cannot read file for '%s'", destination), e);
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
 
-            in = new TransferProgressFileInputStream(source, transferProgress);
+    private boolean isIdentical(File source, String key) {
+        ObjectMetadata remote;
+        try {
+            // the cached metadata may be outdated, and a wrong match would lose the upload
+            remote = this.amazonS3.getObjectMetadata(this.bucketName, key);
+        } catch (AmazonClientException e) {
+            // if the object cannot be looked up, the upload decides whether it can be written
+            return false;
+        }
+        if (remote.getETag() == null || remote.getContentLength() != source.length()) {
+            return false;
+        }
 
-            this.amazonS3.putObject(new PutObjectRequest(this.bucketName, key, in, objectMetadata));
+        // a multipart ETag does not name its part size, so the sizes this wagon and common tools use are tried
+        long[] partSizes = new long[COMMON_PART_SIZES.length + 1];
+        partSizes[0] = MultipartUploader.getPartSize(this.multipartPartSize, source.length());
+        System.arraycopy(COMMON_PART_SIZES, 0, partSizes, 1, COMMON_PART_SIZES.length);
+        try {
+            if (new ETagCalculator(ForkJoinPool.commonPool()).matches(source, remote.getETag(), partSizes)) {
+                this.metadataCache.put(this.bucketName, key, ResourceMetadata.from(remote));
+                this.negativeCache.invalidate(this.bucketName, key);
+                return true;
+            }
+        } catch (IOException e) {
+            // the upload reports the unreadable file
+        }
+        return false;
+    }
+
+    private void putSmallResource(File source, String destination, String key, ObjectMetadata objectMetadata,
+            TransferProgress transferProgress) throws TransferFailedException, ResourceDoesNotExistException {
+        try {
+            new SmallObjectUploader(this.amazonS3).upload(this.bucketName, key, source, objectMetadata,
+                    transferProgress);
+        } catch (AmazonClientException e) {
+            throw new TransferFailedException(String.format("Cannot write file to '%s'", destination), e);
+        } catch (NoSuchFileException e) {
+            throw new ResourceDoesNotExistException(String.format("Cannot read file from '%s'", source), e);
+        } catch (IOException e) {
+            throw new TransferFailedException(
+                    String.format("Cannot read from '%s' and write to '%s'", source, destination), e);
+        }
+    }
+
+    private void putSingleResource(File source, String destination, String key, ObjectMetadata objectMetadata,
+            TransferProgress transferProgress) throws TransferFailedException, ResourceDoesNotExistException {
+        DigestingTransferProgress digestingProgress = new DigestingTransferProgress(transferProgress, MD5);
+        PutObjectResult putObjectResult;
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            // a region stream can be reset for a retry without reporting, and digesting, its content twice
+            InputStream in = new FileRegionInputStream(channel, 0, objectMetadata.getContentLength(),
+                    digestingProgress);
+            putObjectResult = this.amazonS3.putObject(new PutObjectRequest(this.bucketName, key, in, objectMetadata));
         } catch (AmazonServiceException e) {
             throw new TransferFailedException(String.format("Cannot write file to '%s'", destination), e);
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             throw new ResourceDoesNotExistException(String.format("Cannot read file from '%s'", source), e);
-        } finally {
-            IOUtils.closeQuietly(in);
+        } catch (IOException e) {
+            throw new TransferFailedException(
+                    String.format("Cannot read from '%s' and write to '%s'", source, destination), e);
+        }
+
+        String eTag = putObjectResult == null ? null : putObjectResult.getETag();
+        String digest = digestingProgress.getDigest(MD5);
+        if (ETagCalculator.isContentDigest(eTag, objectMetadata.getSSEAlgorithm()) && !digest.equalsIgnoreCase(eTag)) {
+            throw new TransferFailedException(String.format("'%s' was stored with ETag '%s' but has MD5 '%s'",
+                    destination, eTag, digest));
+        }
+    }
+
+    private void putMultipartResource(File source, String destination, String key, ObjectMetadata objectMetadata,
+            TransferProgress transferProgress) throws TransferFailedException, ResourceDoesNotExistException {
+        try {
+            new MultipartUploader(this.amazonS3, this.multipartPartSize, this.multipartConcurrency,
+                    ExecutorUtils.getExecutor()).upload(this.bucketName, key, source, objectMetadata,
+                            transferProgress);
+        } catch (AmazonClientException e) {
+            throw new TransferFailedException(String.format("Cannot write file to '%s'", destination), e);
+        } catch (NoSuchFileException e) {
+            throw new ResourceDoesNotExistException(String.format("Cannot read file from '%s'", source), e);
+        } catch (IOException e) {
+            throw new TransferFailedException(
+                    String.format("Cannot read from '%s' and write to '%s'", source, destination), e);
         }
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces requests with a token bucket whose rate follows the throttling responses of the service: every throttling
+ * response cuts the rate multiplicatively and the rate grows back additively while requests succeed. Requests pass
+ * unhindered until the first throttling response, which starts pacing at a share of the rate requests were sent at
+ * just before. Pacing stops again once requests are sent at less than half the rate, as the rate then no longer holds
+ * them back and would otherwise keep growing without being tested. The next throttling response starts pacing anew
+ * from the rate requests are actually sent at.
+ * <p>
+ * Throttling responses to requests that were sent before the last cut do not cut the rate again, so that the burst of
+ * responses to the requests already in flight counts as one.
+ */
+public final class AdaptiveRateLimiter {
+
+    private static final double DECREASE_FACTOR = 0.8;
+
+    private static final double INCREASE_FACTOR = 0.5;
+
+    private static final double MINIMUM_INCREASE = 5;
+
+    private static final double BURST_SECONDS = 0.1;
+
+    private static final double IDLE_SHARE = 0.5;
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double minimumRate;
+
+    private final LongSupplier clock;
+
+    private boolean limiting;
+
+    private double rate;
+
+    private double increase;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    private long lastIncrease;
+
+    private long lastDecrease;
+
+    private long windowStart;
+
+    private int windowCount;
+
+    private int previousWindowCount;
+
+    /**
+     * Creates a new limiter
+     *
+     * @param minimumRate The rate in requests per second that throttling responses do not cut below
+     */
+    public AdaptiveRateLimiter(double minimumRate) {
+        this(minimumRate, System::nanoTime);
+    }
+
+    AdaptiveRateLimiter(double minimumRate, LongSupplier clock) {
+        this.minimumRate = minimumRate;
+        this.clock = clock;
+        this.windowStart = clock.getAsLong() - 2 * SECOND;
+    }
+
+    /**
+     * Waits until a request may be sent
+     *
+     * @return The time the request is sent at, to be handed to {@link #onThrottle(long)}
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        long sendAt = reserve();
+        long wait = sendAt - this.clock.getAsLong();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return sendAt;
+    }
+
+    /**
+     * Reserves the next free slot for a request without waiting for it
+     *
+     * @return The time in {@link System#nanoTime()} the request may be sent at
+     */
+    synchronized long reserve() {
+        long now = this.clock.getAsLong();
+        count(now);
+        if (!this.limiting) {
+            return now;
+        }
+
+        refill(now);
+        this.tokens -= 1;
+        return this.tokens >= 0 ? now : now + (long) (-this.tokens / this.rate * SECOND);
+    }
+
+    /**
+     * Records a successful response, which raises the rate by half the rate before the last cut, and at least by five
+     * requests per second, for every second since the rate was last raised. Pacing stops if requests are sent at less
+     * than half the raised rate.
+     */
+    public synchronized void onSuccess() {
+        if (!this.limiting) {
+            return;
+        }
+
+        long now = this.clock.getAsLong();
+        refill(now);
+        this.rate += this.increase * (now - this.lastIncrease) / SECOND;
+        this.lastIncrease = now;
+        if (getSendRate(now) < this.rate * IDLE_SHARE) {
+            this.limiting = false;
+        }
+    }
+
+    /**
+     * Records a throttling response
+     *
+     * @param sentAt The time the throttled request was sent at, as returned by {@link #acquire()}
+     */
+    public synchronized void onThrottle(long sentAt) {
+        long now = this.clock.getAsLong();
+        if (this.limiting && sentAt - this.lastDecrease < 0) {
+            return;
+        }
+
+        double base;
+        if (this.limiting) {
+            refill(now);
+            base = this.rate;
+        } else {
+            this.limiting = true;
+            this.tokens = 0;
+            this.lastRefill = now;
+            base = getSendRate(now);
+        }
+        this.rate = Math.max(this.minimumRate, base * DECREASE_FACTOR);
+        this.increase = Math.max(MINIMUM_INCREASE, base * INCREASE_FACTOR);
+        this.lastDecrease = now;
+        this.lastIncrease = now;
+    }
+
+    /**
+     * Returns the rate requests are paced at
+     *
+     * @return The rate in requests per second, infinite while requests are not paced
+     */
+    public synchronized double getRate() {
+        return this.limiting ? this.rate : Double.POSITIVE_INFINITY;
+    }
+
+    private void refill(long now) {
+        double capacity = Math.max(1, this.rate * BURST_SECONDS);
+        this.tokens = Math.min(capacity, this.tokens + this.rate * (now - this.lastRefill) / SECOND);
+        this.lastRefill = now;
+    }
+
+    private void count(long now) {
+        roll(now);
+        this.windowCount++;
+    }
+
+    private void roll(long now) {
+        long elapsed = now - this.windowStart;
+        if (elapsed >= 2 * SECOND) {
+            // a burst after a quiet period starts a window of its own
+            this.previousWindowCount = 0;
+            this.windowCount = 0;
+            this.windowStart = now;
+        } else if (elapsed >= SECOND) {
+            this.previousWindowCount = this.windowCount;
+            this.windowCount = 0;
+            this.windowStart += SECOND;
+        }
+    }
+
+    private double getSendRate(long now) {
+        roll(now);
+        // the share of the previous window that still lies within the last second is assumed to be evenly loaded, and
+        // the current window is extrapolated so that a burst after a quiet period is not mistaken for a trickle
+        double elapsed = (double) (now - this.windowStart) / SECOND;
+        return Math.max(this.previousWindowCount * (1 - elapsed) + this.windowCount,
+                this.windowCount / Math.max(elapsed, BURST_SECONDS));
+    }
+}
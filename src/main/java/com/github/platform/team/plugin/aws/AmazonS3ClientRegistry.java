@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A JVM-wide registry of {@link AmazonS3} clients. Maven looks wagons up per transfer, so without sharing every lookup
+ * would build a new client with its own connection pool and pay for fresh TCP and TLS handshakes. Clients are
+ * reference counted and shut down once they have been idle for longer than the idle timeout.
+ */
+public final class AmazonS3ClientRegistry {
+
+    private static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private static final AmazonS3ClientRegistry INSTANCE = new AmazonS3ClientRegistry(DEFAULT_IDLE_TIMEOUT);
+
+    private final Map<Key, Entry> clients = new HashMap<>();
+
+    private final long idleTimeout;
+
+    AmazonS3ClientRegistry(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public static AmazonS3ClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the client registered for a key, creating it with the factory if there is none yet
+     *
+     * @param key     The settings the client was built from
+     * @param factory Creates a new client when no client is registered for the key
+     * @return The shared client, which must be handed back with {@link #release(Key)}
+     */
+    public synchronized AmazonS3 acquire(Key key, Supplier<AmazonS3> factory) {
+        evictIdle(System.currentTimeMillis());
+
+        Entry entry = this.clients.get(key);
+        if (entry == null) {
+            entry = new Entry(factory.get());
+            this.clients.put(key, entry);
+        }
+        entry.references++;
+        return entry.client;
+    }
+
+    /**
+     * Hands back a client obtained with {@link #acquire(Key, Supplier)}
+     *
+     * @param key The key the client was acquired with
+     */
+    public synchronized void release(Key key) {
+        long now = System.currentTimeMillis();
+
+        Entry entry = this.clients.get(key);
+        if (entry != null && entry.references > 0 && --entry.references == 0) {
+            entry.idleSince = now;
+        }
+        evictIdle(now);
+    }
+
+    synchronized int size() {
+        return this.clients.size();
+    }
+
+    private void evictIdle(long now) {
+        Iterator<Entry> entries = this.clients.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.references == 0 && now - entry.idleSince >= this.idleTimeout) {
+                entries.remove();
+                entry.client.shutdown();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final AmazonS3 client;
+
+        private int references;
+
+        private long idleSince;
+
+        private Entry(AmazonS3 client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * Identifies the bucket, region, endpoint, credentials, proxy and client settings a client was built for. Two wagons
+     * connecting with equal keys share a client.
+     */
+    public static final class Key {
+
+        private final String bucketName;
+
+        private final String region;
+
+        private final String endpoint;
+
+        private final boolean pathStyleAccess;
+
+        private final String userName;
+
+        private final String password;
+
+        private final String proxyHost;
+
+        private final int proxyPort;
+
+        private final String proxyUsername;
+
+        private final String proxyPassword;
+
+        private final int connectionTimeout;
+
+        private final int socketTimeout;
+
+        private final int maxConnections;
+
+        public Key(String bucketName, String region, AuthenticationInfo authenticationInfo,
+                   ClientConfiguration clientConfiguration) {
+            this(bucketName, region, null, false, authenticationInfo, clientConfiguration);
+        }
+
+        public Key(String bucketName, String region, String endpoint, boolean pathStyleAccess,
+                   AuthenticationInfo authenticationInfo, ClientConfiguration clientConfiguration) {
+            this.bucketName = bucketName;
+            this.region = region;
+            this.endpoint = endpoint;
+            this.pathStyleAccess = pathStyleAccess;
+            this.userName = authenticationInfo != null ? authenticationInfo.getUserName() : null;
+            this.password = authenticationInfo != null ? authenticationInfo.getPassword() : null;
+            this.proxyHost = clientConfiguration.getProxyHost();
+            this.proxyPort = clientConfiguration.getProxyPort();
+            this.proxyUsername = clientConfiguration.getProxyUsername();
+            this.proxyPassword = clientConfiguration.getProxyPassword();
+            this.connectionTimeout = clientConfiguration.getConnectionTimeout();
+            this.socketTimeout = clientConfiguration.getSocketTimeout();
+            this.maxConnections = clientConfiguration.getMaxConnections();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.pathStyleAccess == other.pathStyleAccess
+                    && this.proxyPort == other.proxyPort
+                    && this.connectionTimeout == other.connectionTimeout
+                    && this.socketTimeout == other.socketTimeout
+                    && this.maxConnections == other.maxConnections
+                    && Objects.equals(this.bucketName, other.bucketName)
+                    && Objects.equals(this.region, other.region)
+                    && Objects.equals(this.endpoint, other.endpoint)
+                    && Objects.equals(this.userName, other.userName)
+                    && Objects.equals(this.password, other.password)
+                    && Objects.equals(this.proxyHost, other.proxyHost)
+                    && Objects.equals(this.proxyUsername, other.proxyUsername)
+                    && Objects.equals(this.proxyPassword, other.proxyPassword);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.bucketName, this.region, this.endpoint, this.pathStyleAccess, this.userName,
+                    this.password, this.proxyHost, this.proxyPort, this.proxyUsername, this.proxyPassword,
+                    this.connectionTimeout, this.socketTimeout, this.maxConnections);
+        }
+
+        @Override
+        public String toString() {
+            return this.endpoint == null ? String.format("%s (%s)", this.bucketName, this.region)
+                    : String.format("%s (%s, %s)", this.bucketName, this.region, this.endpoint);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.github.platform.team.plugin.cache.ResourceMetadata;
+import com.github.platform.team.plugin.util.BoundedExecutor;
+import com.github.platform.team.plugin.util.S3Utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Looks up the metadata of many objects at once. Keys are grouped by directory; a directory with enough requested keys
+ * is listed, which answers up to 1000 keys per request, and the keys of sparse directories are looked up with HEAD
+ * requests. Listings and HEAD requests run concurrently.
+ */
+public final class BatchMetadataResolver {
+
+    private static final int NOT_FOUND = 404;
+
+    private static final String DELIMITER = "/";
+
+    private final AmazonS3 amazonS3;
+
+    private final int listThreshold;
+
+    private final int concurrency;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new resolver
+     *
+     * @param amazonS3      The client to look up with
+     * @param listThreshold The number of requested keys in a directory from which the directory is listed
+     * @param concurrency   The maximum number of listings and HEAD requests in flight
+     * @param executor      The executor requests are sent on
+     */
+    public BatchMetadataResolver(AmazonS3 amazonS3, int listThreshold, int concurrency, Executor executor) {
+        this.amazonS3 = amazonS3;
+        this.listThreshold = listThreshold;
+        this.concurrency = concurrency;
+        this.executor = executor;
+    }
+
+    /**
+     * Looks up the metadata of objects
+     *
+     * @param bucketName The bucket of the objects
+     * @param keys       The keys of the objects
+     * @return The metadata of the objects that exist, by key
+     * @throws AmazonClientException if a listing or a HEAD request fails for another reason than a missing object
+     */
+    public Map<String, ResourceMetadata> resolve(String bucketName, Collection<String> keys) {
+        Map<String, Set<String>> directories = new HashMap<>();
+        for (String key : keys) {
+            directories.computeIfAbsent(key.substring(0, key.lastIndexOf('/') + 1), directory -> new HashSet<>())
+                    .add(key);
+        }
+
+        Map<String, ResourceMetadata> found = new ConcurrentHashMap<>();
+        Executor lookupExecutor = new BoundedExecutor(this.executor, this.concurrency);
+        List<CompletableFuture<Void>> lookups = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> directory : directories.entrySet()) {
+            if (directory.getValue().size() >= this.listThreshold) {
+                lookups.add(CompletableFuture.runAsync(
+                        () -> list(bucketName, directory.getKey(), directory.getValue(), found), lookupExecutor));
+            } else {
+                for (String key : directory.getValue()) {
+                    lookups.add(CompletableFuture.runAsync(() -> head(bucketName, key, found), lookupExecutor));
+                }
+            }
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> lookup : lookups) {
+            try {
+                lookup.join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = unwrap(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return found;
+    }
+
+    private void list(String bucketName, String directory, Set<String> keys, Map<String, ResourceMetadata> found) {
+        String lastKey = null;
+        for (String key : keys) {
+            if (lastKey == null || S3Utils.compareKeys(key, lastKey) > 0) {
+                lastKey = key;
+            }
+        }
+
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(directory)
+                .withDelimiter(DELIMITER);
+        ListObjectsV2Pager pages = new ListObjectsV2Pager(this.amazonS3, listObjectsRequest, this.executor);
+        while (pages.hasNext()) {
+            ListObjectsV2Result page = pages.next();
+            List<S3ObjectSummary> summaries = page.getObjectSummaries();
+            for (S3ObjectSummary summary : summaries) {
+                if (keys.contains(summary.getKey())) {
+                    found.put(summary.getKey(), new ResourceMetadata(summary.getETag(), summary.getLastModified(),
+                            summary.getSize()));
+                }
+            }
+            // keys are listed in order, later pages cannot hold any of the requested keys
+            if (!summaries.isEmpty()
+                    && S3Utils.compareKeys(summaries.get(summaries.size() - 1).getKey(), lastKey) >= 0) {
+                return;
+            }
+        }
+    }
+
+    private void head(String bucketName, String key, Map<String, ResourceMetadata> found) {
+        try {
+            found.put(key, ResourceMetadata.from(this.amazonS3.getObjectMetadata(bucketName, key)));
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() != NOT_FOUND) {
+                throw e;
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new AmazonClientException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.HeadBucketRequest;
+import com.amazonaws.services.s3.model.Region;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the region of a bucket. Resolved regions are kept in a JVM-wide map and, if a cache file is configured, in
+ * a properties file shared by later Maven invocations. Entries older than the time to live are looked up again.
+ */
+public final class BucketRegionResolver {
+
+    private static final String BUCKET_REGION_HEADER = "x-amz-bucket-region";
+
+    private static final String ENTRY_FORMAT = "%s,%d";
+
+    private static final Map<String, CachedRegion> REGIONS = new ConcurrentHashMap<>();
+
+    private final Map<String, CachedRegion> regions;
+
+    private final File cacheFile;
+
+    private final long timeToLive;
+
+    /**
+     * Creates a resolver backed by the JVM-wide region map
+     *
+     * @param cacheFile  The file regions are persisted to, or {@code null} to keep them in memory only
+     * @param timeToLive How long a resolved region is trusted, in milliseconds
+     */
+    public BucketRegionResolver(File cacheFile, long timeToLive) {
+        this(REGIONS, cacheFile, timeToLive);
+    }
+
+    BucketRegionResolver(Map<String, CachedRegion> regions, File cacheFile, long timeToLive) {
+        this.regions = regions;
+        this.cacheFile = cacheFile;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the region of a bucket, only asking S3 if no cached region is fresh enough
+     *
+     * @param bucketName   The bucket to resolve
+     * @param globalClient Creates a client with global bucket access, used when the region has to be looked up
+     * @return The name of the bucket's region, e.g. {@code eu-west-1}
+     */
+    public String resolve(String bucketName, Supplier<AmazonS3> globalClient) {
+        long now = System.currentTimeMillis();
+
+        CachedRegion cachedRegion = this.regions.get(bucketName);
+        if (isFresh(cachedRegion, now)) {
+            return cachedRegion.region;
+        }
+
+        cachedRegion = readCacheFile().get(bucketName);
+        if (isFresh(cachedRegion, now)) {
+            this.regions.put(bucketName, cachedRegion);
+            return cachedRegion.region;
+        }
+
+        AmazonS3 amazonS3 = globalClient.get();
+        try {
+            cachedRegion = new CachedRegion(lookup(amazonS3, bucketName), now);
+        } finally {
+            amazonS3.shutdown();
+        }
+
+        this.regions.put(bucketName, cachedRegion);
+        writeCacheFile(bucketName, cachedRegion);
+        return cachedRegion.region;
+    }
+
+    static String normalize(String location) {
+        try {
+            return Region.fromValue(location).toAWSRegion().getName();
+        } catch (IllegalArgumentException e) {
+            return location;
+        }
+    }
+
+    private static String lookup(AmazonS3 amazonS3, String bucketName) {
+        try {
+            return normalize(amazonS3.getBucketLocation(bucketName));
+        } catch (AmazonServiceException e) {
+            // GetBucketLocation needs a permission HeadBucket does not, and both report a bucket in another region
+            // with a 301 that carries the region as a header
+            String region = getRegionHeader(e);
+            if (region != null) {
+                return region;
+            }
+        }
+
+        try {
+            return amazonS3.headBucket(new HeadBucketRequest(bucketName)).getBucketRegion();
+        } catch (AmazonServiceException e) {
+            String region = getRegionHeader(e);
+            if (region != null) {
+                return region;
+            }
+            throw e;
+        }
+    }
+
+    private static String getRegionHeader(AmazonServiceException e) {
+        Map<String, String> headers = e.getHttpHeaders();
+        if (headers != null && headers.get(BUCKET_REGION_HEADER) != null) {
+            return headers.get(BUCKET_REGION_HEADER);
+        }
+        if (e instanceof AmazonS3Exception) {
+            Map<String, String> additionalDetails = ((AmazonS3Exception) e).getAdditionalDetails();
+            if (additionalDetails != null) {
+                return additionalDetails.get(BUCKET_REGION_HEADER);
+            }
+        }
+        return null;
+    }
+
+    private boolean isFresh(CachedRegion cachedRegion, long now) {
+        return cachedRegion != null && now - cachedRegion.resolved < this.timeToLive;
+    }
+
+    private Map<String, CachedRegion> readCacheFile() {
+        Map<String, CachedRegion> cachedRegions = new HashMap<>();
+        if (this.cacheFile == null || !this.cacheFile.isFile()) {
+            return cachedRegions;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(this.cacheFile.toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            return cachedRegions;
+        }
+
+        for (String bucketName : properties.stringPropertyNames()) {
+            String[] entry = properties.getProperty(bucketName).split(",");
+            if (entry.length == 2) {
+                try {
+                    cachedRegions.put(bucketName, new CachedRegion(entry[0], Long.parseLong(entry[1])));
+                } catch (NumberFormatException e) {
+                    // skip the malformed entry
+                }
+            }
+        }
+        return cachedRegions;
+    }
+
+    private void writeCacheFile(String bucketName, CachedRegion cachedRegion) {
+        if (this.cacheFile == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, CachedRegion> entry : readCacheFile().entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        properties.setProperty(bucketName, cachedRegion.toString());
+
+        // Several Maven processes may share the file, so it is replaced atomically rather than written in place
+        File temporaryFile = null;
+        try {
+            File directory = this.cacheFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            temporaryFile = File.createTempFile(this.cacheFile.getName(), ".tmp", directory);
+            try (OutputStream out = Files.newOutputStream(temporaryFile.toPath())) {
+                properties.store(out, "S3 bucket regions resolved by aws-maven");
+            }
+            Files.move(temporaryFile.toPath(), this.cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the cache file is an optimisation only
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    static final class CachedRegion {
+
+        private final String region;
+
+        private final long resolved;
+
+        CachedRegion(String region, long resolved) {
+            this.region = region;
+            this.resolved = resolved;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(ENTRY_FORMAT, this.region, this.resolved);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.util.BufferPool;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the ETag S3 gives a file when it is stored unencrypted or with S3 managed keys. That is the hex MD5 of the
+ * content for a single part upload, and the MD5 of the concatenated binary MD5s of the parts, followed by a dash and
+ * the number of parts, for a multipart upload. The parts of a file are hashed concurrently on a fork-join pool.
+ */
+public final class ETagCalculator {
+
+    private static final String MULTIPART_SEPARATOR = "-";
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new calculator
+     *
+     * @param pool The pool the parts of a file are hashed on
+     */
+    public ETagCalculator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Checks whether a file has a given ETag. A multipart ETag does not record the size of its parts, so it can only
+     * be matched if one of the candidate part sizes splits the file into as many parts as the ETag names.
+     *
+     * @param file      The file to check
+     * @param eTag      The ETag of an object, with or without quotes
+     * @param partSizes The part sizes to try for a multipart ETag
+     * @return {@code true} if the file has the ETag
+     * @throws IOException if the file cannot be read
+     */
+    public boolean matches(File file, String eTag, long... partSizes) throws IOException {
+        String expected = eTag.replace("\"", "");
+        int separator = expected.indexOf(MULTIPART_SEPARATOR);
+        if (separator == -1) {
+            return expected.equalsIgnoreCase(singlePart(file));
+        }
+
+        int parts;
+        try {
+            parts = Integer.parseInt(expected.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        long length = file.length();
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (long partSize : partSizes) {
+            if (partSize > 0 && (length + partSize - 1) / partSize == parts) {
+                candidates.add(partSize);
+            }
+        }
+        for (long partSize : candidates) {
+            if (expected.equalsIgnoreCase(multipart(file, partSize))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an ETag is the MD5 of the content of its object, which is only the case for single part uploads
+     * stored unencrypted or with S3 managed keys
+     *
+     * @param eTag         The ETag of the object
+     * @param sseAlgorithm The server side encryption of the object, or {@code null}
+     * @return {@code true} if the ETag can be compared with the MD5 of the content
+     */
+    public static boolean isContentDigest(String eTag, String sseAlgorithm) {
+        return eTag != null && !eTag.contains(MULTIPART_SEPARATOR)
+                && (sseAlgorithm == null || ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION.equals(sseAlgorithm));
+    }
+
+    /**
+     * Computes the ETag of a single part upload of a file
+     *
+     * @param file The file to hash
+     * @return The hex MD5 of the file
+     * @throws IOException if the file cannot be read
+     */
+    public String singlePart(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return BinaryUtils.toHex(digest(channel, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Computes the ETag of a multipart upload of a file
+     *
+     * @param file     The file to hash
+     * @param partSize The size of each part but the last in bytes
+     * @return The composite ETag
+     * @throws IOException if the file cannot be read
+     */
+    public String multipart(File file, long partSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            int parts = (int) Math.max(1, (length + partSize - 1) / partSize);
+            byte[][] digests = new byte[parts][];
+            try {
+                this.pool.invoke(new PartDigests(channel, length, partSize, digests, 0, parts));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            MessageDigest composite = newDigest();
+            for (byte[] digest : digests) {
+                composite.update(digest);
+            }
+            return BinaryUtils.toHex(composite.digest()) + MULTIPART_SEPARATOR + parts;
+        }
+    }
+
+    private static byte[] digest(FileChannel channel, long start, long end) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = BufferPool.acquire(BufferPool.MAXIMUM_SIZE);
+        try {
+            long position = start;
+            while (position < end) {
+                int read = channel.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position)),
+                        position);
+                if (read == -1) {
+                    throw new EOFException(String.format("Expected %d more bytes", end - position));
+                }
+                digest.update(buffer, 0, read);
+                position += read;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class PartDigests extends RecursiveAction {
+
+        private final FileChannel channel;
+
+        private final long length;
+
+        private final long partSize;
+
+        private final byte[][] digests;
+
+        private final int from;
+
+        private final int to;
+
+        private PartDigests(FileChannel channel, long length, long partSize, byte[][] digests, int from, int to) {
+            this.channel = channel;
+            this.length = length;
+            this.partSize = partSize;
+            this.digests = digests;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1) {
+                long start = this.from * this.partSize;
+                try {
+                    this.digests[this.from] = digest(this.channel, start,
+                            Math.min(start + this.partSize, this.length));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new PartDigests(this.channel, this.length, this.partSize, this.digests, this.from, middle),
+                    new PartDigests(this.channel, this.length, this.partSize, this.digests, middle, this.to));
+        }
+    }
+}
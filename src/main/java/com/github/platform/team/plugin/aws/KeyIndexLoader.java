@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.github.platform.team.plugin.cache.KeyIndex;
+import com.github.platform.team.plugin.util.BoundedExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads every key below a prefix into a {@link KeyIndex}. A listing follows its continuation tokens one page after the
+ * other, so the prefix is first listed with a delimiter and each of its subdirectories is then listed recursively on
+ * its own, several at a time.
+ */
+public final class KeyIndexLoader {
+
+    private static final String DELIMITER = "/";
+
+    private final AmazonS3 amazonS3;
+
+    private final int concurrency;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new loader
+     *
+     * @param amazonS3    The client to list with
+     * @param concurrency The maximum number of subdirectories listed at a time
+     * @param executor    The executor listings are requested on
+     */
+    public KeyIndexLoader(AmazonS3 amazonS3, int concurrency, Executor executor) {
+        this.amazonS3 = amazonS3;
+        this.concurrency = concurrency;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads the keys below a prefix
+     *
+     * @param bucketName The bucket to list
+     * @param prefix     The prefix to list, the keys in the index are relative to it
+     * @return The index of the keys
+     * @throws AmazonClientException if a listing fails
+     */
+    public KeyIndex load(String bucketName, String prefix) {
+        KeyIndex keyIndex = new KeyIndex();
+        List<String> directories = new ArrayList<>();
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withDelimiter(DELIMITER);
+        ListObjectsV2Pager pages = new ListObjectsV2Pager(this.amazonS3, listObjectsRequest, this.executor);
+        while (pages.hasNext()) {
+            ListObjectsV2Result page = pages.next();
+            add(keyIndex, prefix, page);
+            directories.addAll(page.getCommonPrefixes());
+        }
+
+        Executor listExecutor = new BoundedExecutor(this.executor, this.concurrency);
+        List<CompletableFuture<Void>> listings = new ArrayList<>();
+        for (String directory : directories) {
+            listings.add(CompletableFuture.runAsync(() -> list(bucketName, prefix, directory, keyIndex),
+                    listExecutor));
+        }
+
+        RuntimeException failure = null;
+        for (CompletableFuture<Void> listing : listings) {
+            try {
+                listing.join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = unwrap(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return keyIndex;
+    }
+
+    private void list(String bucketName, String prefix, String directory, KeyIndex keyIndex) {
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(directory);
+        ListObjectsV2Pager pages = new ListObjectsV2Pager(this.amazonS3, listObjectsRequest, this.executor);
+        while (pages.hasNext()) {
+            add(keyIndex, prefix, pages.next());
+        }
+    }
+
+    private static void add(KeyIndex keyIndex, String prefix, ListObjectsV2Result page) {
+        for (S3ObjectSummary summary : page.getObjectSummaries()) {
+            keyIndex.add(summary.getKey().substring(prefix.length()));
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new AmazonClientException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Iterates over the pages of a ListObjectsV2 listing, following the continuation tokens. While a page is processed
+ * the next one is already requested in the background. Pages are only requested as the iteration advances, so a
+ * caller that stops early costs at most one page more than it used.
+ * <p>
+ * Failed requests surface as {@link AmazonClientException}s from {@link #next()}.
+ */
+public final class ListObjectsV2Pager implements Iterator<ListObjectsV2Result> {
+
+    private final AmazonS3 amazonS3;
+
+    private final ListObjectsV2Request listObjectsRequest;
+
+    private final Executor executor;
+
+    private CompletableFuture<ListObjectsV2Result> nextPage;
+
+    private boolean started;
+
+    /**
+     * Creates a new pager
+     *
+     * @param amazonS3           The client to list with
+     * @param listObjectsRequest The request for the first page, it is not modified
+     * @param executor           The executor the following pages are requested on
+     */
+    public ListObjectsV2Pager(AmazonS3 amazonS3, ListObjectsV2Request listObjectsRequest, Executor executor) {
+        this.amazonS3 = amazonS3;
+        this.listObjectsRequest = listObjectsRequest;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !this.started || this.nextPage != null;
+    }
+
+    @Override
+    public ListObjectsV2Result next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        ListObjectsV2Result page;
+        if (this.started) {
+            page = await(this.nextPage);
+        } else {
+            this.started = true;
+            page = this.amazonS3.listObjectsV2(this.listObjectsRequest);
+        }
+
+        if (page.isTruncated() && page.getNextContinuationToken() != null) {
+            ListObjectsV2Request request = nextRequest(page.getNextContinuationToken());
+            this.nextPage = CompletableFuture.supplyAsync(() -> this.amazonS3.listObjectsV2(request), this.executor);
+        } else {
+            this.nextPage = null;
+        }
+        return page;
+    }
+
+    private ListObjectsV2Request nextRequest(String continuationToken) {
+        return new ListObjectsV2Request()
+                .withBucketName(this.listObjectsRequest.getBucketName())
+                .withPrefix(this.listObjectsRequest.getPrefix())
+                .withDelimiter(this.listObjectsRequest.getDelimiter())
+                .withMaxKeys(this.listObjectsRequest.getMaxKeys())
+                .withContinuationToken(continuationToken);
+    }
+
+    private ListObjectsV2Result await(CompletableFuture<ListObjectsV2Result> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            this.nextPage = null;
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AmazonClientException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.DigestingTransferProgress;
+import com.github.platform.team.plugin.data.transfer.FileRegionInputStream;
+import com.github.platform.team.plugin.util.BoundedExecutor;
+import com.github.platform.team.plugin.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Uploads a file as a multipart upload, sending several parts at a time. Each part is read straight from the file at
+ * its offset. If any part fails the remaining parts are skipped and the upload is aborted, so that no orphaned parts
+ * are left behind in the bucket. Progress is reported on the calling thread and in file order, as each leading part
+ * completes, because Maven computes the checksums of deployed artifacts from the reported bytes.
+ * <p>
+ * The reported bytes are a second read of the file, see {@link IOUtils#report}, not the bytes sent: parts complete
+ * out of order and the SDK sends a part again on a retry, so handing the sent bytes over in order would hold up to
+ * {@code concurrency} parts in memory. The second read costs one more pass over the file, which has just been read
+ * and is usually served from the page cache, and no network transfer.
+ */
+public final class MultipartUploader {
+
+    private static final int MAXIMUM_PARTS = 10000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String MD5 = "MD5";
+
+    private final AmazonS3 amazonS3;
+
+    private final long partSize;
+
+    private final int concurrency;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new uploader
+     *
+     * @param amazonS3    The client to upload with
+     * @param partSize    The size of each part but the last in bytes, raised if the file would need more than 10000
+     *                    parts
+     * @param concurrency The maximum number of parts sent at a time
+     * @param executor    The executor parts are sent on
+     */
+    public MultipartUploader(AmazonS3 amazonS3, long partSize, int concurrency, Executor executor) {
+        this.amazonS3 = amazonS3;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+    }
+
+    /**
+     * Uploads a file
+     *
+     * @param bucketName       The bucket to upload to
+     * @param key              The key to upload to
+     * @param source           The file to upload
+     * @param objectMetadata   The metadata of the object
+     * @param transferProgress Notified with the content of the file in order as parts complete
+     * @throws IOException if the file cannot be read
+     */
+    public void upload(String bucketName, String key, File source, ObjectMetadata objectMetadata,
+                       TransferProgress transferProgress) throws IOException {
+        long length = source.length();
+        long size = getPartSize(this.partSize, length);
+
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            String uploadId = this.amazonS3.initiateMultipartUpload(
+                    new InitiateMultipartUploadRequest(bucketName, key, objectMetadata)).getUploadId();
+
+            Executor partExecutor = new BoundedExecutor(this.executor, this.concurrency);
+            AtomicBoolean failed = new AtomicBoolean();
+            // parts stored with KMS or customer keys do not have the MD5 of their content as ETag
+            boolean verify = objectMetadata.getSSEAlgorithm() == null
+                    || ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION.equals(objectMetadata.getSSEAlgorithm());
+
+            List<CompletableFuture<PartETag>> parts = new ArrayList<>();
+            for (long offset = 0; offset < length; offset += size) {
+                // the digest of a part is only compared with its ETag, the caller is notified in file order below
+                DigestingTransferProgress partDigest = new DigestingTransferProgress((buffer, count) -> {
+                }, MD5);
+                UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(parts.size() + 1)
+                        .withPartSize(Math.min(size, length - offset))
+                        .withInputStream(new FileRegionInputStream(channel, offset, Math.min(size, length - offset),
+                                partDigest));
+                parts.add(CompletableFuture.supplyAsync(
+                        () -> uploadPart(uploadPartRequest, verify ? partDigest : null, failed), partExecutor));
+            }
+
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                List<PartETag> partETags = new ArrayList<>();
+                for (int i = 0; i < parts.size(); i++) {
+                    partETags.add(parts.get(i).get());
+                    long start = i * size;
+                    IOUtils.report(channel, start, Math.min(start + size, length), buffer, transferProgress);
+                }
+
+                this.amazonS3.completeMultipartUpload(
+                        new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                abort(bucketName, key, uploadId, parts);
+                throw new InterruptedIOException(String.format("Interrupted while uploading '%s'", key));
+            } catch (ExecutionException | RuntimeException e) {
+                failed.set(true);
+                abort(bucketName, key, uploadId, parts);
+                throw unwrap(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the parts a file is uploaded in
+     *
+     * @param partSize The configured part size in bytes
+     * @param length   The length of the file in bytes
+     * @return The configured part size, or a larger one if the file would need more than 10000 parts
+     */
+    public static long getPartSize(long partSize, long length) {
+        return Math.max(partSize, (length + MAXIMUM_PARTS - 1) / MAXIMUM_PARTS);
+    }
+
+    private PartETag uploadPart(UploadPartRequest uploadPartRequest, DigestingTransferProgress partDigest,
+                                AtomicBoolean failed) {
+        if (failed.get()) {
+            throw new CompletionException(new IOException("Upload was aborted"));
+        }
+        try {
+            PartETag partETag = this.amazonS3.uploadPart(uploadPartRequest).getPartETag();
+            if (partDigest != null && partETag.getETag() != null) {
+                String digest = partDigest.getDigest(MD5);
+                if (!digest.equalsIgnoreCase(partETag.getETag())) {
+                    // failing the part aborts the upload before a corrupt object is assembled
+                    throw new CompletionException(new IOException(String.format(
+                            "Part %d of '%s' was stored with ETag '%s' but has MD5 '%s'",
+                            uploadPartRequest.getPartNumber(), uploadPartRequest.getKey(), partETag.getETag(),
+                            digest)));
+                }
+            }
+            return partETag;
+        } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private void abort(String bucketName, String key, String uploadId, List<CompletableFuture<PartETag>> parts) {
+        // parts still in flight would otherwise be stored after the abort
+        for (CompletableFuture<PartETag> part : parts) {
+            try {
+                part.join();
+            } catch (RuntimeException e) {
+                // already reported through the first failure
+            }
+        }
+        try {
+            this.amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (AmazonClientException e) {
+            // the original failure is more useful to the caller
+        }
+    }
+
+    private static RuntimeException unwrap(Exception e) {
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new AmazonClientException(cause.getMessage(), cause);
+    }
+}
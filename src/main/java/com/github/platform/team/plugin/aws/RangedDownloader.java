@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.DigestingTransferProgress;
+import com.github.platform.team.plugin.util.BoundedExecutor;
+import com.github.platform.team.plugin.util.IOUtils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Downloads an object as several byte ranges fetched at a time, each written straight into the destination file at its
+ * offset. The range requests are pinned to the ETag of the initial response so that an object overwritten during the
+ * download fails the transfer instead of producing a mix of two versions.
+ * <p>
+ * Progress is reported on the calling thread and in file order, as each leading range completes, because Maven
+ * computes the checksums of downloaded artifacts from the reported bytes. Ranges complete out of order, so each one is
+ * read back from the file once it leads, see {@link IOUtils#report}.
+ */
+public final class RangedDownloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String MD5 = "MD5";
+
+    private final AmazonS3 amazonS3;
+
+    private final long partSize;
+
+    private final int concurrency;
+
+    private final Executor executor;
+
+    /**
+     * Creates a new downloader
+     *
+     * @param amazonS3    The client to download with
+     * @param partSize    The size of each range but the last in bytes
+     * @param concurrency The maximum number of ranges fetched at a time
+     * @param executor    The executor ranges are fetched on
+     */
+    public RangedDownloader(AmazonS3 amazonS3, long partSize, int concurrency, Executor executor) {
+        this.amazonS3 = amazonS3;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.executor = executor;
+    }
+
+    /**
+     * Downloads an object. The content of {@code s3Object} is used for the first range and aborted after it, the
+     * remaining ranges are requested separately.
+     *
+     * @param bucketName       The bucket to download from
+     * @param key              The key to download
+     * @param s3Object         The response of a plain GET of the object
+     * @param destination      The file to write to
+     * @param transferProgress Notified with the content of the file in order
+     * @throws IOException if the file cannot be written, the object changes during the download or its content does
+     *                     not match its ETag
+     */
+    public void download(String bucketName, String key, S3Object s3Object, File destination,
+                         TransferProgress transferProgress) throws IOException {
+        ObjectMetadata objectMetadata = s3Object.getObjectMetadata();
+        long length = objectMetadata.getContentLength();
+        String eTag = objectMetadata.getETag();
+        DigestingTransferProgress digestingProgress = ETagCalculator.isContentDigest(eTag,
+                objectMetadata.getSSEAlgorithm()) ? new DigestingTransferProgress(transferProgress, MD5) : null;
+        TransferProgress reportProgress = digestingProgress == null ? transferProgress : digestingProgress;
+
+        try (RandomAccessFile file = new RandomAccessFile(destination, "rw")) {
+            file.setLength(length);
+            FileChannel channel = file.getChannel();
+
+            Executor partExecutor = new BoundedExecutor(this.executor, this.concurrency);
+            AtomicBoolean failed = new AtomicBoolean();
+
+            List<CompletableFuture<Void>> parts = new ArrayList<>();
+            long firstEnd = Math.min(this.partSize, length);
+            parts.add(CompletableFuture.runAsync(
+                    () -> readFirstPart(s3Object.getObjectContent(), channel, firstEnd, firstEnd < length, failed),
+                    partExecutor));
+            for (long offset = firstEnd; offset < length; offset += this.partSize) {
+                long start = offset;
+                long end = Math.min(offset + this.partSize, length);
+                parts.add(CompletableFuture.runAsync(
+                        () -> readPart(bucketName, key, eTag, channel, start, end, failed), partExecutor));
+            }
+
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                for (int i = 0; i < parts.size(); i++) {
+                    parts.get(i).get();
+                    long start = i * this.partSize;
+                    IOUtils.report(channel, start, Math.min(start + this.partSize, length), buffer, reportProgress);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+                awaitParts(parts);
+                throw new InterruptedIOException(String.format("Interrupted while downloading '%s'", key));
+            } catch (ExecutionException | RuntimeException e) {
+                failed.set(true);
+                awaitParts(parts);
+                throw unwrap(e);
+            }
+        }
+
+        if (digestingProgress != null && !digestingProgress.getDigest(MD5).equalsIgnoreCase(eTag)) {
+            // a corrupt file must not be mistaken for a completed download
+            destination.delete();
+            throw new IOException(String.format("Content of '%s' does not match its ETag '%s'", key, eTag));
+        }
+    }
+
+    private void readFirstPart(S3ObjectInputStream in, FileChannel channel, long end, boolean partial,
+                               AtomicBoolean failed) {
+        try {
+            copy(in, channel, 0, end, failed);
+        } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+        } finally {
+            if (partial) {
+                // the rest of the object is fetched by the other ranges, draining it would only waste the connection
+                in.abort();
+            } else {
+                IOUtils.closeQuietly(in);
+            }
+        }
+    }
+
+    private void readPart(String bucketName, String key, String eTag, FileChannel channel, long start, long end,
+                          AtomicBoolean failed) {
+        if (failed.get()) {
+            throw new CompletionException(new IOException("Download was aborted"));
+        }
+
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, key).withRange(start, end - 1);
+        if (eTag != null) {
+            getObjectRequest.withMatchingETagConstraint(eTag);
+        }
+
+        try {
+            S3Object part = this.amazonS3.getObject(getObjectRequest);
+            if (part == null) {
+                throw new IOException(String.format("'%s' changed during the download", key));
+            }
+            S3ObjectInputStream in = part.getObjectContent();
+            try {
+                copy(in, channel, start, end, failed);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private static void copy(S3ObjectInputStream in, FileChannel channel, long start, long end, AtomicBoolean failed)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = start;
+        while (position < end) {
+            if (failed.get()) {
+                throw new IOException("Download was aborted");
+            }
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position));
+            if (read == -1) {
+                throw new EOFException(String.format("Expected %d more bytes", end - position));
+            }
+            ByteBuffer source = ByteBuffer.wrap(buffer, 0, read);
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+        }
+    }
+
+    private static void awaitParts(List<CompletableFuture<Void>> parts) {
+        // parts still in flight would otherwise write to the file after it has been closed
+        for (CompletableFuture<Void> part : parts) {
+            try {
+                part.join();
+            } catch (RuntimeException e) {
+                // already reported through the first failure
+            }
+        }
+    }
+
+    private static IOException unwrap(Exception e) {
+        Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            return ((UncheckedIOException) cause).getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new IOException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+/**
+ * Bounds the retries of the requests sharing it. Every retry withdraws from the budget and every successful request
+ * pays a little back, so that retries stop once most requests fail rather than multiplying the load on a service that
+ * is already struggling.
+ */
+public final class RetryBudget {
+
+    private final int capacity;
+
+    private int balance;
+
+    /**
+     * Creates a new budget, initially full
+     *
+     * @param capacity The largest balance of the budget
+     */
+    public RetryBudget(int capacity) {
+        this.capacity = capacity;
+        this.balance = capacity;
+    }
+
+    /**
+     * Withdraws the cost of a retry if the budget still covers it
+     *
+     * @param cost The cost of the retry
+     * @return {@code true} if the cost was withdrawn and the retry may be sent
+     */
+    public synchronized boolean tryWithdraw(int cost) {
+        if (this.balance < cost) {
+            return false;
+        }
+        this.balance -= cost;
+        return true;
+    }
+
+    /**
+     * Pays into the budget, up to its capacity
+     *
+     * @param amount The amount to pay in
+     */
+    public synchronized void deposit(int amount) {
+        this.balance = Math.min(this.capacity, this.balance + amount);
+    }
+
+    public synchronized int getBalance() {
+        return this.balance;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.util.Base64;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.util.BufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Uploads a small file, such as a checksum, signature, POM or {@code maven-metadata.xml}, from memory. The file is read
+ * into a pooled buffer in one go and sent with its {@code Content-MD5}, so the client neither wraps the body in a
+ * digesting stream nor buffers it for retries, and S3 rejects a body that arrives corrupted.
+ * <p>
+ * The content is reported to the {@link TransferProgress} once the object has been stored.
+ */
+public final class SmallObjectUploader {
+
+    private static final String MD5 = "MD5";
+
+    // some JVMs reserve header words in an array
+    private static final long MAXIMUM_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final AmazonS3 amazonS3;
+
+    /**
+     * Creates a new uploader
+     *
+     * @param amazonS3 The client to upload with
+     */
+    public SmallObjectUploader(AmazonS3 amazonS3) {
+        this.amazonS3 = amazonS3;
+    }
+
+    /**
+     * Uploads a file
+     *
+     * @param bucketName       The bucket to upload to
+     * @param key              The key to upload to
+     * @param source           The file to upload, it must fit into an array
+     * @param objectMetadata   The metadata of the object, the content length and MD5 are set from the file
+     * @param transferProgress Notified with the content of the file once it has been stored
+     * @return The result of the upload
+     * @throws IOException if the file cannot be read or is too large to be uploaded from memory
+     */
+    public PutObjectResult upload(String bucketName, String key, File source, ObjectMetadata objectMetadata,
+                                  TransferProgress transferProgress) throws IOException {
+        byte[] buffer = null;
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAXIMUM_LENGTH) {
+                throw new IOException(String.format("'%s' is too large to be uploaded from memory: %d bytes", source,
+                        size));
+            }
+            int length = (int) size;
+            buffer = BufferPool.acquire(length);
+            read(channel, buffer, length);
+
+            MessageDigest digest = newDigest();
+            digest.update(buffer, 0, length);
+            objectMetadata.setContentLength(length);
+            objectMetadata.setContentMD5(Base64.encodeAsString(digest.digest()));
+
+            // a byte array stream can be reset for a retry without copying the content
+            PutObjectResult putObjectResult = this.amazonS3.putObject(new PutObjectRequest(bucketName, key,
+                    new ByteArrayInputStream(buffer, 0, length), objectMetadata));
+            transferProgress.notify(buffer, length);
+            return putObjectResult;
+        } finally {
+            if (buffer != null) {
+                BufferPool.release(buffer);
+            }
+        }
+    }
+
+    private static void read(FileChannel channel, byte[] buffer, int length) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target) == -1) {
+                throw new EOFException(String.format("Expected %d more bytes", target.remaining()));
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(MD5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries and paces the requests to a bucket on behalf of every client in the JVM, so that concurrent wagons back off
+ * together when S3 answers with {@code 503 SlowDown} instead of each retrying on its own. Reads (GET and HEAD,
+ * including listings) and writes are paced by separate {@link AdaptiveRateLimiter}s, as S3 limits them separately.
+ * Retries wait a random delay of up to an exponentially growing bound and are drawn from a {@link RetryBudget}.
+ */
+public final class ThrottleController {
+
+    private static final Map<String, ThrottleController> CONTROLLERS = new ConcurrentHashMap<>();
+
+    private static final int MAXIMUM_RETRIES = 6;
+
+    private static final double MINIMUM_RATE = 1;
+
+    private static final int RETRY_BUDGET = 500;
+
+    private static final int RETRY_COST = 5;
+
+    private static final long BASE_DELAY = 100;
+
+    private static final long THROTTLED_BASE_DELAY = 500;
+
+    private static final long MAXIMUM_DELAY = TimeUnit.SECONDS.toMillis(20);
+
+    private static final int SLOW_DOWN = 503;
+
+    private static final HandlerContextKey<Long> SENT_AT = new HandlerContextKey<>("SentAt");
+
+    private final AdaptiveRateLimiter reads;
+
+    private final AdaptiveRateLimiter writes;
+
+    private final RetryBudget retryBudget;
+
+    ThrottleController(AdaptiveRateLimiter reads, AdaptiveRateLimiter writes, RetryBudget retryBudget) {
+        this.reads = reads;
+        this.writes = writes;
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * Returns the controller shared by all clients of a bucket
+     *
+     * @param bucketName The bucket
+     * @return The shared controller
+     */
+    public static ThrottleController forBucket(String bucketName) {
+        return CONTROLLERS.computeIfAbsent(bucketName, name -> new ThrottleController(
+                new AdaptiveRateLimiter(MINIMUM_RATE), new AdaptiveRateLimiter(MINIMUM_RATE),
+                new RetryBudget(RETRY_BUDGET)));
+    }
+
+    /**
+     * Returns the retry policy for clients of the bucket. It retries what the default policy of the SDK retries, as
+     * long as the retry budget allows.
+     *
+     * @return The retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return new RetryPolicy(this::shouldRetry, ThrottleController::getDelay, MAXIMUM_RETRIES, true);
+    }
+
+    /**
+     * Returns the handler that paces the requests of clients of the bucket
+     *
+     * @return The request handler
+     */
+    public RequestHandler2 getRequestHandler() {
+        return new ThrottlingRequestHandler();
+    }
+
+    /**
+     * Returns whether a failure asks the client to slow down
+     *
+     * @param e The failure
+     * @return {@code true} for throttling error codes and {@code 503} responses
+     */
+    public static boolean isThrottling(Exception e) {
+        if (!(e instanceof SdkBaseException)) {
+            return false;
+        }
+        return RetryUtils.isThrottlingException((SdkBaseException) e)
+                || e instanceof AmazonServiceException && ((AmazonServiceException) e).getStatusCode() == SLOW_DOWN;
+    }
+
+    private boolean shouldRetry(AmazonWebServiceRequest request, AmazonClientException e, int retriesAttempted) {
+        return PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION.shouldRetry(request, e, retriesAttempted)
+                && this.retryBudget.tryWithdraw(RETRY_COST);
+    }
+
+    private static long getDelay(AmazonWebServiceRequest request, AmazonClientException e, int retriesAttempted) {
+        long base = isThrottling(e) ? THROTTLED_BASE_DELAY : BASE_DELAY;
+        long bound = Math.min(MAXIMUM_DELAY, base << Math.min(retriesAttempted, 16));
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    private AdaptiveRateLimiter getRateLimiter(Request<?> request) {
+        HttpMethodName method = request.getHttpMethod();
+        return method == HttpMethodName.GET || method == HttpMethodName.HEAD ? this.reads : this.writes;
+    }
+
+    private final class ThrottlingRequestHandler extends RequestHandler2 {
+
+        @Override
+        public void beforeAttempt(HandlerBeforeAttemptContext context) {
+            Request<?> request = context.getRequest();
+            try {
+                request.addHandlerContext(SENT_AT, getRateLimiter(request).acquire());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException(e);
+            }
+        }
+
+        @Override
+        public void afterAttempt(HandlerAfterAttemptContext context) {
+            Request<?> request = context.getRequest();
+            Exception e = context.getException();
+            if (e == null) {
+                getRateLimiter(request).onSuccess();
+            } else if (isThrottling(e) && request.getHandlerContext(SENT_AT) != null) {
+                getRateLimiter(request).onThrottle(request.getHandlerContext(SENT_AT));
+            }
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+            ThrottleController.this.retryBudget.deposit(1);
+        }
+    }
+}
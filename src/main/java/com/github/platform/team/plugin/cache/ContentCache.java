@@ -0,0 +1,364 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.util.IOUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A directory of downloaded objects that several Maven processes on the same host can share. Each object is stored
+ * under a directory derived from its bucket and key, in a file named after its ETag, so a cached copy can be validated
+ * with a conditional GET. Files are written under a temporary name and renamed into place, so readers never see a
+ * partial file. The cache is kept within a size budget by evicting the least recently used objects while holding an
+ * exclusive lock on a file in the cache directory.
+ * <p>
+ * The lock file also holds the total size of the cached objects, so that storing an object only touches its own
+ * directory. The entries are listed only when the total passes the budget, and the total is recomputed from that
+ * listing, which corrects it after entries were removed by hand.
+ */
+public final class ContentCache {
+
+    private static final String LOCK_FILE = ".lock";
+
+    private static final String HIDDEN_PREFIX = ".";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final long UNKNOWN_SIZE = -1;
+
+    private final Path directory;
+
+    private final long maximumSize;
+
+    /**
+     * Creates a cache
+     *
+     * @param directory   The directory the cache is stored in, created if needed
+     * @param maximumSize The total size of the cached objects in bytes above which objects are evicted
+     */
+    public ContentCache(Path directory, long maximumSize) {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the ETag of the cached copy of an object
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @return The ETag of the most recently stored copy or {@code null} if the object is not cached
+     * @throws IOException if the cache cannot be read
+     */
+    public String getETag(String bucketName, String key) throws IOException {
+        Path entryDirectory = getEntryDirectory(bucketName, key);
+        if (!Files.isDirectory(entryDirectory)) {
+            return null;
+        }
+
+        Path newest = null;
+        FileTime newestTime = null;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(entryDirectory, ContentCache::isEntry)) {
+            for (Path entry : entries) {
+                FileTime time = Files.getLastModifiedTime(entry);
+                if (newestTime == null || time.compareTo(newestTime) > 0) {
+                    newest = entry;
+                    newestTime = time;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // evicted by another process
+            return null;
+        }
+        return newest == null ? null : decode(newest.getFileName().toString());
+    }
+
+    /**
+     * Copies a cached object to a file
+     *
+     * @param bucketName       The bucket of the object
+     * @param key              The key of the object
+     * @param eTag             The ETag of the object
+     * @param destination      The file to write to
+     * @param transferProgress Notified with the content of the object
+     * @return {@code true} if the object was copied, {@code false} if it is no longer cached, in which case nothing
+     * was written or reported
+     * @throws IOException if the object cannot be read or the file cannot be written
+     */
+    public boolean retrieve(String bucketName, String key, String eTag, File destination,
+                            TransferProgress transferProgress) throws IOException {
+        Path entry = getEntryDirectory(bucketName, key).resolve(encode(eTag));
+
+        InputStream in;
+        try {
+            in = Files.newInputStream(entry);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        try (InputStream source = in; FileOutputStream out = new FileOutputStream(destination)) {
+            IOUtils.copy(source, out.getChannel(), transferProgress);
+        }
+
+        try {
+            // the modification time orders entries for eviction
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // evicted in the meantime, the copy is still valid
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of a downloaded object, replacing copies with another ETag, and evicts the least recently used
+     * objects if the cache has outgrown its budget
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @param eTag       The ETag of the object
+     * @param source     The downloaded object
+     * @throws IOException if the object cannot be stored
+     */
+    public void store(String bucketName, String key, String eTag, File source) throws IOException {
+        if (source.length() > this.maximumSize) {
+            return;
+        }
+
+        Path entryDirectory = getEntryDirectory(bucketName, key);
+        String name = encode(eTag);
+        Files.createDirectories(this.directory);
+
+        // the copy is made outside the lock, the entry directory is created and filled under it so that an eviction
+        // cannot remove the directory in between
+        Path temporaryFile = Files.createTempFile(this.directory, HIDDEN_PREFIX, TEMPORARY_SUFFIX);
+        try {
+            Files.copy(source.toPath(), temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            long entrySize = Files.size(temporaryFile);
+            withLock(size -> {
+                Files.createDirectories(entryDirectory);
+                long replacedSize = removeStaleEntries(entryDirectory, name);
+                Files.move(temporaryFile, entryDirectory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                return evict(size - replacedSize + entrySize);
+            });
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    long size() throws IOException {
+        long size = 0;
+        for (Path entry : listEntries()) {
+            size += Files.size(entry);
+        }
+        return size;
+    }
+
+    /**
+     * Removes the entries of an object but the current one, which is about to be replaced
+     *
+     * @return The total size of the entries of the object, the current one included
+     */
+    private static long removeStaleEntries(Path entryDirectory, String current) throws IOException {
+        long size = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(entryDirectory, ContentCache::isEntry)) {
+            for (Path entry : entries) {
+                try {
+                    size += Files.size(entry);
+                    if (!entry.getFileName().toString().equals(current)) {
+                        Files.delete(entry);
+                    }
+                } catch (NoSuchFileException e) {
+                    // removed by hand
+                }
+            }
+        }
+        return size;
+    }
+
+    private long evict(long trackedSize) throws IOException {
+        if (trackedSize <= this.maximumSize) {
+            return trackedSize;
+        }
+
+        List<CachedEntry> entries = new ArrayList<>();
+        long size = 0;
+        for (Path entry : listEntries()) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                entries.add(new CachedEntry(entry, attributes.size(), attributes.lastModifiedTime()));
+                size += attributes.size();
+            } catch (NoSuchFileException e) {
+                // removed by hand
+            }
+        }
+        if (size <= this.maximumSize) {
+            return size;
+        }
+
+        entries.sort(Comparator.comparing(entry -> entry.lastModified));
+        for (CachedEntry entry : entries) {
+            if (size <= this.maximumSize) {
+                break;
+            }
+            Files.deleteIfExists(entry.path);
+            size -= entry.size;
+            try {
+                Files.deleteIfExists(entry.path.getParent());
+            } catch (DirectoryNotEmptyException e) {
+                // the object has another entry
+            }
+        }
+        return size;
+    }
+
+    private List<Path> listEntries() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        if (!Files.isDirectory(this.directory)) {
+            return entries;
+        }
+        try (DirectoryStream<Path> entryDirectories = Files.newDirectoryStream(this.directory, Files::isDirectory)) {
+            for (Path entryDirectory : entryDirectories) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(entryDirectory, ContentCache::isEntry)) {
+                    files.forEach(entries::add);
+                } catch (NoSuchFileException e) {
+                    // evicted by another process
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void withLock(LockedAction action) throws IOException {
+        // file locks are held by the JVM, threads of the same JVM have to be kept apart separately
+        synchronized (ContentCache.class) {
+            try (FileChannel channel = FileChannel.open(this.directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE); FileLock ignored = channel.lock()) {
+                long size = readSize(channel);
+                if (size == UNKNOWN_SIZE) {
+                    // a new cache, or one written before the size was tracked
+                    size = size();
+                }
+                writeSize(channel, action.run(size));
+            }
+        }
+    }
+
+    private static long readSize(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) == -1) {
+                return UNKNOWN_SIZE;
+            }
+        }
+        buffer.flip();
+        return buffer.getLong();
+    }
+
+    private static void writeSize(FileChannel channel, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        buffer.putLong(size).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    private Path getEntryDirectory(String bucketName, String key) {
+        return this.directory.resolve(hash(bucketName + "/" + key));
+    }
+
+    private static boolean isEntry(Path path) {
+        return !path.getFileName().toString().startsWith(HIDDEN_PREFIX) && Files.isRegularFile(path);
+    }
+
+    private static String hash(String value) {
+        try {
+            return BinaryUtils.toHex(MessageDigest.getInstance("SHA-256").digest(
+                    value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String eTag) {
+        try {
+            return URLEncoder.encode(eTag, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String name) {
+        try {
+            return URLDecoder.decode(name, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface LockedAction {
+
+        /**
+         * Runs while the lock is held
+         *
+         * @param size The total size of the cached objects
+         * @return The total size of the cached objects afterwards
+         */
+        long run(long size) throws IOException;
+    }
+
+    private static final class CachedEntry {
+
+        private final Path path;
+
+        private final long size;
+
+        private final FileTime lastModified;
+
+        private CachedEntry(Path path, long size, FileTime lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
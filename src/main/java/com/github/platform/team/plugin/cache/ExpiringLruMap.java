@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, thread safe map whose entries expire after a time to live given at lookup, so that callers with
+ * different settings can share it. The least recently used entries are evicted once the map is full.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+final class ExpiringLruMap<K, V> {
+
+    private final LongSupplier clock;
+
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * Creates a new map
+     *
+     * @param maximumSize The number of entries kept at most
+     * @param clock       The current time in milliseconds
+     */
+    ExpiringLruMap(int maximumSize, LongSupplier clock) {
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up a value and marks it as recently used
+     *
+     * @param key        The key of the value
+     * @param timeToLive The age in milliseconds up to which an entry is used
+     * @return The value, or {@code null} if there is none or it is older than {@code timeToLive}
+     */
+    synchronized V get(K key, long timeToLive) {
+        Entry<V> entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (this.clock.getAsLong() - entry.created >= timeToLive) {
+            this.entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, which ages from now on
+     *
+     * @param key   The key of the value
+     * @param value The value
+     */
+    synchronized void put(K key, V value) {
+        this.entries.put(key, new Entry<>(value, this.clock.getAsLong()));
+    }
+
+    /**
+     * Removes a value
+     *
+     * @param key The key of the value
+     */
+    synchronized void remove(K key) {
+        this.entries.remove(key);
+    }
+
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long created;
+
+        private Entry(V value, long created) {
+            this.value = value;
+            this.created = created;
+        }
+    }
+}
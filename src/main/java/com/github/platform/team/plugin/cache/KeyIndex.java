@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import com.github.platform.team.plugin.util.S3Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the keys below a prefix as a trie of their {@code /} separated path segments, so that the contents of any
+ * directory can be listed without asking S3. Keys sharing a directory share its node, and segment names that occur in
+ * several places, such as version numbers and {@code maven-metadata.xml}, are stored once.
+ * <p>
+ * Listings have the form of a delimited S3 listing: subdirectories end with a {@code /}, files do not, and a directory
+ * marker shows up as an empty name. Subdirectories come before files, each in the order S3 lists them.
+ */
+public final class KeyIndex {
+
+    private static final char DELIMITER = '/';
+
+    private final Map<String, String> segments = new HashMap<>();
+
+    private final Node root = new Node();
+
+    private int size;
+
+    /**
+     * Adds a key. A key ending with a {@code /} is taken to be a directory marker.
+     *
+     * @param key The key relative to the prefix of the index
+     */
+    public synchronized void add(String key) {
+        Node node = this.root;
+        int start = 0;
+        int end = key.indexOf(DELIMITER);
+        while (end != -1) {
+            node = node.child(segment(key.substring(start, end)));
+            start = end + 1;
+            end = key.indexOf(DELIMITER, start);
+        }
+
+        if (start == key.length()) {
+            if (!node.marker) {
+                node.marker = true;
+                this.size++;
+            }
+        } else {
+            Node file = node.child(segment(key.substring(start)));
+            if (!file.file) {
+                file.file = true;
+                this.size++;
+            }
+        }
+    }
+
+    /**
+     * Lists the contents of a directory
+     *
+     * @param directory The directory relative to the prefix of the index, a missing trailing {@code /} is added
+     * @return The names of the files and subdirectories in the directory, empty if there are none
+     */
+    public synchronized List<String> list(String directory) {
+        Node node = this.root;
+        int start = 0;
+        while (node != null && start < directory.length()) {
+            int end = directory.indexOf(DELIMITER, start);
+            if (end == -1) {
+                end = directory.length();
+            }
+            node = node.children == null ? null : node.children.get(directory.substring(start, end));
+            start = end + 1;
+        }
+
+        List<String> names = new ArrayList<>();
+        if (node == null) {
+            return names;
+        }
+
+        List<String> files = new ArrayList<>();
+        if (node.marker) {
+            files.add("");
+        }
+        Map<String, Node> children = node.children == null ? Collections.emptyMap() : node.children;
+        for (Map.Entry<String, Node> child : children.entrySet()) {
+            if (child.getValue().isDirectory()) {
+                names.add(child.getKey() + DELIMITER);
+            }
+            if (child.getValue().file) {
+                files.add(child.getKey());
+            }
+        }
+        // the delimiter sorts before some characters, "a-b/" is listed before "a/"
+        names.sort(S3Utils::compareKeys);
+        names.addAll(files);
+        return names;
+    }
+
+    /**
+     * Returns the number of keys in the index
+     *
+     * @return The number of files and directory markers
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    private String segment(String name) {
+        String shared = this.segments.putIfAbsent(name, name);
+        return shared == null ? name : shared;
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children;
+
+        private boolean file;
+
+        private boolean marker;
+
+        private Node child(String name) {
+            if (this.children == null) {
+                this.children = new TreeMap<>(S3Utils::compareKeys);
+            }
+            return this.children.computeIfAbsent(name, n -> new Node());
+        }
+
+        private boolean isDirectory() {
+            return this.marker || this.children != null;
+        }
+    }
+}
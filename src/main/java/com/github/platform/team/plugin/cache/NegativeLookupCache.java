@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers objects that S3 reported as missing, so that a build probing several repositories for the same artifacts
+ * asks each bucket only once. Only real 404 responses belong here: authorization, throttling and network failures say
+ * nothing about whether an object exists. Entries expire after a time to live given at lookup and the least recently
+ * used entries are evicted once the cache is full.
+ */
+public final class NegativeLookupCache {
+
+    /**
+     * The number of entries the shared cache keeps at most
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final String KEY_FORMAT = "%s/%s";
+
+    private static final NegativeLookupCache INSTANCE = new NegativeLookupCache(DEFAULT_MAXIMUM_SIZE,
+            System::currentTimeMillis);
+
+    private final ExpiringLruMap<String, Boolean> misses;
+
+    /**
+     * Creates a new cache
+     *
+     * @param maximumSize The number of entries kept at most
+     */
+    public NegativeLookupCache(int maximumSize) {
+        this(maximumSize, System::currentTimeMillis);
+    }
+
+    NegativeLookupCache(int maximumSize, LongSupplier clock) {
+        this.misses = new ExpiringLruMap<>(maximumSize, clock);
+    }
+
+    /**
+     * Returns the cache shared by all wagons in the JVM
+     *
+     * @return The shared cache
+     */
+    public static NegativeLookupCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns whether an object was recently reported as missing
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @param timeToLive The age in milliseconds up to which a miss is trusted
+     * @return {@code true} if the object was reported as missing within {@code timeToLive}
+     */
+    public boolean isMissing(String bucketName, String key, long timeToLive) {
+        return this.misses.get(String.format(KEY_FORMAT, bucketName, key), timeToLive) != null;
+    }
+
+    /**
+     * Records that S3 reported an object as missing
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     */
+    public void recordMissing(String bucketName, String key) {
+        this.misses.put(String.format(KEY_FORMAT, bucketName, key), Boolean.TRUE);
+    }
+
+    /**
+     * Forgets that an object was missing, for example because it has been written
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     */
+    public void invalidate(String bucketName, String key) {
+        this.misses.remove(String.format(KEY_FORMAT, bucketName, key));
+    }
+
+    int size() {
+        return this.misses.size();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded cache of {@link ResourceMetadata} by bucket and key. Entries expire after a time to live given at lookup,
+ * so that wagons with different settings can share a cache, and the least recently used entries are evicted once the
+ * cache is full.
+ */
+public final class ObjectMetadataCache {
+
+    /**
+     * The number of entries the shared cache keeps at most
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final String KEY_FORMAT = "%s/%s";
+
+    private static final ObjectMetadataCache INSTANCE = new ObjectMetadataCache(DEFAULT_MAXIMUM_SIZE,
+            System::currentTimeMillis);
+
+    private final ExpiringLruMap<String, ResourceMetadata> entries;
+
+    /**
+     * Creates a new cache
+     *
+     * @param maximumSize The number of entries kept at most
+     */
+    public ObjectMetadataCache(int maximumSize) {
+        this(maximumSize, System::currentTimeMillis);
+    }
+
+    ObjectMetadataCache(int maximumSize, LongSupplier clock) {
+        this.entries = new ExpiringLruMap<>(maximumSize, clock);
+    }
+
+    /**
+     * Returns the cache shared by all wagons in the JVM
+     *
+     * @return The shared cache
+     */
+    public static ObjectMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up the metadata of an object
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @param timeToLive The age in milliseconds up to which an entry is used
+     * @return The cached metadata, or {@code null} if there is none or it is older than {@code timeToLive}
+     */
+    public ResourceMetadata get(String bucketName, String key, long timeToLive) {
+        return this.entries.get(String.format(KEY_FORMAT, bucketName, key), timeToLive);
+    }
+
+    /**
+     * Stores the metadata of an object
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @param metadata   The metadata of the object
+     */
+    public void put(String bucketName, String key, ResourceMetadata metadata) {
+        this.entries.put(String.format(KEY_FORMAT, bucketName, key), metadata);
+    }
+
+    /**
+     * Forgets the metadata of an object, for example because it has been written
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     */
+    public void invalidate(String bucketName, String key) {
+        this.entries.remove(String.format(KEY_FORMAT, bucketName, key));
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+}
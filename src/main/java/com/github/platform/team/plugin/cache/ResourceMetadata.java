@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+
+import java.util.Date;
+
+/**
+ * The parts of the metadata of an object that the wagon needs to answer existence and freshness checks
+ */
+public final class ResourceMetadata {
+
+    private final String eTag;
+
+    private final Date lastModified;
+
+    private final long contentLength;
+
+    public ResourceMetadata(String eTag, Date lastModified, long contentLength) {
+        this.eTag = eTag;
+        this.lastModified = lastModified == null ? null : new Date(lastModified.getTime());
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Copies the cached parts of the metadata of an S3 response
+     *
+     * @param objectMetadata The metadata of a GET or HEAD response
+     * @return The metadata to cache
+     */
+    public static ResourceMetadata from(ObjectMetadata objectMetadata) {
+        return new ResourceMetadata(objectMetadata.getETag(), objectMetadata.getLastModified(),
+                objectMetadata.getContentLength());
+    }
+
+    public String getETag() {
+        return this.eTag;
+    }
+
+    public Date getLastModified() {
+        return this.lastModified == null ? null : new Date(this.lastModified.getTime());
+    }
+
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResourceMetadata[eTag=%s, lastModified=%s, contentLength=%d]", this.eTag,
+                this.lastModified, this.contentLength);
+    }
+}
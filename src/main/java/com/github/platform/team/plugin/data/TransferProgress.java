@@ -25,4 +25,22 @@ public interface TransferProgress {
      * @param length The length of the bytes transferred
      */
     void notify(byte[] buffer, int length);
+
+    /**
+     * Notify that transfer progress has occurred for a region of a buffer. Implementations that can pass the region on
+     * should override this, the default copies it to the start of a new buffer when {@code offset} is not zero.
+     *
+     * @param buffer The buffer holding the bytes transferred
+     * @param offset The position of the first byte transferred in the buffer
+     * @param length The length of the bytes transferred
+     */
+    default void notify(byte[] buffer, int offset, int length) {
+        if (offset == 0) {
+            notify(buffer, length);
+        } else {
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, offset, bytes, 0, length);
+            notify(bytes, length);
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.github.platform.team.plugin.data.TransferProgress;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects the bytes reported to a {@link TransferProgress} and passes them on in larger chunks, once a byte threshold
+ * is reached or a time interval has passed since the last chunk. Every byte is still passed on exactly once and in
+ * order, as listeners such as Maven's checksum observer digest the reported bytes, but progress listeners are called
+ * far less often. {@link #flush()} must be called at the end of a transfer to pass on the remaining bytes.
+ * <p>
+ * The interval is only checked when bytes are reported, a stalled transfer does not report what it has collected until
+ * it continues or is flushed. Like the transfers it reports, the progress is not thread-safe.
+ */
+public final class CoalescingTransferProgress implements TransferProgress {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final TransferProgress delegate;
+
+    private final int threshold;
+
+    private final long interval;
+
+    private final LongSupplier clock;
+
+    private byte[] pending = new byte[0];
+
+    private int pendingLength;
+
+    private long flushedAt;
+
+    /**
+     * Creates a new coalescing progress
+     *
+     * @param delegate  Notified with the collected bytes
+     * @param threshold The number of bytes collected before they are passed on, {@code 0} to pass on every
+     *                  notification as it is
+     * @param interval  The time after which collected bytes are passed on even below the threshold
+     * @param timeUnit  The unit of the interval
+     */
+    public CoalescingTransferProgress(TransferProgress delegate, int threshold, long interval, TimeUnit timeUnit) {
+        this(delegate, threshold, timeUnit.toNanos(interval), System::nanoTime);
+    }
+
+    CoalescingTransferProgress(TransferProgress delegate, int threshold, long interval, LongSupplier clock) {
+        this.delegate = delegate;
+        this.threshold = Math.max(0, threshold);
+        this.interval = interval;
+        this.clock = clock;
+        this.flushedAt = clock.getAsLong();
+    }
+
+    @Override
+    public void notify(byte[] buffer, int length) {
+        notify(buffer, 0, length);
+    }
+
+    @Override
+    public void notify(byte[] buffer, int offset, int length) {
+        if (this.threshold == 0) {
+            this.delegate.notify(buffer, offset, length);
+            return;
+        }
+
+        if (this.pendingLength + length > this.threshold) {
+            flush();
+        }
+        if (length >= this.threshold) {
+            // a chunk that is large enough on its own is passed on without copying it
+            this.delegate.notify(buffer, offset, length);
+            this.flushedAt = this.clock.getAsLong();
+            return;
+        }
+
+        if (this.pending.length < this.pendingLength + length) {
+            byte[] grown = new byte[Math.min(this.threshold,
+                    Math.max(this.pendingLength + length, Math.max(INITIAL_CAPACITY, 2 * this.pending.length)))];
+            System.arraycopy(this.pending, 0, grown, 0, this.pendingLength);
+            this.pending = grown;
+        }
+        System.arraycopy(buffer, offset, this.pending, this.pendingLength, length);
+        this.pendingLength += length;
+
+        if (this.pendingLength >= this.threshold || this.clock.getAsLong() - this.flushedAt >= this.interval) {
+            flush();
+        }
+    }
+
+    /**
+     * Passes on the bytes collected so far
+     */
+    public void flush() {
+        if (this.pendingLength > 0) {
+            this.delegate.notify(this.pending, this.pendingLength);
+            this.pendingLength = 0;
+        }
+        this.flushedAt = this.clock.getAsLong();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.data.TransferProgress;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes digests of the bytes reported to a {@link TransferProgress} before passing them on. Every transfer reports
+ * its content exactly once and in order, bytes that are sent again on a retry included, so the digests cover the
+ * transferred content without a pass of their own over the file.
+ */
+public final class DigestingTransferProgress implements TransferProgress {
+
+    private final TransferProgress delegate;
+
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<>();
+
+    /**
+     * Creates a new digesting progress
+     *
+     * @param delegate   Notified with every byte after it has been digested
+     * @param algorithms The digest algorithms to compute, e.g. {@code MD5} or {@code SHA-1}
+     */
+    public DigestingTransferProgress(TransferProgress delegate, String... algorithms) {
+        this.delegate = delegate;
+        for (String algorithm : algorithms) {
+            try {
+                this.digests.put(algorithm, MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException(String.format("Unknown digest algorithm '%s'", algorithm), e);
+            }
+        }
+    }
+
+    @Override
+    public void notify(byte[] buffer, int length) {
+        notify(buffer, 0, length);
+    }
+
+    @Override
+    public void notify(byte[] buffer, int offset, int length) {
+        for (MessageDigest digest : this.digests.values()) {
+            digest.update(buffer, offset, length);
+        }
+        this.delegate.notify(buffer, offset, length);
+    }
+
+    /**
+     * Completes a digest. Bytes reported afterwards start a new digest.
+     *
+     * @param algorithm One of the algorithms the progress was created with
+     * @return The digest of the bytes reported so far, as lower case hex
+     */
+    public String getDigest(String algorithm) {
+        MessageDigest digest = this.digests.get(algorithm);
+        if (digest == null) {
+            throw new IllegalArgumentException(String.format("Digest '%s' is not computed", algorithm));
+        }
+        return BinaryUtils.toHex(digest.digest());
+    }
+}
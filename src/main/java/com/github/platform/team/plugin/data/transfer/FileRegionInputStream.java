@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.github.platform.team.plugin.data.TransferProgress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a region of a file with positional reads, so that several regions of the same {@link FileChannel} can be read
+ * concurrently. The stream supports {@link #mark(int)} and {@link #reset()} for request retries, bytes that are read
+ * again after a reset are not reported to the {@link TransferProgress} a second time. Closing the stream does not
+ * close the channel.
+ */
+public final class FileRegionInputStream extends InputStream {
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    private final TransferProgress transferProgress;
+
+    private final byte[] single = new byte[1];
+
+    private long position;
+
+    private long mark;
+
+    private long notified;
+
+    public FileRegionInputStream(FileChannel channel, long offset, long length, TransferProgress transferProgress) {
+        this.channel = channel;
+        this.end = offset + length;
+        this.transferProgress = transferProgress;
+        this.position = offset;
+        this.mark = offset;
+        this.notified = offset;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int count = read(this.single, 0, 1);
+        return count == -1 ? -1 : this.single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = this.end - this.position;
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int count = this.channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), this.position);
+        if (count == -1) {
+            return -1;
+        }
+        this.position += count;
+
+        if (this.position > this.notified) {
+            int fresh = (int) Math.min(count, this.position - this.notified);
+            this.transferProgress.notify(b, off + count - fresh, fresh);
+            this.notified = this.position;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, this.end - this.position));
+        this.position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, this.end - this.position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        this.mark = this.position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.position = this.mark;
+    }
+}
@@ -21,14 +21,18 @@ import org.apache.maven.wagon.Wagon;
 import org.apache.maven.wagon.events.SessionEvent;
 import org.apache.maven.wagon.events.SessionListener;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+/**
+ * Notifies the {@link SessionListener}s of a wagon. Listeners are kept in a copy-on-write set, so they can be added and
+ * removed while events are fired on other threads, and no events are created while nobody is listening.
+ */
 public final class StandardSessionListenerSupport implements SessionListenerSupport {
 
     private final Wagon wagon;
 
-    private final Set<SessionListener> sessionListeners = new HashSet<>();
+    private final Set<SessionListener> sessionListeners = new CopyOnWriteArraySet<>();
 
     public StandardSessionListenerSupport(Wagon wagon) {
         this.wagon = wagon;
@@ -36,7 +40,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void addSessionListener(SessionListener sessionListener) {
-        this.sessionListeners.add(sessionListener);
+        if (sessionListener != null) {
+            this.sessionListeners.add(sessionListener);
+        }
     }
 
     @Override
@@ -51,6 +57,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionOpening() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_OPENING);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionOpening(event);
@@ -59,6 +68,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionOpened() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_OPENED);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionOpened(event);
@@ -67,6 +79,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionDisconnecting() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_DISCONNECTING);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionDisconnecting(event);
@@ -75,6 +90,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionDisconnected() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_DISCONNECTED);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionDisconnected(event);
@@ -83,6 +101,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionConnectionRefused() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_CONNECTION_REFUSED);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionConnectionRefused(event);
@@ -91,6 +112,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionLoggedIn() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_LOGGED_IN);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionLoggedIn(event);
@@ -99,6 +123,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionLoggedOff() {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, SessionEvent.SESSION_LOGGED_OFF);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionLoggedOff(event);
@@ -107,6 +134,9 @@ public final class StandardSessionListenerSupport implements SessionListenerSupp
 
     @Override
     public void fireSessionError(Exception exception) {
+        if (this.sessionListeners.isEmpty()) {
+            return;
+        }
         SessionEvent event = new SessionEvent(this.wagon, exception);
         for (SessionListener sessionListener : this.sessionListeners) {
             sessionListener.sessionError(event);
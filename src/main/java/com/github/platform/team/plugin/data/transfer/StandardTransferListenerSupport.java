@@ -22,14 +22,27 @@ import org.apache.maven.wagon.events.TransferEvent;
 import org.apache.maven.wagon.events.TransferListener;
 import org.apache.maven.wagon.resource.Resource;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+/**
+ * Notifies the {@link TransferListener}s of a wagon. Listeners are kept in a copy-on-write set, so they can be added
+ * and removed while transfers on other threads notify them. No events are created while nobody is listening, and
+ * each transfer reuses one progress event for all of its progress notifications, as Maven's own wagons do.
+ */
 public final class StandardTransferListenerSupport implements TransferListenerSupport {
 
     private final Wagon wagon;
 
-    private final Set<TransferListener> transferListeners = new HashSet<TransferListener>();
+    private static final int MAXIMUM_PROGRESS_EVENTS = 64;
+
+    private static final TransferEvent[] NO_EVENTS = new TransferEvent[0];
+
+    private final Set<TransferListener> transferListeners = new CopyOnWriteArraySet<>();
+
+    private final Object progressEventsLock = new Object();
+
+    private volatile TransferEvent[] progressEvents = NO_EVENTS;
 
     public StandardTransferListenerSupport(Wagon wagon) {
         this.wagon = wagon;
@@ -54,6 +67,9 @@ public final class StandardTransferListenerSupport implements TransferListenerSu
 
     @Override
     public void fireTransferInitiated(Resource resource, int requestType) {
+        if (this.transferListeners.isEmpty()) {
+            return;
+        }
         TransferEvent event = new TransferEvent(this.wagon, resource, TransferEvent.TRANSFER_INITIATED, requestType);
         for (TransferListener transferListener : this.transferListeners) {
             transferListener.transferInitiated(event);
@@ -62,6 +78,9 @@ public final class StandardTransferListenerSupport implements TransferListenerSu
 
     @Override
     public void fireTransferStarted(Resource resource, int requestType) {
+        if (this.transferListeners.isEmpty()) {
+            return;
+        }
         TransferEvent event = new TransferEvent(this.wagon, resource, TransferEvent.TRANSFER_STARTED, requestType);
         for (TransferListener transferListener : this.transferListeners) {
             transferListener.transferStarted(event);
@@ -70,7 +89,10 @@ public final class StandardTransferListenerSupport implements TransferListenerSu
 
     @Override
     public void fireTransferProgress(Resource resource, int requestType, byte[] buffer, int length) {
-        TransferEvent event = new TransferEvent(this.wagon, resource, TransferEvent.TRANSFER_PROGRESS, requestType);
+        if (this.transferListeners.isEmpty()) {
+            return;
+        }
+        TransferEvent event = getProgressEvent(resource, requestType);
         for (TransferListener transferListener : this.transferListeners) {
             transferListener.transferProgress(event, buffer, length);
         }
@@ -78,6 +100,10 @@ public final class StandardTransferListenerSupport implements TransferListenerSu
 
     @Override
     public void fireTransferCompleted(Resource resource, int requestType) {
+        releaseProgressEvent(resource, requestType);
+        if (this.transferListeners.isEmpty()) {
+            return;
+        }
         TransferEvent event = new TransferEvent(this.wagon, resource, TransferEvent.TRANSFER_COMPLETED, requestType);
         for (TransferListener transferListener : this.transferListeners) {
             transferListener.transferCompleted(event);
@@ -86,9 +112,65 @@ public final class StandardTransferListenerSupport implements TransferListenerSu
 
     @Override
     public void fireTransferError(Resource resource, int requestType, Exception exception) {
+        releaseProgressEvent(resource, requestType);
+        if (this.transferListeners.isEmpty()) {
+            return;
+        }
         TransferEvent event = new TransferEvent(this.wagon, resource, exception, requestType);
         for (TransferListener transferListener : this.transferListeners) {
             transferListener.transferError(event);
         }
     }
+
+    private TransferEvent getProgressEvent(Resource resource, int requestType) {
+        // progress is fired for every chunk of a transfer, so the event of a running transfer is looked up without
+        // locking or allocating, and only its first chunk takes the lock
+        TransferEvent event = findProgressEvent(this.progressEvents, resource, requestType);
+        if (event != null) {
+            event.setTimestamp(System.currentTimeMillis());
+            return event;
+        }
+
+        event = new TransferEvent(this.wagon, resource, TransferEvent.TRANSFER_PROGRESS, requestType);
+        synchronized (this.progressEventsLock) {
+            // events of transfers that never completed are dropped once there are too many
+            TransferEvent[] events = this.progressEvents;
+            int kept = Math.min(events.length, MAXIMUM_PROGRESS_EVENTS - 1);
+            TransferEvent[] updated = new TransferEvent[kept + 1];
+            System.arraycopy(events, events.length - kept, updated, 0, kept);
+            updated[kept] = event;
+            this.progressEvents = updated;
+        }
+        return event;
+    }
+
+    private void releaseProgressEvent(Resource resource, int requestType) {
+        if (findProgressEvent(this.progressEvents, resource, requestType) == null) {
+            return;
+        }
+        synchronized (this.progressEventsLock) {
+            TransferEvent[] events = this.progressEvents;
+            TransferEvent event = findProgressEvent(events, resource, requestType);
+            if (event != null) {
+                TransferEvent[] updated = new TransferEvent[events.length - 1];
+                int i = 0;
+                for (TransferEvent candidate : events) {
+                    if (candidate != event) {
+                        updated[i++] = candidate;
+                    }
+                }
+                this.progressEvents = updated;
+            }
+        }
+    }
+
+    private static TransferEvent findProgressEvent(TransferEvent[] events, Resource resource, int requestType) {
+        // resources are compared by identity, their equality changes as the transfer sets their length
+        for (TransferEvent event : events) {
+            if (event.getResource() == resource && event.getRequestType() == requestType) {
+                return event;
+            }
+        }
+        return null;
+    }
 }
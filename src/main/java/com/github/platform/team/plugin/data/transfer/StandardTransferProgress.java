@@ -28,6 +28,8 @@ public final class StandardTransferProgress implements TransferProgress {
 
     private final TransferListenerSupport transferListenerSupport;
 
+    private byte[] scratch = new byte[0];
+
     public StandardTransferProgress(Resource resource, int requestType, TransferListenerSupport transferListenerSupport) {
         this.resource = resource;
         this.requestType = requestType;
@@ -39,4 +41,19 @@ public final class StandardTransferProgress implements TransferProgress {
         this.transferListenerSupport.fireTransferProgress(this.resource, this.requestType, buffer, length);
     }
 
+    @Override
+    public void notify(byte[] buffer, int offset, int length) {
+        if (offset == 0) {
+            notify(buffer, length);
+            return;
+        }
+
+        // TransferListeners only accept bytes at the start of a buffer, so the region is moved into a reused one
+        if (this.scratch.length < length) {
+            this.scratch = new byte[Math.max(length, 2 * this.scratch.length)];
+        }
+        System.arraycopy(buffer, offset, this.scratch, 0, length);
+        notify(this.scratch, length);
+    }
+
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.github.platform.team.plugin.data.TransferListenerSupport;
+import org.apache.maven.wagon.events.TransferListener;
+import org.apache.maven.wagon.resource.Resource;
+
+/**
+ * Serializes calls to a {@link TransferListenerSupport}, so that transfers running on several threads at once can
+ * report to {@link TransferListener}s that were written for one transfer at a time.
+ */
+public final class SynchronizedTransferListenerSupport implements TransferListenerSupport {
+
+    private final TransferListenerSupport delegate;
+
+    public SynchronizedTransferListenerSupport(TransferListenerSupport delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void addTransferListener(TransferListener transferListener) {
+        this.delegate.addTransferListener(transferListener);
+    }
+
+    @Override
+    public synchronized void removeTransferListener(TransferListener transferListener) {
+        this.delegate.removeTransferListener(transferListener);
+    }
+
+    @Override
+    public synchronized boolean hasTransferListener(TransferListener transferListener) {
+        return this.delegate.hasTransferListener(transferListener);
+    }
+
+    @Override
+    public synchronized void fireTransferInitiated(Resource resource, int requestType) {
+        this.delegate.fireTransferInitiated(resource, requestType);
+    }
+
+    @Override
+    public synchronized void fireTransferStarted(Resource resource, int requestType) {
+        this.delegate.fireTransferStarted(resource, requestType);
+    }
+
+    @Override
+    public synchronized void fireTransferProgress(Resource resource, int requestType, byte[] buffer, int length) {
+        this.delegate.fireTransferProgress(resource, requestType, buffer, length);
+    }
+
+    @Override
+    public synchronized void fireTransferCompleted(Resource resource, int requestType) {
+        this.delegate.fireTransferCompleted(resource, requestType);
+    }
+
+    @Override
+    public synchronized void fireTransferError(Resource resource, int requestType, Exception exception) {
+        this.delegate.fireTransferError(resource, requestType, exception);
+    }
+}
@@ -27,6 +27,8 @@ public final class TransferProgressFileOutputStream extends FileOutputStream {
 
     private final TransferProgress transferProgress;
 
+    private final byte[] single = new byte[1];
+
     public TransferProgressFileOutputStream(File file, TransferProgress transferProgress) throws FileNotFoundException {
         super(file);
         this.transferProgress = transferProgress;
@@ -35,24 +37,18 @@ public final class TransferProgressFileOutputStream extends FileOutputStream {
     @Override
     public void write(int b) throws IOException {
         super.write(b);
-        this.transferProgress.notify(new byte[]{(byte) b}, 1);
+        this.single[0] = (byte) b;
+        this.transferProgress.notify(this.single, 1);
     }
 
     @Override
     public void write(byte b[]) throws IOException {
-        super.write(b);
-        this.transferProgress.notify(b, b.length);
+        write(b, 0, b.length);
     }
 
     @Override
     public void write(byte b[], int off, int len) throws IOException {
         super.write(b, off, len);
-        if (off == 0) {
-            this.transferProgress.notify(b, len);
-        } else {
-            byte[] bytes = new byte[len];
-            System.arraycopy(b, off, bytes, 0, len);
-            this.transferProgress.notify(bytes, len);
-        }
+        this.transferProgress.notify(b, off, len);
     }
 }
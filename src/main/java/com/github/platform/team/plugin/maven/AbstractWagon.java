@@ -19,13 +19,18 @@ package com.github.platform.team.plugin.maven;
 import com.github.platform.team.plugin.data.SessionListenerSupport;
 import com.github.platform.team.plugin.data.TransferListenerSupport;
 import com.github.platform.team.plugin.data.TransferProgress;
+import com.github.platform.team.plugin.data.transfer.CoalescingTransferProgress;
 import com.github.platform.team.plugin.data.transfer.StandardSessionListenerSupport;
 import com.github.platform.team.plugin.data.transfer.StandardTransferListenerSupport;
 import com.github.platform.team.plugin.data.transfer.StandardTransferProgress;
+import com.github.platform.team.plugin.data.transfer.SynchronizedTransferListenerSupport;
+import com.github.platform.team.plugin.util.BoundedExecutor;
+import com.github.platform.team.plugin.util.ExecutorUtils;
 import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.TransferFailedException;
 import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
 import org.apache.maven.wagon.authorization.AuthorizationException;
@@ -38,22 +43,47 @@ import org.apache.maven.wagon.repository.Repository;
 import org.apache.maven.wagon.resource.Resource;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AbstractWagon implements Wagon {
 
+    private static final int DEFAULT_PUT_DIRECTORY_CONCURRENCY = 8;
+
+    private static final int DEFAULT_ASYNC_CONCURRENCY = 32;
+
+    private static final long DEFAULT_PROGRESS_INTERVAL = 100;
+
     private final boolean supportsDirectoryCopy;
     private final SessionListenerSupport sessionListenerSupport;
     private final TransferListenerSupport transferListenerSupport;
+    private final TransferListenerSupport concurrentTransferListenerSupport;
     private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
     private boolean interactive = false;
     private int readTimeout = DEFAULT_READ_TIMEOUT;
     private Repository repository = null;
+    private volatile int putDirectoryConcurrency = DEFAULT_PUT_DIRECTORY_CONCURRENCY;
+    private volatile int progressThreshold = 0;
+    private volatile long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    private final Map<String, CompletableFuture<?>> asyncTransfers = new ConcurrentHashMap<>();
+    private volatile Executor asyncExecutor = new BoundedExecutor(ExecutorUtils.getAsyncExecutor(),
+            DEFAULT_ASYNC_CONCURRENCY);
 
     protected AbstractWagon(boolean supportsDirectoryCopy) {
         this.supportsDirectoryCopy = supportsDirectoryCopy;
         this.sessionListenerSupport = new StandardSessionListenerSupport(this);
         this.transferListenerSupport = new StandardTransferListenerSupport(this);
+        // concurrent directory uploads and asynchronous transfers report from several threads at once
+        this.concurrentTransferListenerSupport = new SynchronizedTransferListenerSupport(
+                this.transferListenerSupport);
     }
 
     protected AbstractWagon(boolean supportsDirectoryCopy, SessionListenerSupport sessionListenerSupport,
@@ -61,6 +91,7 @@ public abstract class AbstractWagon implements Wagon {
         this.supportsDirectoryCopy = supportsDirectoryCopy;
         this.sessionListenerSupport = sessionListenerSupport;
         this.transferListenerSupport = transferListenerSupport;
+        this.concurrentTransferListenerSupport = new SynchronizedTransferListenerSupport(transferListenerSupport);
     }
 
     @Override
@@ -168,44 +199,31 @@ public abstract class AbstractWagon implements Wagon {
     @Override
     public final void get(String resourceName, File destination) throws TransferFailedException,
             ResourceDoesNotExistException, AuthorizationException {
-        Resource resource = new Resource(resourceName);
-        this.transferListenerSupport.fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
-        this.transferListenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_GET);
-
-        try {
-            getResource(resourceName, destination, new StandardTransferProgress(resource, TransferEvent.REQUEST_GET,
-                    this.transferListenerSupport));
-            this.transferListenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_GET);
-        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
-            this.transferListenerSupport.fireTransferError(resource, TransferEvent.REQUEST_GET, e);
-            throw e;
-        }
+        get(resourceName, destination, this.transferListenerSupport);
     }
 
     @Override
     public final List<String> getFileList(String destinationDirectory) throws TransferFailedException,
             ResourceDoesNotExistException, AuthorizationException {
-        try {
-            return listDirectory(destinationDirectory);
-        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
-            this.transferListenerSupport.fireTransferError(new Resource(destinationDirectory),
-                    TransferEvent.REQUEST_GET, e);
-            throw e;
-        }
+        return getFileList(destinationDirectory, this.transferListenerSupport);
     }
 
     @Override
     public final boolean getIfNewer(String resourceName, File destination, long timestamp)
             throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
         Resource resource = new Resource(resourceName);
+        DeferredTransferProgress transferProgress = new DeferredTransferProgress(resource);
         try {
-            if (isRemoteResourceNewer(resourceName, timestamp)) {
-                get(resourceName, destination);
+            if (getResourceIfNewer(resourceName, destination, timestamp, transferProgress)) {
+                transferProgress.start();
+                transferProgress.flush();
+                this.transferListenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_GET);
                 return true;
             }
 
             return false;
         } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
+            transferProgress.flush();
             this.transferListenerSupport.fireTransferError(resource, TransferEvent.REQUEST_GET, e);
             throw e;
         }
@@ -219,39 +237,147 @@ public abstract class AbstractWagon implements Wagon {
     @Override
     public final void put(File source, String destination) throws TransferFailedException,
             ResourceDoesNotExistException, AuthorizationException {
-        Resource resource = new Resource(destination);
-        this.transferListenerSupport.fireTransferInitiated(resource, TransferEvent.REQUEST_PUT);
-        this.transferListenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_PUT);
-
-        try {
-            putResource(source, destination, new StandardTransferProgress(resource, TransferEvent.REQUEST_PUT,
-                    this.transferListenerSupport));
-            this.transferListenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_PUT);
-        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
-            this.transferListenerSupport.fireTransferError(resource, TransferEvent.REQUEST_PUT, e);
-            throw e;
-        }
+        put(source, destination, this.transferListenerSupport);
     }
 
     @Override
     public final void putDirectory(File sourceDirectory, String destinationDirectory) throws TransferFailedException,
             ResourceDoesNotExistException, AuthorizationException {
-        File[] files = sourceDirectory.listFiles();
-        if (files != null) {
-            for (File f : files) {
-                put(f, destinationDirectory + "/" + f.getName());
+        List<File> sources = new ArrayList<>();
+        List<String> destinations = new ArrayList<>();
+        collectFiles(sourceDirectory, destinationDirectory, sources, destinations);
+
+        if (this.putDirectoryConcurrency == 1 || sources.size() < 2) {
+            for (int i = 0; i < sources.size(); i++) {
+                put(sources.get(i), destinations.get(i), this.transferListenerSupport);
             }
+            return;
         }
+
+        Executor executor = new BoundedExecutor(ExecutorUtils.getExecutor(), this.putDirectoryConcurrency);
+        AtomicBoolean failed = new AtomicBoolean();
+
+        List<CompletableFuture<Void>> uploads = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            File source = sources.get(i);
+            String destination = destinations.get(i);
+            uploads.add(CompletableFuture.runAsync(() -> {
+                // once an upload has failed the remaining files are skipped
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    put(source, destination, this.concurrentTransferListenerSupport);
+                } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
+                    failed.set(true);
+                    throw new CompletionException(e);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }, executor));
+        }
+
+        awaitUploads(uploads, destinationDirectory);
+    }
+
+    /**
+     * Sets how many files {@link #putDirectory(File, String)} uploads at a time
+     *
+     * @param putDirectoryConcurrency The number of files
+     */
+    public final void setPutDirectoryConcurrency(int putDirectoryConcurrency) {
+        this.putDirectoryConcurrency = Math.max(1, putDirectoryConcurrency);
     }
 
     @Override
     public final boolean resourceExists(String resourceName) throws TransferFailedException, AuthorizationException {
-        try {
-            return doesRemoteResourceExist(resourceName);
-        } catch (AuthorizationException | TransferFailedException e) {
-            this.transferListenerSupport.fireTransferError(new Resource(resourceName), TransferEvent.REQUEST_GET, e);
-            throw e;
-        }
+        return resourceExists(resourceName, this.transferListenerSupport);
+    }
+
+    /**
+     * Downloads a resource in the background, see {@link #get(String, File)}
+     *
+     * @param resourceName The resource to download
+     * @param destination  The file to write to
+     * @return Completes once the resource has been downloaded, or exceptionally with the exception {@code get} would
+     * have thrown
+     */
+    public final CompletableFuture<Void> getAsync(String resourceName, File destination) {
+        return submit(resourceName, () -> {
+            get(resourceName, destination, this.concurrentTransferListenerSupport);
+            return null;
+        });
+    }
+
+    /**
+     * Uploads a file in the background, see {@link #put(File, String)}
+     *
+     * @param source      The file to upload
+     * @param destination The resource to upload to
+     * @return Completes once the file has been uploaded, or exceptionally with the exception {@code put} would have
+     * thrown
+     */
+    public final CompletableFuture<Void> putAsync(File source, String destination) {
+        return submit(destination, () -> {
+            put(source, destination, this.concurrentTransferListenerSupport);
+            return null;
+        });
+    }
+
+    /**
+     * Checks in the background whether a resource exists, see {@link #resourceExists(String)}
+     *
+     * @param resourceName The resource to check
+     * @return Completes with {@code true} if the resource exists, or exceptionally with the exception
+     * {@code resourceExists} would have thrown
+     */
+    public final CompletableFuture<Boolean> resourceExistsAsync(String resourceName) {
+        return submit(resourceName, () -> resourceExists(resourceName, this.concurrentTransferListenerSupport));
+    }
+
+    /**
+     * Lists a directory in the background, see {@link #getFileList(String)}
+     *
+     * @param destinationDirectory The directory to list
+     * @return Completes with the names in the directory, or exceptionally with the exception {@code getFileList} would
+     * have thrown
+     */
+    public final CompletableFuture<List<String>> getFileListAsync(String destinationDirectory) {
+        return submit(destinationDirectory,
+                () -> getFileList(destinationDirectory, this.concurrentTransferListenerSupport));
+    }
+
+    /**
+     * Sets how many operations started through the asynchronous methods run at a time. Further operations are queued.
+     * On Java 21 and later the operations run on virtual threads. Transfer listeners still receive one event at a
+     * time from the asynchronous transfers and concurrent directory uploads of the wagon. Synchronous transfers
+     * notify them without locking, so they should not be made while asynchronous ones are running.
+     *
+     * @param asyncConcurrency The number of operations
+     */
+    public final void setAsyncConcurrency(int asyncConcurrency) {
+        this.asyncExecutor = new BoundedExecutor(ExecutorUtils.getAsyncExecutor(), Math.max(1, asyncConcurrency));
+    }
+
+    /**
+     * Sets how many bytes of a transfer are collected before transfer listeners are notified of their progress. The
+     * listeners still receive every byte, in fewer and larger chunks.
+     *
+     * @param progressThreshold The number of bytes, {@code 0} to notify listeners of every read and write
+     */
+    public final void setProgressThreshold(int progressThreshold) {
+        this.progressThreshold = Math.max(0, progressThreshold);
+    }
+
+    /**
+     * Sets after how many milliseconds collected progress is reported to transfer listeners even if it is below the
+     * progress threshold
+     *
+     * @param progressInterval The number of milliseconds
+     */
+    public final void setProgressInterval(long progressInterval) {
+        this.progressInterval = Math.max(0, progressInterval);
     }
 
     @Override
@@ -279,6 +405,136 @@ public abstract class AbstractWagon implements Wagon {
         this.connectionTimeout = timeout;
     }
 
+    private void get(String resourceName, File destination, TransferListenerSupport listenerSupport)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        Resource resource = new Resource(resourceName);
+        listenerSupport.fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
+        listenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_GET);
+
+        CoalescingTransferProgress transferProgress = newTransferProgress(resource, TransferEvent.REQUEST_GET,
+                listenerSupport);
+        try {
+            getResource(resourceName, destination, transferProgress);
+            transferProgress.flush();
+            listenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_GET);
+        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
+            transferProgress.flush();
+            listenerSupport.fireTransferError(resource, TransferEvent.REQUEST_GET, e);
+            throw e;
+        }
+    }
+
+    private List<String> getFileList(String destinationDirectory, TransferListenerSupport listenerSupport)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        try {
+            return listDirectory(destinationDirectory);
+        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
+            listenerSupport.fireTransferError(new Resource(destinationDirectory), TransferEvent.REQUEST_GET, e);
+            throw e;
+        }
+    }
+
+    private boolean resourceExists(String resourceName, TransferListenerSupport listenerSupport)
+            throws TransferFailedException, AuthorizationException {
+        try {
+            return doesRemoteResourceExist(resourceName);
+        } catch (AuthorizationException | TransferFailedException e) {
+            listenerSupport.fireTransferError(new Resource(resourceName), TransferEvent.REQUEST_GET, e);
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(String resourceName, AsyncOperation<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // operations on the same resource run one after another, so that their events do not interleave
+        this.asyncTransfers.compute(resourceName, (name, previous) -> {
+            CompletableFuture<?> predecessor = previous == null ? CompletableFuture.completedFuture(null)
+                    : previous.handle((value, failure) -> null);
+            predecessor.thenRunAsync(() -> {
+                try {
+                    result.complete(operation.run());
+                } catch (WagonException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }, this.asyncExecutor);
+            return result;
+        });
+        result.whenComplete((value, failure) -> this.asyncTransfers.remove(resourceName, result));
+        return result;
+    }
+
+    private void put(File source, String destination, TransferListenerSupport listenerSupport)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        Resource resource = new Resource(destination);
+        listenerSupport.fireTransferInitiated(resource, TransferEvent.REQUEST_PUT);
+        listenerSupport.fireTransferStarted(resource, TransferEvent.REQUEST_PUT);
+
+        CoalescingTransferProgress transferProgress = newTransferProgress(resource, TransferEvent.REQUEST_PUT,
+                listenerSupport);
+        try {
+            putResource(source, destination, transferProgress);
+            transferProgress.flush();
+            listenerSupport.fireTransferCompleted(resource, TransferEvent.REQUEST_PUT);
+        } catch (TransferFailedException | ResourceDoesNotExistException | AuthorizationException e) {
+            transferProgress.flush();
+            listenerSupport.fireTransferError(resource, TransferEvent.REQUEST_PUT, e);
+            throw e;
+        }
+    }
+
+    private CoalescingTransferProgress newTransferProgress(Resource resource, int requestType,
+                                                          TransferListenerSupport listenerSupport) {
+        return new CoalescingTransferProgress(new StandardTransferProgress(resource, requestType, listenerSupport),
+                this.progressThreshold, this.progressInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static void collectFiles(File directory, String destinationDirectory, List<File> sources,
+                                     List<String> destinations) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                String destination = destinationDirectory + "/" + f.getName();
+                if (f.isDirectory()) {
+                    collectFiles(f, destination, sources, destinations);
+                } else {
+                    sources.add(f);
+                    destinations.add(destination);
+                }
+            }
+        }
+    }
+
+    private static void awaitUploads(List<CompletableFuture<Void>> uploads, String destinationDirectory)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        Throwable failure = null;
+        for (CompletableFuture<Void> upload : uploads) {
+            try {
+                upload.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransferFailedException(
+                        String.format("Interrupted while uploading to '%s'", destinationDirectory), e);
+            } catch (ExecutionException e) {
+                // every upload is awaited so that none is still running when this method returns
+                if (failure == null) {
+                    failure = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof TransferFailedException) {
+            throw (TransferFailedException) failure;
+        } else if (failure instanceof ResourceDoesNotExistException) {
+            throw (ResourceDoesNotExistException) failure;
+        } else if (failure instanceof AuthorizationException) {
+            throw (AuthorizationException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new TransferFailedException(String.format("Cannot upload to '%s'", destinationDirectory), failure);
+        }
+    }
+
     protected abstract void connectToRepository(Repository repository, AuthenticationInfo authenticationInfo,
                                                 ProxyInfoProvider proxyInfoProvider) throws ConnectionException,
             AuthenticationException;
@@ -291,6 +547,32 @@ public abstract class AbstractWagon implements Wagon {
     protected abstract void getResource(String resourceName, File destination, TransferProgress transferProgress)
             throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException;
 
+    /**
+     * Downloads a resource if it has changed since a point in time. This implementation checks with
+     * {@link #isRemoteResourceNewer(String, long)} before calling {@link #getResource(String, File, TransferProgress)},
+     * wagons that can do both in a single request override it. Transfer events are only fired once
+     * {@code transferProgress} is first notified or the method returns {@code true}.
+     *
+     * @param resourceName     The resource to download
+     * @param destination      The file to write to
+     * @param timestamp        The time in milliseconds since the epoch the resource has to be newer than
+     * @param transferProgress Notified with the content of the resource
+     * @return {@code true} if the resource was newer and has been downloaded
+     * @throws TransferFailedException       if the resource cannot be checked or downloaded
+     * @throws ResourceDoesNotExistException if the resource does not exist
+     * @throws AuthorizationException        if access to the resource is denied
+     */
+    protected boolean getResourceIfNewer(String resourceName, File destination, long timestamp,
+                                         TransferProgress transferProgress)
+            throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException {
+        if (!isRemoteResourceNewer(resourceName, timestamp)) {
+            return false;
+        }
+
+        getResource(resourceName, destination, transferProgress);
+        return true;
+    }
+
     protected abstract boolean isRemoteResourceNewer(String resourceName, long timestamp)
             throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException;
 
@@ -300,4 +582,50 @@ public abstract class AbstractWagon implements Wagon {
     protected abstract void putResource(File source, String destination, TransferProgress transferProgress)
             throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException;
 
+    private final class DeferredTransferProgress implements TransferProgress {
+
+        private final Resource resource;
+
+        private final CoalescingTransferProgress delegate;
+
+        private boolean started;
+
+        private DeferredTransferProgress(Resource resource) {
+            this.resource = resource;
+            this.delegate = newTransferProgress(resource, TransferEvent.REQUEST_GET,
+                    AbstractWagon.this.transferListenerSupport);
+        }
+
+        @Override
+        public void notify(byte[] buffer, int length) {
+            start();
+            this.delegate.notify(buffer, length);
+        }
+
+        @Override
+        public void notify(byte[] buffer, int offset, int length) {
+            start();
+            this.delegate.notify(buffer, offset, length);
+        }
+
+        private void flush() {
+            this.delegate.flush();
+        }
+
+        private void start() {
+            // listeners only hear of a conditional download once it turns out to be newer
+            if (!this.started) {
+                this.started = true;
+                AbstractWagon.this.transferListenerSupport.fireTransferInitiated(this.resource,
+                        TransferEvent.REQUEST_GET);
+                AbstractWagon.this.transferListenerSupport.fireTransferStarted(this.resource,
+                        TransferEvent.REQUEST_GET);
+            }
+        }
+    }
+
+    private interface AsyncOperation<T> {
+
+        T run() throws WagonException;
+    }
 }
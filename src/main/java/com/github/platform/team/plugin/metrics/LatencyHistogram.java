@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets that are exact below 64 microseconds and about 3% wide above, in the manner of an HDR
+ * histogram. Recording is lock free and costs a few increments, so it can be done for every request. Latencies above
+ * about 19 hours are counted as 19 hours.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int MAXIMUM_BITS = 36;
+
+    private static final long MAXIMUM_VALUE = (1L << MAXIMUM_BITS) - 1;
+
+    private static final int BUCKETS = SUB_BUCKETS + (MAXIMUM_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong count;
+
+    private final AtomicLong total;
+
+    private final AtomicLong maximum;
+
+    public LatencyHistogram() {
+        this(new AtomicLongArray(BUCKETS), 0, 0, 0);
+    }
+
+    private LatencyHistogram(AtomicLongArray counts, long count, long total, long maximum) {
+        this.counts = counts;
+        this.count = new AtomicLong(count);
+        this.total = new AtomicLong(total);
+        this.maximum = new AtomicLong(maximum);
+    }
+
+    /**
+     * Records a latency
+     *
+     * @param latency  The latency
+     * @param timeUnit The unit of the latency
+     */
+    public void record(long latency, TimeUnit timeUnit) {
+        long micros = Math.min(MAXIMUM_VALUE, Math.max(0, timeUnit.toMicros(latency)));
+        this.counts.incrementAndGet(indexOf(micros));
+        this.count.incrementAndGet();
+        this.total.addAndGet(micros);
+        this.maximum.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * Returns the sum of the recorded latencies
+     *
+     * @return The sum in microseconds
+     */
+    public long getTotal() {
+        return this.total.get();
+    }
+
+    /**
+     * Returns the largest recorded latency. For a difference of two histograms it is the largest latency of the later
+     * one.
+     *
+     * @return The largest latency in microseconds
+     */
+    public long getMaximum() {
+        return this.maximum.get();
+    }
+
+    /**
+     * Returns the latency below or at which a share of the recorded latencies lie
+     *
+     * @param percentile The share, between {@code 0} and {@code 1}
+     * @return The upper bound of the bucket holding the percentile in microseconds, {@code 0} if nothing is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile * count));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) {
+                return Math.min(getUpperBound(i), getMaximum());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the histogram as it is now
+     *
+     * @return The copy
+     */
+    public LatencyHistogram copy() {
+        AtomicLongArray copy = new AtomicLongArray(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            copy.set(i, this.counts.get(i));
+        }
+        return new LatencyHistogram(copy, getCount(), getTotal(), getMaximum());
+    }
+
+    /**
+     * Returns the latencies recorded since an earlier copy of the histogram
+     *
+     * @param earlier The earlier copy
+     * @return A histogram of the latencies recorded since
+     */
+    public LatencyHistogram minus(LatencyHistogram earlier) {
+        AtomicLongArray difference = new AtomicLongArray(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            difference.set(i, this.counts.get(i) - earlier.counts.get(i));
+        }
+        return new LatencyHistogram(difference, getCount() - earlier.getCount(), getTotal() - earlier.getTotal(),
+                getMaximum());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // the top SUB_BUCKET_BITS + 1 bits of the value select the bucket, the bits below are dropped
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long getUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
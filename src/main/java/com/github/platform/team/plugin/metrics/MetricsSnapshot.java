@@ -0,0 +1,258 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * The requests to a bucket counted by {@link S3Metrics} up to a point in time, or between two points in time when
+ * obtained with {@link #minus(MetricsSnapshot)}. It can be rendered as a single line for the build log, as JSON or in
+ * the Prometheus text format.
+ */
+public final class MetricsSnapshot {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private static final double BYTES_PER_MEBIBYTE = 1024.0 * 1024;
+
+    private static final String JSON_EXTENSION = ".json";
+
+    private final String bucketName;
+
+    private final long elapsedNanos;
+
+    private final Map<String, OperationStatistics> operations;
+
+    MetricsSnapshot(String bucketName, long elapsedNanos, Map<String, OperationStatistics> operations) {
+        this.bucketName = bucketName;
+        this.elapsedNanos = elapsedNanos;
+        this.operations = Collections.unmodifiableMap(new TreeMap<>(operations));
+    }
+
+    public String getBucketName() {
+        return this.bucketName;
+    }
+
+    /**
+     * Returns the time the requests were counted over
+     *
+     * @param timeUnit The unit to return the time in
+     * @return The time since the metrics were created, or between the snapshots a difference was taken of
+     */
+    public long getElapsed(TimeUnit timeUnit) {
+        return timeUnit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the statistics of each operation that was requested
+     *
+     * @return The statistics ordered by operation
+     */
+    public List<OperationStatistics> getOperations() {
+        List<OperationStatistics> operations = new ArrayList<>();
+        for (OperationStatistics statistics : this.operations.values()) {
+            if (statistics.getRequests() > 0 || statistics.getRetries() > 0) {
+                operations.add(statistics);
+            }
+        }
+        return operations;
+    }
+
+    public long getRequests() {
+        return this.operations.values().stream().mapToLong(OperationStatistics::getRequests).sum();
+    }
+
+    public long getRetries() {
+        return this.operations.values().stream().mapToLong(OperationStatistics::getRetries).sum();
+    }
+
+    public long getErrors() {
+        return this.operations.values().stream()
+                .flatMap(statistics -> statistics.getErrors().values().stream())
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    public long getBytesSent() {
+        return this.operations.values().stream().mapToLong(OperationStatistics::getBytesSent).sum();
+    }
+
+    public long getBytesReceived() {
+        return this.operations.values().stream().mapToLong(OperationStatistics::getBytesReceived).sum();
+    }
+
+    /**
+     * Returns the requests counted since an earlier snapshot of the same bucket
+     *
+     * @param earlier The earlier snapshot
+     * @return The requests counted since
+     */
+    public MetricsSnapshot minus(MetricsSnapshot earlier) {
+        Map<String, OperationStatistics> operations = new TreeMap<>();
+        this.operations.forEach((operation, statistics) ->
+                operations.put(operation, statistics.minus(earlier.operations.get(operation))));
+        return new MetricsSnapshot(this.bucketName, this.elapsedNanos - earlier.elapsedNanos, operations);
+    }
+
+    /**
+     * Returns a single line summary, e.g. {@code S3 bucket 'releases': 42 requests, 1 retries, 0 errors in 3.2 s;
+     * sent 12.0 MiB (3.8 MiB/s), received 0.1 MiB (0.0 MiB/s); PutObject 30 (p50 85.1 ms, p99 410.0 ms, busy 3.0 s),
+     * ...}. The busy time of an operation is the sum of its latencies, comparing it to the elapsed time tells whether
+     * a build waits on many requests or on a few slow ones.
+     *
+     * @return The summary
+     */
+    public String toSummary() {
+        double seconds = this.elapsedNanos / 1e9;
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "S3 bucket '%s': %d requests, %d retries, %d errors in %.1f s; sent %.1f MiB (%.1f MiB/s), "
+                        + "received %.1f MiB (%.1f MiB/s)", this.bucketName, getRequests(), getRetries(), getErrors(),
+                seconds, getBytesSent() / BYTES_PER_MEBIBYTE, perSecond(getBytesSent() / BYTES_PER_MEBIBYTE, seconds),
+                getBytesReceived() / BYTES_PER_MEBIBYTE, perSecond(getBytesReceived() / BYTES_PER_MEBIBYTE, seconds)));
+        String separator = "; ";
+        for (OperationStatistics statistics : getOperations()) {
+            summary.append(String.format(Locale.ROOT, "%s%s %d (p50 %.1f ms, p99 %.1f ms, busy %.1f s)", separator,
+                    statistics.getOperation(), statistics.getRequests(), statistics.getP50Millis(),
+                    statistics.getP99Millis(), statistics.getTotalLatencyMicros() / 1e6));
+            separator = ", ";
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Returns the snapshot as a JSON object
+     *
+     * @return The JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT,
+                "{\"bucket\":%s,\"elapsedSeconds\":%.3f,\"requests\":%d,\"retries\":%d,\"errors\":%d,"
+                        + "\"bytesSent\":%d,\"bytesReceived\":%d,\"operations\":[", quote(this.bucketName),
+                this.elapsedNanos / 1e9, getRequests(), getRetries(), getErrors(), getBytesSent(),
+                getBytesReceived()));
+        String separator = "";
+        for (OperationStatistics statistics : getOperations()) {
+            json.append(separator).append(String.format(Locale.ROOT,
+                    "{\"operation\":%s,\"requests\":%d,\"retries\":%d,\"bytesSent\":%d,\"bytesReceived\":%d,"
+                            + "\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p90Millis\":%.3f,\"p99Millis\":%.3f,"
+                            + "\"maxMillis\":%.3f,\"errors\":{", quote(statistics.getOperation()),
+                    statistics.getRequests(), statistics.getRetries(), statistics.getBytesSent(),
+                    statistics.getBytesReceived(), statistics.getMeanMillis(), statistics.getP50Millis(),
+                    statistics.getP90Millis(), statistics.getP99Millis(), statistics.getMaxMillis()));
+            String errorSeparator = "";
+            for (Map.Entry<String, Long> error : statistics.getErrors().entrySet()) {
+                json.append(errorSeparator).append(quote(error.getKey())).append(':').append(error.getValue());
+                errorSeparator = ",";
+            }
+            json.append("}}");
+            separator = ",";
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Returns the snapshot in the Prometheus text exposition format. Latencies are exposed as a summary in seconds.
+     *
+     * @return The Prometheus text
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        List<OperationStatistics> operations = getOperations();
+
+        counter(text, "aws_maven_s3_requests_total", "Completed requests", operations,
+                OperationStatistics::getRequests);
+        counter(text, "aws_maven_s3_retries_total", "Requests sent again after a failed attempt", operations,
+                OperationStatistics::getRetries);
+        counter(text, "aws_maven_s3_sent_bytes_total", "Bytes sent as request content", operations,
+                OperationStatistics::getBytesSent);
+        counter(text, "aws_maven_s3_received_bytes_total", "Bytes received as response content", operations,
+                OperationStatistics::getBytesReceived);
+
+        text.append("# HELP aws_maven_s3_errors_total Requests that failed after all retries\n");
+        text.append("# TYPE aws_maven_s3_errors_total counter\n");
+        for (OperationStatistics statistics : operations) {
+            for (Map.Entry<String, Long> error : statistics.getErrors().entrySet()) {
+                text.append(String.format(Locale.ROOT, "aws_maven_s3_errors_total{%s,error=%s} %d\n",
+                        labels(statistics), quote(error.getKey()), error.getValue()));
+            }
+        }
+
+        text.append("# HELP aws_maven_s3_latency_seconds Time from sending a request to receiving its response\n");
+        text.append("# TYPE aws_maven_s3_latency_seconds summary\n");
+        for (OperationStatistics statistics : operations) {
+            for (double quantile : QUANTILES) {
+                text.append(String.format(Locale.ROOT, "aws_maven_s3_latency_seconds{%s,quantile=\"%s\"} %.6f\n",
+                        labels(statistics), quantile, statistics.getPercentileMillis(quantile) / 1e3));
+            }
+            text.append(String.format(Locale.ROOT, "aws_maven_s3_latency_seconds_sum{%s} %.6f\n",
+                    labels(statistics), statistics.getTotalLatencyMicros() / 1e6));
+            text.append(String.format(Locale.ROOT, "aws_maven_s3_latency_seconds_count{%s} %d\n",
+                    labels(statistics), statistics.getRequests()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the snapshot to a file, as JSON if its name ends with {@code .json} and in the Prometheus text format
+     * otherwise
+     *
+     * @param file The file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        String content = file.getName().endsWith(JSON_EXTENSION) ? toJson() + "\n" : toPrometheus();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void counter(StringBuilder text, String name, String help, List<OperationStatistics> operations,
+                         ToLongFunction<OperationStatistics> value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        for (OperationStatistics statistics : operations) {
+            text.append(String.format(Locale.ROOT, "%s{%s} %d\n", name, labels(statistics),
+                    value.applyAsLong(statistics)));
+        }
+    }
+
+    private String labels(OperationStatistics statistics) {
+        return String.format("bucket=%s,operation=%s", quote(this.bucketName), quote(statistics.getOperation()));
+    }
+
+    private static double perSecond(double amount, double seconds) {
+        return seconds > 0 ? amount / seconds : 0;
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
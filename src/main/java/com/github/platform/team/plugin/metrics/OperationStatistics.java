@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The requests of one kind of S3 operation, such as {@code PutObject}, counted since the metrics of a bucket were
+ * created or between two {@link MetricsSnapshot}s. Latencies are measured from sending the request to receiving the
+ * response headers, so for {@code GetObject} they do not include reading the content.
+ */
+public final class OperationStatistics {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String operation;
+
+    private final long retries;
+
+    private final long bytesSent;
+
+    private final long bytesReceived;
+
+    private final Map<String, Long> errors;
+
+    private final LatencyHistogram latencies;
+
+    OperationStatistics(String operation, long retries, long bytesSent, long bytesReceived,
+                        Map<String, Long> errors, LatencyHistogram latencies) {
+        this.operation = operation;
+        this.retries = retries;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.errors = Collections.unmodifiableMap(new TreeMap<>(errors));
+        this.latencies = latencies;
+    }
+
+    public String getOperation() {
+        return this.operation;
+    }
+
+    /**
+     * Returns the number of completed requests, each counted once however often it was retried
+     *
+     * @return The number of requests
+     */
+    public long getRequests() {
+        return this.latencies.getCount();
+    }
+
+    /**
+     * Returns the number of times requests were sent again after a failed attempt
+     *
+     * @return The number of retries
+     */
+    public long getRetries() {
+        return this.retries;
+    }
+
+    /**
+     * Returns the bytes sent in request bodies, as declared by their {@code Content-Length}. For streamed uploads it
+     * includes the chunk signatures.
+     *
+     * @return The number of bytes
+     */
+    public long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    /**
+     * Returns the bytes received in response bodies. The content of objects is counted as it is read, so that
+     * downloads aborted part way only count what was transferred, other responses are counted by their
+     * {@code Content-Length}.
+     *
+     * @return The number of bytes
+     */
+    public long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    /**
+     * Returns the number of requests that failed after all retries by class of failure: {@code NotFound},
+     * {@code Throttled}, {@code ClientError}, {@code ServerError} or {@code Network}
+     *
+     * @return The number of failed requests by class
+     */
+    public Map<String, Long> getErrors() {
+        return this.errors;
+    }
+
+    public double getMeanMillis() {
+        return this.latencies.getCount() == 0 ? 0 : this.latencies.getTotal() / MICROS_PER_MILLI / this.latencies.getCount();
+    }
+
+    public double getP50Millis() {
+        return getPercentileMillis(0.5);
+    }
+
+    public double getP90Millis() {
+        return getPercentileMillis(0.9);
+    }
+
+    public double getP99Millis() {
+        return getPercentileMillis(0.99);
+    }
+
+    public double getMaxMillis() {
+        return this.latencies.getMaximum() / MICROS_PER_MILLI;
+    }
+
+    /**
+     * Returns the latency below or at which a share of the requests completed
+     *
+     * @param percentile The share, between {@code 0} and {@code 1}
+     * @return The latency in milliseconds, accurate to about 3%
+     */
+    public double getPercentileMillis(double percentile) {
+        return this.latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    long getTotalLatencyMicros() {
+        return this.latencies.getTotal();
+    }
+
+    /**
+     * Returns the requests counted since earlier statistics of the same operation
+     *
+     * @param earlier The earlier statistics, {@code null} if there were none
+     * @return The requests counted since
+     */
+    OperationStatistics minus(OperationStatistics earlier) {
+        if (earlier == null) {
+            return this;
+        }
+        Map<String, Long> errors = new TreeMap<>(this.errors);
+        earlier.errors.forEach((error, count) -> errors.computeIfPresent(error, (e, total) -> total - count));
+        errors.values().removeIf(count -> count == 0);
+        return new OperationStatistics(this.operation, this.retries - earlier.retries, this.bytesSent - earlier.bytesSent,
+                this.bytesReceived - earlier.bytesReceived, errors, this.latencies.minus(earlier.latencies));
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.github.platform.team.plugin.aws.ThrottleController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the requests to a bucket on behalf of every client in the JVM: per operation the latencies, retries, bytes
+ * transferred and failures by class. The requests are observed through a {@link RequestHandler2}, so every call a
+ * client makes is counted without wrapping it. The metrics of each bucket are registered as an MXBean with the
+ * platform MBean server.
+ */
+public final class S3Metrics implements S3MetricsMXBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3Metrics.class);
+
+    private static final Map<String, S3Metrics> METRICS = new ConcurrentHashMap<>();
+
+    private static final String OBJECT_NAME = "com.github.platform.team.plugin:type=S3Metrics,bucket=%s";
+
+    private static final HandlerContextKey<Long> STARTED_AT = new HandlerContextKey<>("MetricsStartedAt");
+
+    private static final HandlerContextKey<String> OPERATION = new HandlerContextKey<>("MetricsOperation");
+
+    private static final HandlerContextKey<Boolean> ATTEMPTED = new HandlerContextKey<>("MetricsAttempted");
+
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    private static final String REQUEST_SUFFIX = "Request";
+
+    private static final String DIRECTORY_MARKER = "PutDirectoryMarker";
+
+    private static final String NOT_FOUND = "NotFound";
+
+    private static final String THROTTLED = "Throttled";
+
+    private static final String CLIENT_ERROR = "ClientError";
+
+    private static final String SERVER_ERROR = "ServerError";
+
+    private static final String NETWORK = "Network";
+
+    private final String bucketName;
+
+    private final LongSupplier clock;
+
+    private final long createdAt;
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    S3Metrics(String bucketName, LongSupplier clock) {
+        this.bucketName = bucketName;
+        this.clock = clock;
+        this.createdAt = clock.getAsLong();
+    }
+
+    /**
+     * Returns the metrics shared by all clients of a bucket, registering them with the platform MBean server when they
+     * are first requested
+     *
+     * @param bucketName The bucket
+     * @return The shared metrics
+     */
+    public static S3Metrics forBucket(String bucketName) {
+        return METRICS.computeIfAbsent(bucketName, name -> register(new S3Metrics(name, System::nanoTime)));
+    }
+
+    /**
+     * Returns the handler that counts the requests of a client of the bucket
+     *
+     * @return The request handler
+     */
+    public RequestHandler2 getRequestHandler() {
+        return new MetricsRequestHandler();
+    }
+
+    /**
+     * Returns the requests counted so far
+     *
+     * @return The snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, OperationStatistics> operations = new HashMap<>();
+        this.operations.forEach((operation, metrics) -> operations.put(operation, metrics.snapshot(operation)));
+        return new MetricsSnapshot(this.bucketName, this.clock.getAsLong() - this.createdAt, operations);
+    }
+
+    @Override
+    public String getBucketName() {
+        return this.bucketName;
+    }
+
+    @Override
+    public long getRequests() {
+        return snapshot().getRequests();
+    }
+
+    @Override
+    public long getRetries() {
+        return snapshot().getRetries();
+    }
+
+    @Override
+    public long getErrors() {
+        return snapshot().getErrors();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return snapshot().getBytesSent();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return snapshot().getBytesReceived();
+    }
+
+    @Override
+    public List<OperationStatistics> getOperations() {
+        return snapshot().getOperations();
+    }
+
+    /**
+     * Returns the class a failed request is counted under
+     *
+     * @param e The failure
+     * @return {@code NotFound}, {@code Throttled}, {@code ClientError} or {@code ServerError} for error responses,
+     * {@code Network} for requests that got no response
+     */
+    static String getErrorClass(Exception e) {
+        if (!(e instanceof AmazonServiceException)) {
+            return NETWORK;
+        }
+        int statusCode = ((AmazonServiceException) e).getStatusCode();
+        if (statusCode == 404) {
+            return NOT_FOUND;
+        }
+        if (ThrottleController.isThrottling(e)) {
+            return THROTTLED;
+        }
+        return statusCode >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+    }
+
+    static String getOperation(AmazonWebServiceRequest request) {
+        if (request instanceof PutObjectRequest && ((PutObjectRequest) request).getKey().endsWith("/")) {
+            return DIRECTORY_MARKER;
+        }
+        String name = request.getClass().getSimpleName();
+        return name.endsWith(REQUEST_SUFFIX) ? name.substring(0, name.length() - REQUEST_SUFFIX.length()) : name;
+    }
+
+    private static S3Metrics register(S3Metrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    new ObjectName(String.format(OBJECT_NAME, ObjectName.quote(metrics.bucketName))));
+        } catch (JMException | SecurityException e) {
+            // for example another copy of the plugin in the JVM registered the bucket first, the metrics are still
+            // counted and reported by the wagon
+            LOGGER.warn("Unable to register the S3 metrics of bucket '{}' with the MBean server: {}",
+                    metrics.bucketName, e.toString());
+        }
+        return metrics;
+    }
+
+    private static long getContentLength(String contentLength) {
+        try {
+            return contentLength == null ? 0 : Math.max(0, Long.parseLong(contentLength));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private OperationMetrics getOperationMetrics(Request<?> request) {
+        String operation = request.getHandlerContext(OPERATION);
+        if (operation == null) {
+            operation = getOperation(request.getOriginalRequest());
+        }
+        return this.operations.computeIfAbsent(operation, name -> new OperationMetrics());
+    }
+
+    private void record(Request<?> request, Response<?> response, Exception e) {
+        Long startedAt = request.getHandlerContext(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+        OperationMetrics metrics = getOperationMetrics(request);
+        metrics.bytesSent.add(getContentLength(request.getHeaders().get(CONTENT_LENGTH)));
+        if (e == null && response != null) {
+            Object awsResponse = response.getAwsResponse();
+            if (awsResponse instanceof S3Object) {
+                // the content is read after the response is handled, and ranged downloads abort it part way
+                countContent((S3Object) awsResponse, metrics.bytesReceived);
+            } else if (response.getHttpResponse() != null) {
+                metrics.bytesReceived.add(getContentLength(response.getHttpResponse().getHeader(CONTENT_LENGTH)));
+            }
+        } else if (e != null) {
+            metrics.errors.computeIfAbsent(getErrorClass(e), error -> new LongAdder()).increment();
+        }
+        metrics.latencies.record(this.clock.getAsLong() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private static void countContent(S3Object s3Object, LongAdder bytesReceived) {
+        S3ObjectInputStream content = s3Object.getObjectContent();
+        if (content != null) {
+            s3Object.setObjectContent(new S3ObjectInputStream(new CountingInputStream(content, bytesReceived),
+                    content.getHttpRequest()));
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final LongAdder count;
+
+        private CountingInputStream(InputStream in, LongAdder count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                this.count.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                this.count.add(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.count.add(skipped);
+            return skipped;
+        }
+    }
+
+    private static final class OperationMetrics {
+
+        private final LongAdder retries = new LongAdder();
+
+        private final LongAdder bytesSent = new LongAdder();
+
+        private final LongAdder bytesReceived = new LongAdder();
+
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        private OperationStatistics snapshot(String operation) {
+            Map<String, Long> errors = new HashMap<>();
+            this.errors.forEach((error, count) -> errors.put(error, count.sum()));
+            return new OperationStatistics(operation, this.retries.sum(), this.bytesSent.sum(),
+                    this.bytesReceived.sum(), errors, this.latencies.copy());
+        }
+    }
+
+    private final class MetricsRequestHandler extends RequestHandler2 {
+
+        @Override
+        public void beforeRequest(Request<?> request) {
+            request.addHandlerContext(STARTED_AT, S3Metrics.this.clock.getAsLong());
+            request.addHandlerContext(OPERATION, getOperation(request.getOriginalRequest()));
+        }
+
+        @Override
+        public void beforeAttempt(HandlerBeforeAttemptContext context) {
+            Request<?> request = context.getRequest();
+            if (request.getHandlerContext(ATTEMPTED) != null) {
+                getOperationMetrics(request).retries.increment();
+            } else {
+                request.addHandlerContext(ATTEMPTED, Boolean.TRUE);
+            }
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+            record(request, response, null);
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response, Exception e) {
+            record(request, null, e);
+        }
+    }
+}
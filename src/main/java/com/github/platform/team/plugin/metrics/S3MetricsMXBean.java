@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import java.util.List;
+
+/**
+ * The management interface of {@link S3Metrics}, registered as
+ * {@code com.github.platform.team.plugin:type=S3Metrics,bucket="<BUCKET>"}
+ */
+public interface S3MetricsMXBean {
+
+    String getBucketName();
+
+    long getRequests();
+
+    long getRetries();
+
+    long getErrors();
+
+    long getBytesSent();
+
+    long getBytesReceived();
+
+    List<OperationStatistics> getOperations();
+}
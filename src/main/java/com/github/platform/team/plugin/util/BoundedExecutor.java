@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Executor} that runs at most a fixed number of tasks at a time on a delegate executor. Tasks submitted
+ * beyond that limit are queued and picked up as running tasks finish, so callers never block.
+ */
+public final class BoundedExecutor implements Executor {
+
+    private final Executor delegate;
+
+    private final int maximumConcurrency;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger workers = new AtomicInteger();
+
+    public BoundedExecutor(Executor delegate, int maximumConcurrency) {
+        if (maximumConcurrency < 1) {
+            throw new IllegalArgumentException("maximumConcurrency must be at least 1");
+        }
+        this.delegate = delegate;
+        this.maximumConcurrency = maximumConcurrency;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        this.tasks.add(task);
+        startWorkers();
+    }
+
+    private void startWorkers() {
+        while (!this.tasks.isEmpty()) {
+            int running = this.workers.get();
+            if (running >= this.maximumConcurrency) {
+                return;
+            }
+            if (this.workers.compareAndSet(running, running + 1)) {
+                this.delegate.execute(this::work);
+            }
+        }
+    }
+
+    private void work() {
+        try {
+            Runnable task;
+            while ((task = this.tasks.poll()) != null) {
+                task.run();
+            }
+        } finally {
+            this.workers.decrementAndGet();
+            // a task may have been queued after the last poll but before the decrement
+            startWorkers();
+        }
+    }
+}
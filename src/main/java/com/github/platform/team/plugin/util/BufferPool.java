@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public abstract class BufferPool {
+
+    /**
+     * The smallest buffer handed out, in bytes
+     */
+    public static final int MINIMUM_SIZE = 8 * 1024;
+
+    /**
+     * The largest buffer that is pooled, in bytes
+     */
+    public static final int MAXIMUM_SIZE = 256 * 1024;
+
+    private static final int BUFFERS_PER_SIZE = 16;
+
+    private static final int SIZES = Integer.numberOfTrailingZeros(MAXIMUM_SIZE / MINIMUM_SIZE) + 1;
+
+    private static final Bucket[] BUCKETS = new Bucket[SIZES];
+
+    static {
+        for (int i = 0; i < SIZES; i++) {
+            BUCKETS[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Takes a buffer from the JVM-wide pool, or allocates one if none is free. Sizes are rounded up to a power of two
+     * between {@link #MINIMUM_SIZE} and {@link #MAXIMUM_SIZE}, larger requests are allocated and never pooled.
+     *
+     * @param minimumSize The size the buffer needs to have at least
+     * @return A buffer of at least the requested size, its content is undefined
+     */
+    public static byte[] acquire(int minimumSize) {
+        int index = indexOf(minimumSize);
+        if (index >= SIZES) {
+            return new byte[minimumSize];
+        }
+        byte[] buffer = BUCKETS[index].poll();
+        return buffer == null ? new byte[MINIMUM_SIZE << index] : buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers that were not handed out by {@link #acquire(int)} are ignored, and so are
+     * buffers beyond the number kept for each size.
+     *
+     * @param buffer The buffer that is no longer used
+     */
+    public static void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length < MINIMUM_SIZE || length > MAXIMUM_SIZE || Integer.bitCount(length) != 1) {
+            return;
+        }
+        BUCKETS[indexOf(length)].offer(buffer);
+    }
+
+    private static int indexOf(int size) {
+        if (size <= MINIMUM_SIZE) {
+            return 0;
+        }
+        int rounded = Integer.highestOneBit(size - 1) << 1;
+        return rounded <= 0 ? SIZES : Integer.numberOfTrailingZeros(rounded / MINIMUM_SIZE);
+    }
+
+    private static final class Bucket {
+
+        private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private byte[] poll() {
+            byte[] buffer = this.buffers.poll();
+            if (buffer != null) {
+                this.size.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        private void offer(byte[] buffer) {
+            if (this.size.incrementAndGet() <= BUFFERS_PER_SIZE) {
+                this.buffers.offer(buffer);
+            } else {
+                this.size.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public abstract class ExecutorUtils {
+
+    private static final String THREAD_NAME_FORMAT = "aws-maven-%d";
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    private static final ExecutorService ASYNC_EXECUTOR = newVirtualThreadExecutor();
+
+    /**
+     * Returns the JVM-wide executor for background S3 requests. Its threads are daemon threads so that they never
+     * keep Maven from exiting. The pool is unbounded, callers are expected to limit their own parallelism.
+     *
+     * @return The shared executor
+     */
+    public static ExecutorService getExecutor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * Returns the JVM-wide executor for transfers started through the asynchronous wagon API. On Java 21 and later it
+     * starts a virtual thread per task, on older versions it is the executor returned by {@link #getExecutor()}.
+     * Either way callers are expected to limit their own parallelism.
+     *
+     * @return The shared executor
+     */
+    public static ExecutorService getAsyncExecutor() {
+        return ASYNC_EXECUTOR;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        // looked up reflectively so that the plugin still runs on Java 8
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return EXECUTOR;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, String.format(THREAD_NAME_FORMAT, this.count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -16,10 +16,15 @@
 
 package com.github.platform.team.plugin.util;
 
+import com.github.platform.team.plugin.data.TransferProgress;
+
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public abstract class IOUtils {
 
@@ -39,6 +44,71 @@ public abstract class IOUtils {
         }
     }
 
+    /**
+     * Copies a stream into a file channel. Each read fills a pooled buffer before it is written with a single channel
+     * write and reported to {@code transferProgress}. The buffer doubles, up to {@link BufferPool#MAXIMUM_SIZE}, every
+     * time the source fills it, so large transfers need few writes and few notifications while small ones stay small.
+     *
+     * @param in               The stream to read
+     * @param out              The channel to write to, at its current position
+     * @param transferProgress Notified with the content of every write
+     * @return The number of bytes copied
+     * @throws IOException if the stream cannot be read or the channel cannot be written
+     */
+    public static long copy(InputStream in, FileChannel out, TransferProgress transferProgress) throws IOException {
+        byte[] buffer = BufferPool.acquire(BUFFER_SIZE);
+        long count = 0;
+
+        try {
+            while (true) {
+                int filled = fill(in, buffer);
+                if (filled > 0) {
+                    ByteBuffer source = ByteBuffer.wrap(buffer, 0, filled);
+                    while (source.hasRemaining()) {
+                        out.write(source);
+                    }
+                    transferProgress.notify(buffer, filled);
+                    count += filled;
+                }
+                if (filled < buffer.length) {
+                    return count;
+                }
+                if (buffer.length < BufferPool.MAXIMUM_SIZE) {
+                    BufferPool.release(buffer);
+                    buffer = BufferPool.acquire(buffer.length * 2);
+                }
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Reports a region of a file that has been transferred completely. Transfers that move the regions of a file
+     * concurrently call this once a region leads, so the reported bytes stay in file order, at the cost of reading the
+     * region from the file again.
+     *
+     * @param channel          The file
+     * @param start            The position of the first byte of the region
+     * @param end              The position after the last byte of the region
+     * @param buffer           The buffer to read the region into
+     * @param transferProgress Notified with the content of the region
+     * @throws IOException if the file cannot be read
+     */
+    public static void report(FileChannel channel, long start, long end, byte[] buffer,
+                              TransferProgress transferProgress) throws IOException {
+        long position = start;
+        while (position < end) {
+            int read = channel.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - position)),
+                    position);
+            if (read == -1) {
+                throw new EOFException(String.format("Expected %d more bytes", end - position));
+            }
+            transferProgress.notify(buffer, read);
+            position += read;
+        }
+    }
+
     public static void closeQuietly(Closeable... closeables) {
         for (Closeable closeable : closeables) {
             if (closeable != null) {
@@ -51,4 +121,13 @@ public abstract class IOUtils {
         }
     }
 
+    private static int fill(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        int read;
+        while (filled < buffer.length && (read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+        }
+        return filled;
+    }
+
 }
@@ -25,23 +25,60 @@ import java.util.Objects;
 
 import static org.apache.commons.lang3.StringUtils.appendIfMissing;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.StringUtils.split;
 import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
 
 public abstract class S3Utils {
     private static final String KEY_FORMAT = "%s%s";
+    private static final String REGION_PARAMETER = "region=";
 
     public static String getBucketName(Repository repository) {
         Objects.requireNonNull(repository, "repository must not be null");
-        return repository.getHost();
+        return substringBefore(repository.getHost(), "?");
     }
 
     public static String getBaseDirectory(Repository repository) {
         Objects.requireNonNull(repository, "repository must not be null");
-        String basedir = substringAfter(repository.getBasedir(), "/");
+        String basedir = substringAfter(substringBefore(repository.getBasedir(), "?"), "/");
 
         return isNotBlank(basedir) ? appendIfMissing(basedir, "/", "/") : basedir;
     }
 
+    public static String getRegion(Repository repository) {
+        Objects.requireNonNull(repository, "repository must not be null");
+        String query = substringAfter(repository.getUrl(), "?");
+
+        for (String parameter : split(query, '&')) {
+            if (parameter.startsWith(REGION_PARAMETER) && parameter.length() > REGION_PARAMETER.length()) {
+                return parameter.substring(REGION_PARAMETER.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares keys in the order S3 lists them, the order of their UTF-8 bytes. That is the order of their code points,
+     * which differs from {@link String#compareTo(String)} for characters from {@code U+E000} on and those outside the
+     * Basic Multilingual Plane.
+     *
+     * @param key   A key
+     * @param other Another key
+     * @return A negative number, zero or a positive number if {@code key} is listed before, together with or after
+     * {@code other}
+     */
+    public static int compareKeys(String key, String other) {
+        int length = Math.min(key.length(), other.length());
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            char d = other.charAt(i);
+            if (c != d) {
+                return toCodePointOrder(c) - toCodePointOrder(d);
+            }
+        }
+        return key.length() - other.length();
+    }
+
     public static ClientConfiguration getClientConfiguration(ProxyInfoProvider proxyInfoProvider) {
         ClientConfiguration clientConfiguration = new ClientConfiguration();
 
@@ -54,4 +91,12 @@ public abstract class S3Utils {
 
         return clientConfiguration;
     }
+
+    private static int toCodePointOrder(char c) {
+        // surrogates encode code points above U+FFFF, so they belong after the rest of the Basic Multilingual Plane
+        if (c >= Character.MIN_SURROGATE) {
+            return c > Character.MAX_SURROGATE ? c - 0x800 : c + 0x2000;
+        }
+        return c;
+    }
 }
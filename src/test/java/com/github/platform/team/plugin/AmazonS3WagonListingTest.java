@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin;
+
+import com.github.platform.team.plugin.aws.LocalS3Server;
+import org.apache.maven.wagon.WagonException;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.repository.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that directory listings answered from the key index match the listings S3 returns, against a
+ * {@link LocalS3Server} that orders keys like S3.
+ */
+public class AmazonS3WagonListingTest {
+
+    private static final String BUCKET_NAME = "listing";
+
+    // U+FF21 sorts before U+1F600 in UTF-8, but after its surrogates in UTF-16
+    private static final List<String> RESOURCES = Arrays.asList("a/1.0/a.jar", "a/1.0/a.pom", "a-b/1.0/a-b.jar",
+            "a.txt", "a-b.txt", "\uFF21.txt", "\uD83D\uDE00.txt", "\uFF21/b.jar", "\uD83D\uDE00/b.jar");
+
+    private final Repository repository = new Repository("listing", String.format("s3://%s/release", BUCKET_NAME));
+
+    private final AuthenticationInfo authenticationInfo = new AuthenticationInfo();
+
+    private LocalS3Server server;
+
+    private File file;
+
+    private AmazonS3Wagon listingWagon;
+
+    private AmazonS3Wagon indexWagon;
+
+    @Before
+    public void before() throws IOException, WagonException {
+        this.server = new LocalS3Server();
+        this.server.createBucket(BUCKET_NAME);
+        this.server.start();
+        this.authenticationInfo.setUserName("access-key");
+        this.authenticationInfo.setPassword("secret-key");
+
+        this.file = Files.createTempFile("listing", ".jar").toFile();
+        this.listingWagon = newWagon();
+        for (String resource : RESOURCES) {
+            this.listingWagon.put(this.file, resource);
+        }
+        this.indexWagon = newWagon();
+        this.indexWagon.setKeyIndex(true);
+    }
+
+    @After
+    public void after() throws IOException, WagonException {
+        this.listingWagon.disconnect();
+        this.indexWagon.disconnect();
+        this.server.close();
+        Files.delete(this.file.toPath());
+    }
+
+    @Test
+    public void keyIndexListsLikeS3() throws WagonException {
+        for (String directory : Arrays.asList("", "a", "a/", "a/1.0", "a/1.0/", "a-b", "\uFF21", "\uD83D\uDE00/",
+                "a.txt", "missing")) {
+            // WHEN
+            List<String> listed = this.listingWagon.getFileList(directory);
+            List<String> indexed = this.indexWagon.getFileList(directory);
+
+            // THEN
+            assertThat(directory, indexed, equalTo(listed));
+        }
+    }
+
+    @Test
+    public void listingsFollowUtf8Order() throws WagonException {
+        // WHEN
+        List<String> indexed = this.indexWagon.getFileList("");
+
+        // THEN
+        // the marker of the base directory comes first among the files
+        assertThat(indexed, equalTo(Arrays.asList("a-b/", "a/", "\uFF21/", "\uD83D\uDE00/", "", "a-b.txt",
+                "a.txt", "\uFF21.txt", "\uD83D\uDE00.txt")));
+    }
+
+    private AmazonS3Wagon newWagon() throws WagonException {
+        AmazonS3Wagon wagon = new AmazonS3Wagon();
+        wagon.setEndpoint(this.server.getEndpoint());
+        wagon.setPathStyleAccess(true);
+        wagon.setRegionCacheFile("");
+        wagon.connect(this.repository, this.authenticationInfo);
+        return wagon;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItems;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.WagonException;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.repository.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.platform.team.plugin.aws.LocalS3Server;
+
+/**
+ * Drives the wagon through complete connect, put, list, get and disconnect cycles against a {@link LocalS3Server}, so
+ * that requests go through the real S3 client and HTTP stack, and logs the throughput and the latency percentiles
+ * of every operation. It runs with the {@code load} profile, the load can be raised with the {@code load.threads} and
+ * {@code load.cycles} system properties.
+ */
+public class AmazonS3WagonLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AmazonS3WagonLoadTest.class);
+
+    private static final String BUCKET_NAME = "load";
+
+    private static final String THROTTLED_BUCKET_NAME = "throttled";
+
+    private static final int THREADS = Integer.getInteger("load.threads", 4);
+
+    private static final int CYCLES = Integer.getInteger("load.cycles", 10);
+
+    private static final int ARTIFACT_SIZE = 256 * 1024;
+
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private final Repository repository = new Repository("load", String.format("s3://%s/release", BUCKET_NAME));
+
+    // requests are paced per bucket JVM-wide, the throttled bucket keeps its pace away from the other scenarios
+    private final Repository throttledRepository = new Repository("throttled",
+            String.format("s3://%s/release", THROTTLED_BUCKET_NAME));
+
+    private final AuthenticationInfo authenticationInfo = new AuthenticationInfo();
+
+    private LocalS3Server server;
+
+    private File directory;
+
+    private File artifact;
+
+    private File checksum;
+
+    @Before
+    public void before() throws IOException {
+        this.server = new LocalS3Server();
+        this.server.createBucket(BUCKET_NAME);
+        this.server.createBucket(THROTTLED_BUCKET_NAME);
+        this.server.start();
+
+        this.authenticationInfo.setUserName("access-key");
+        this.authenticationInfo.setPassword("secret-key");
+
+        this.directory = Files.createTempDirectory("load").toFile();
+        this.artifact = new File(this.directory, "load.jar");
+        this.checksum = new File(this.directory, "load.jar.sha1");
+        Files.write(this.artifact.toPath(), randomBytes(ARTIFACT_SIZE));
+        Files.write(this.checksum.toPath(), "0123456789abcdef0123456789abcdef01234567".getBytes("UTF-8"));
+    }
+
+    @After
+    public void after() throws IOException {
+        this.server.close();
+        for (File file : this.directory.listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(this.directory.toPath());
+    }
+
+    @Test
+    public void cyclesWithoutFaults() throws Exception {
+        // WHEN
+        LoadReport report = runCycles(this.repository, THREADS, CYCLES);
+
+        // THEN
+        report.log("without faults", this.server);
+        assertThat(report.failures, empty());
+        assertThat(report.count("get"), equalTo(THREADS * CYCLES));
+    }
+
+    @Test
+    public void cyclesWithLatencyAndFaults() throws Exception {
+        // GIVEN
+        this.server.setLatency(2, TimeUnit.MILLISECONDS);
+        this.server.setBandwidth(32L * MEGABYTE);
+        this.server.setSlowDownEvery(25);
+        this.server.setResetEvery(40);
+
+        // WHEN
+        LoadReport report = runCycles(this.repository, THREADS, CYCLES);
+
+        // THEN
+        report.log("with 2 ms latency, 32 MiB/s, a slow down every 25 and a reset every 40 requests", this.server);
+        assertThat(report.failures, empty());
+        assertThat(this.server.getSlowDownCount(), greaterThan(0L));
+        assertThat(this.server.getResetCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void cyclesUnderRateLimit() throws Exception {
+        // GIVEN
+        this.server.setRateLimit(40);
+
+        // WHEN
+        LoadReport report = runCycles(this.throttledRepository, 2 * THREADS, Math.max(1, CYCLES / 2));
+
+        // THEN
+        report.log("limited to 40 reads and 40 writes per second", this.server);
+        assertThat(report.failures, empty());
+        assertThat(this.server.getSlowDownCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void multipartUploadAndRangedDownload() throws Exception {
+        // GIVEN
+        byte[] content = randomBytes(6 * MEGABYTE + 1000);
+        File large = new File(this.directory, "large.zip");
+        Files.write(large.toPath(), content);
+        File downloaded = new File(this.directory, "downloaded.zip");
+        File metrics = new File(this.directory, "metrics.json");
+
+        AmazonS3Wagon wagon = newWagon();
+        wagon.setMultipartThreshold(5 * MEGABYTE);
+        wagon.setRangedDownloadThreshold(MEGABYTE);
+        wagon.setRangedDownloadPartSize(MEGABYTE);
+        wagon.setMetricsFile(metrics.getPath());
+        this.server.setSlowDownEvery(7);
+
+        // WHEN
+        wagon.connect(this.repository, this.authenticationInfo);
+        try {
+            wagon.put(large, "large/large.zip");
+            wagon.get("large/large.zip", downloaded);
+        } finally {
+            wagon.disconnect();
+        }
+
+        // THEN
+        assertArrayEquals(content, this.server.getContent(BUCKET_NAME, "release/large/large.zip"));
+        assertArrayEquals(content, Files.readAllBytes(downloaded.toPath()));
+        String json = new String(Files.readAllBytes(metrics.toPath()), StandardCharsets.UTF_8);
+        assertThat(json, containsString("\"operation\":\"UploadPart\""));
+        assertThat(json, containsString("\"operation\":\"GetObject\""));
+    }
+
+    private LoadReport runCycles(Repository repository, int threads, int cycles) throws Exception {
+        LoadReport report = new LoadReport();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int worker = thread;
+                futures.add(executor.submit(() -> {
+                    for (int cycle = 0; cycle < cycles; cycle++) {
+                        try {
+                            runCycle(repository, String.format("com/example/load/%d.%d/", worker, cycle), report);
+                        } catch (Exception e) {
+                            report.failures.add(e);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            report.elapsed = System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+        return report;
+    }
+
+    private void runCycle(Repository repository, String prefix, LoadReport report) throws WagonException,
+            IOException {
+        Wagon wagon = newWagon();
+        File destination = new File(this.directory, prefix.replace('/', '-') + "load.jar");
+
+        report.time("connect", () -> wagon.connect(repository, this.authenticationInfo));
+        try {
+            report.time("put", () -> wagon.put(this.artifact, prefix + "load.jar"));
+            report.time("put", () -> wagon.put(this.checksum, prefix + "load.jar.sha1"));
+            List<String> files = new ArrayList<>();
+            report.time("getFileList", () -> files.addAll(wagon.getFileList(prefix)));
+            assertThat(files, hasItems("load.jar", "load.jar.sha1"));
+            report.time("get", () -> wagon.get(prefix + "load.jar", destination));
+            assertArrayEquals(Files.readAllBytes(this.artifact.toPath()), Files.readAllBytes(destination.toPath()));
+        } finally {
+            report.time("disconnect", wagon::disconnect);
+        }
+        report.bytes.addAndGet(2L * ARTIFACT_SIZE);
+    }
+
+    private AmazonS3Wagon newWagon() {
+        AmazonS3Wagon wagon = new AmazonS3Wagon();
+        wagon.setEndpoint(this.server.getEndpoint());
+        wagon.setPathStyleAccess(true);
+        wagon.setRegionCacheFile("");
+        return wagon;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private interface Operation {
+
+        void run() throws WagonException;
+    }
+
+    private static final class LoadReport {
+
+        private final Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+
+        private final Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private volatile long elapsed;
+
+        private void time(String operation, Operation body) throws WagonException {
+            long start = System.nanoTime();
+            body.run();
+            this.latencies.computeIfAbsent(operation, name -> new ConcurrentLinkedQueue<>())
+                    .add(System.nanoTime() - start);
+        }
+
+        private int count(String operation) {
+            Queue<Long> samples = this.latencies.get(operation);
+            return samples == null ? 0 : samples.size();
+        }
+
+        private void log(String scenario, LocalS3Server server) {
+            double seconds = this.elapsed / 1e9;
+            StringBuilder report = new StringBuilder(String.format(
+                    "Load test %s: %d requests in %.2f s, %.1f requests/s, %.1f MiB/s transferred, "
+                            + "%d slow downs and %d resets injected, %d failures%n",
+                    scenario, server.getRequestCount(), seconds, server.getRequestCount() / seconds,
+                    this.bytes.get() / seconds / MEGABYTE, server.getSlowDownCount(), server.getResetCount(),
+                    this.failures.size()));
+            for (Map.Entry<String, Queue<Long>> entry : new TreeMap<>(this.latencies).entrySet()) {
+                List<Long> samples = new ArrayList<>(entry.getValue());
+                Collections.sort(samples);
+                report.append(String.format("  %-12s %5d ops  p50 %8.2f ms  p90 %8.2f ms  p99 %8.2f ms  max %8.2f ms%n",
+                        entry.getKey(), samples.size(), percentile(samples, 0.5), percentile(samples, 0.9),
+                        percentile(samples, 0.99), samples.get(samples.size() - 1) / 1e6));
+            }
+            LOGGER.info(report.toString().trim());
+        }
+
+        private static double percentile(List<Long> sorted, double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+            return sorted.get(Math.max(0, index)) / 1e6;
+        }
+    }
+}
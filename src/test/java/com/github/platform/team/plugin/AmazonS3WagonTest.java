@@ -17,43 +17,69 @@
 package com.github.platform.team.plugin;
 
 import static com.github.platform.team.plugin.maven.matchers.Matchers.eq;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.TransferFailedException;
 import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.authorization.AuthorizationException;
 import org.apache.maven.wagon.repository.Repository;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ListObjectsRequest;
-import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.cache.ResourceMetadata;
 import com.github.platform.team.plugin.data.TransferProgress;
 
 public class AmazonS3WagonTest {
@@ -68,7 +94,7 @@ public class AmazonS3WagonTest {
 
     private final ObjectMetadata objectMetadata = mock(ObjectMetadata.class);
 
-    private final ObjectListing objectListing = mock(ObjectListing.class);
+    private final ListObjectsV2Result listing = mock(ListObjectsV2Result.class);
 
     private final S3ObjectSummary s3ObjectSummary = mock(S3ObjectSummary.class);
 
@@ -119,21 +145,176 @@ public class AmazonS3WagonTest {
     }
 
     @Test
-    public void doesRemoteResourceExistExists() {
+    public void doesRemoteResourceExistExists() throws WagonException {
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
                 .thenReturn(this.objectMetadata);
         assertTrue(this.wagon.doesRemoteResourceExist(FILE_NAME));
     }
 
     @Test
-    public void doesRemoteResourceExistDoesNotExist() {
+    public void doesRemoteResourceExistDoesNotExist() throws WagonException {
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
-                .thenThrow(new AmazonServiceException(""));
+                .thenThrow(serviceException(404));
+        assertFalse(this.wagon.doesRemoteResourceExist(FILE_NAME));
+    }
+
+    @Test
+    public void doesRemoteResourceExistCachesMissing() throws WagonException {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(404));
+
+        // WHEN
+        assertFalse(this.wagon.doesRemoteResourceExist(FILE_NAME));
+        assertFalse(this.wagon.doesRemoteResourceExist(FILE_NAME));
+
+        // THEN
+        verify(this.amazonS3, times(1)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void doesRemoteResourceExistWithoutNegativeCache() throws WagonException {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(404));
+        this.wagon.setNegativeCacheTtl(0);
+
+        // WHEN
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+
+        // THEN
+        verify(this.amazonS3, times(2)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void doesRemoteResourceExistDoesNotCacheFailures() throws WagonException {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(503))
+                .thenReturn(this.objectMetadata);
+
+        // WHEN
+        try {
+            this.wagon.doesRemoteResourceExist(FILE_NAME);
+            fail("Expected TransferFailedException");
+        } catch (TransferFailedException e) {
+            // expected
+        }
+
+        // THEN
+        assertTrue(this.wagon.doesRemoteResourceExist(FILE_NAME));
+    }
+
+    @Test(expected = AuthorizationException.class)
+    public void doesRemoteResourceExistForbidden() throws WagonException {
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(403));
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+    }
+
+    @Test(expected = TransferFailedException.class)
+    public void doesRemoteResourceExistNetworkFailure() throws WagonException {
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(new SdkClientException("Connection reset"));
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+    }
+
+    @Test
+    public void putResourceInvalidatesMissing() throws WagonException {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(404))
+                .thenReturn(this.objectMetadata);
         assertFalse(this.wagon.doesRemoteResourceExist(FILE_NAME));
+
+        // WHEN
+        this.wagon.putResource(new File("src/test/resources/test.txt"), FILE_NAME, this.transferProgress);
+
+        // THEN
+        assertTrue(this.wagon.doesRemoteResourceExist(FILE_NAME));
+    }
+
+    @Test
+    public void doesRemoteResourceExistCachesMetadata() throws WagonException {
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.objectMetadata);
+
+        assertTrue(this.wagon.doesRemoteResourceExist(FILE_NAME));
+        assertTrue(this.wagon.doesRemoteResourceExist(FILE_NAME));
+
+        verify(this.amazonS3, times(1)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
     }
 
     @Test
-    public void isRemoteResourceNewerNewer() throws ResourceDoesNotExistException {
+    public void doesRemoteResourceExistWithoutMetadataCache() throws WagonException {
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.objectMetadata);
+        this.wagon.setMetadataCacheTtl(0);
+
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+
+        verify(this.amazonS3, times(2)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void isRemoteResourceNewerUsesMetadataOfGet() throws Exception {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setLastModified(new Date(1000));
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent())
+                .thenReturn(new S3ObjectInputStream(new FileInputStream("src/test/resources/test.txt"), null));
+        this.wagon.getResource(FILE_NAME, new File("target/robots.txt"), this.transferProgress);
+
+        assertTrue(this.wagon.isRemoteResourceNewer(FILE_NAME, 999));
+        assertFalse(this.wagon.isRemoteResourceNewer(FILE_NAME, 1000));
+
+        verify(this.amazonS3, times(0)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void getResourceMetadataAnswersLaterChecks() throws WagonException {
+        // GIVEN
+        ListObjectsV2Result page = new ListObjectsV2Result();
+        for (String name : Arrays.asList("a.jar", "a.pom", "b.jar")) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(BASE_DIRECTORY + name);
+            summary.setLastModified(new Date(1000));
+            page.getObjectSummaries().add(summary);
+        }
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page);
+        this.wagon.setBatchListThreshold(2);
+
+        // WHEN
+        Map<String, ResourceMetadata> metadata = this.wagon.getResourceMetadata(
+                Arrays.asList("a.jar", "a.pom", "c.jar"));
+
+        // THEN
+        assertEquals(new HashSet<>(Arrays.asList("a.jar", "a.pom")), metadata.keySet());
+        assertTrue(this.wagon.doesRemoteResourceExist("a.jar"));
+        assertFalse(this.wagon.doesRemoteResourceExist("c.jar"));
+        assertTrue(this.wagon.isRemoteResourceNewer("a.pom", 999));
+        verify(this.amazonS3, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(this.amazonS3, times(0)).getObjectMetadata(any(String.class), any(String.class));
+    }
+
+    @Test
+    public void putResourceInvalidatesMetadata() throws WagonException {
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.objectMetadata);
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+
+        this.wagon.putResource(new File("src/test/resources/test.txt"), FILE_NAME, this.transferProgress);
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+
+        verify(this.amazonS3, times(2)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void isRemoteResourceNewerNewer() throws WagonException {
         when(this.objectMetadata.getLastModified()).thenReturn(new Date());
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
                 .thenReturn(this.objectMetadata);
@@ -142,7 +323,7 @@ public class AmazonS3WagonTest {
     }
 
     @Test
-    public void isRemoteResourceNewerOlder() throws ResourceDoesNotExistException {
+    public void isRemoteResourceNewerOlder() throws WagonException {
         when(this.objectMetadata.getLastModified()).thenReturn(new Date());
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
                 .thenReturn(this.objectMetadata);
@@ -151,7 +332,7 @@ public class AmazonS3WagonTest {
     }
 
     @Test
-    public void isRemoteResourceNewerNoLastModified() throws ResourceDoesNotExistException {
+    public void isRemoteResourceNewerNoLastModified() throws WagonException {
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
                 .thenReturn(this.objectMetadata);
 
@@ -159,23 +340,22 @@ public class AmazonS3WagonTest {
     }
 
     @Test(expected = ResourceDoesNotExistException.class)
-    public void isRemoteResourceNewerDoesNotExist() throws ResourceDoesNotExistException {
+    public void isRemoteResourceNewerDoesNotExist() throws WagonException {
         when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
-                .thenThrow(new AmazonServiceException(""));
+                .thenThrow(serviceException(404));
         this.wagon.isRemoteResourceNewer(FILE_NAME, 0);
     }
 
     @Test
     public void listDirectoryTopLevel() throws ResourceDoesNotExistException {
-        ListObjectsRequest listObjectsRequest = new ListObjectsRequest() //
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request() //
                 .withBucketName(BUCKET_NAME) //
                 .withPrefix(BASE_DIRECTORY) //
                 .withDelimiter("/");
 
-        when(this.amazonS3.listObjects(eq(listObjectsRequest))).thenReturn(this.objectListing);
-        when(this.objectListing.isTruncated()).thenReturn(true, false);
-        when(this.objectListing.getCommonPrefixes()).thenReturn(Arrays.asList("foo/"));
-        when(this.objectListing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
+        when(this.amazonS3.listObjectsV2(eq(listObjectsRequest))).thenReturn(this.listing);
+        when(this.listing.getCommonPrefixes()).thenReturn(Arrays.asList("foo/"));
+        when(this.listing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
         when(this.s3ObjectSummary.getKey()).thenReturn(BASE_DIRECTORY + FILE_NAME);
 
         List<String> directoryContents = this.wagon.listDirectory("");
@@ -185,15 +365,14 @@ public class AmazonS3WagonTest {
 
     @Test
     public void listDirectoryTopNested() throws ResourceDoesNotExistException {
-        ListObjectsRequest listObjectsRequest = new ListObjectsRequest() //
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request() //
                 .withBucketName(BUCKET_NAME) //
                 .withPrefix(BASE_DIRECTORY + "release/") //
                 .withDelimiter("/");
 
-        when(this.amazonS3.listObjects(eq(listObjectsRequest))).thenReturn(this.objectListing);
-        when(this.objectListing.isTruncated()).thenReturn(true, false);
-        when(this.objectListing.getCommonPrefixes()).thenReturn(Arrays.asList("foo/"));
-        when(this.objectListing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
+        when(this.amazonS3.listObjectsV2(eq(listObjectsRequest))).thenReturn(this.listing);
+        when(this.listing.getCommonPrefixes()).thenReturn(Arrays.asList("foo/"));
+        when(this.listing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
         when(this.s3ObjectSummary.getKey()).thenReturn(BASE_DIRECTORY + "release/robots.txt");
 
         List<String> directoryContents = this.wagon.listDirectory("release/");
@@ -201,19 +380,114 @@ public class AmazonS3WagonTest {
         assertFalse(directoryContents.contains("frogs.txt"));
     }
 
+    @Test
+    public void listDirectoryFollowsContinuationTokens() throws ResourceDoesNotExistException {
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request() //
+                .withBucketName(BUCKET_NAME) //
+                .withPrefix(BASE_DIRECTORY) //
+                .withDelimiter("/");
+        ListObjectsV2Result firstPage = mock(ListObjectsV2Result.class);
+        when(firstPage.isTruncated()).thenReturn(true);
+        when(firstPage.getNextContinuationToken()).thenReturn("token");
+        when(firstPage.getCommonPrefixes()).thenReturn(Arrays.asList(BASE_DIRECTORY + "foo/"));
+
+        when(this.amazonS3.listObjectsV2(eq(listObjectsRequest))).thenReturn(firstPage);
+        when(this.amazonS3.listObjectsV2(eq(new ListObjectsV2Request() //
+                .withBucketName(BUCKET_NAME) //
+                .withPrefix(BASE_DIRECTORY) //
+                .withDelimiter("/") //
+                .withContinuationToken("token")))).thenReturn(this.listing);
+        when(this.listing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
+        when(this.s3ObjectSummary.getKey()).thenReturn(BASE_DIRECTORY + FILE_NAME);
+
+        List<String> directoryContents = this.wagon.listDirectory("");
+        assertEquals(Arrays.asList("foo/", FILE_NAME), directoryContents);
+        verify(this.amazonS3, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void getFileIterator() {
+        ListObjectsV2Result firstPage = mock(ListObjectsV2Result.class);
+        when(firstPage.getCommonPrefixes()).thenReturn(Arrays.asList(BASE_DIRECTORY + "foo/"));
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstPage);
+
+        Iterator<String> files = this.wagon.getFileIterator("");
+        assertEquals("foo/", files.next());
+        assertFalse(files.hasNext());
+        verify(this.amazonS3, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
     @Test(expected = ResourceDoesNotExistException.class)
     public void listDirectoryDoesNotExist() throws ResourceDoesNotExistException {
-        ListObjectsRequest listObjectsRequest = new ListObjectsRequest() //
+        ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request() //
                 .withBucketName(BUCKET_NAME) //
-                .withPrefix(BASE_DIRECTORY + "frogs") //
+                .withPrefix(BASE_DIRECTORY + "frogs/") //
                 .withDelimiter("/");
 
-        when(this.amazonS3.listObjects(eq(listObjectsRequest))).thenThrow(new AmazonServiceException(""));
+        when(this.amazonS3.listObjectsV2(eq(listObjectsRequest))).thenThrow(new AmazonServiceException(""));
         this.wagon.listDirectory("frogs");
     }
 
     @Test
-    public void getResource() throws TransferFailedException, FileNotFoundException, ResourceDoesNotExistException {
+    public void listDirectoryFromKeyIndex() throws WagonException {
+        // GIVEN
+        ListObjectsV2Result topLevel = mock(ListObjectsV2Result.class);
+        when(topLevel.getCommonPrefixes()).thenReturn(Arrays.asList(BASE_DIRECTORY + "release/"));
+        when(topLevel.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
+        when(this.s3ObjectSummary.getKey()).thenReturn(BASE_DIRECTORY + FILE_NAME);
+        when(this.amazonS3.listObjectsV2(eq(new ListObjectsV2Request() //
+                .withBucketName(BUCKET_NAME) //
+                .withPrefix(BASE_DIRECTORY) //
+                .withDelimiter("/")))).thenReturn(topLevel);
+
+        S3ObjectSummary nested = mock(S3ObjectSummary.class);
+        when(nested.getKey()).thenReturn(BASE_DIRECTORY + "release/1.0/robots.txt");
+        when(this.listing.getObjectSummaries()).thenReturn(Arrays.asList(nested));
+        when(this.amazonS3.listObjectsV2(eq(new ListObjectsV2Request() //
+                .withBucketName(BUCKET_NAME) //
+                .withPrefix(BASE_DIRECTORY + "release/")))).thenReturn(this.listing);
+        this.wagon.setKeyIndex(true);
+
+        // WHEN
+        List<String> topLevelContents = this.wagon.listDirectory("");
+        List<String> nestedContents = this.wagon.listDirectory("release/1.0/");
+        this.wagon.putResource(new File("src/test/resources/test.txt"), "release/1.0/test.txt",
+                this.transferProgress);
+
+        // THEN
+        assertEquals(Arrays.asList("release/", FILE_NAME), topLevelContents);
+        assertEquals(Arrays.asList(FILE_NAME), nestedContents);
+        assertEquals(Arrays.asList("", FILE_NAME, "test.txt"), this.wagon.listDirectory("release/1.0/"));
+        verify(this.amazonS3, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void listDirectoryReloadsExpiredKeyIndex() throws ResourceDoesNotExistException {
+        // GIVEN
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(this.listing);
+        when(this.listing.getObjectSummaries()).thenReturn(Arrays.asList(this.s3ObjectSummary));
+        when(this.s3ObjectSummary.getKey()).thenReturn(BASE_DIRECTORY + FILE_NAME);
+        this.wagon.setKeyIndex(true);
+        this.wagon.setKeyIndexTtl(0);
+
+        // WHEN
+        this.wagon.listDirectory("");
+        List<String> directoryContents = this.wagon.listDirectory("");
+
+        // THEN
+        assertEquals(Arrays.asList(FILE_NAME), directoryContents);
+        verify(this.amazonS3, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test(expected = ResourceDoesNotExistException.class)
+    public void listDirectoryKeyIndexFailure() throws ResourceDoesNotExistException {
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenThrow(serviceException(403));
+        this.wagon.setKeyIndex(true);
+        this.wagon.listDirectory("");
+    }
+
+    @Test
+    public void getResource() throws WagonException, FileNotFoundException {
         when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
                 .thenReturn(this.s3Object);
         when(this.s3Object.getObjectContent())
@@ -228,12 +502,201 @@ public class AmazonS3WagonTest {
         assertTrue(target.exists());
     }
 
+    @Test
+    public void getResourceRanged() throws Exception {
+        File source = new File("src/test/resources/test.txt");
+        byte[] content = Files.readAllBytes(source.toPath());
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent())
+                .thenReturn(new S3ObjectInputStream(new FileInputStream(source), null));
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            long[] range = ((GetObjectRequest) invocation.getArgument(0)).getRange();
+            S3Object part = new S3Object();
+            part.setObjectContent(new ByteArrayInputStream(
+                    Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1)));
+            return part;
+        });
+        this.wagon.setRangedDownloadThreshold(1);
+        this.wagon.setRangedDownloadPartSize(10);
+
+        File target = new File("target/robots.txt");
+        target.delete();
+
+        this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+
+        assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        verify(this.amazonS3, times((content.length - 1) / 10)).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    public void getResourceServesUnchangedContentFromCache() throws Exception {
+        // GIVEN
+        File source = new File("src/test/resources/test.txt");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag-1");
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent())
+                .thenReturn(new S3ObjectInputStream(new FileInputStream(source), null));
+        this.wagon.setContentCacheDirectory(newContentCacheDirectory());
+        this.wagon.getResource(FILE_NAME, new File("target/robots.txt"), this.transferProgress);
+
+        File target = new File("target/robots-cached.txt");
+        target.delete();
+
+        // WHEN
+        this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+
+        // THEN
+        assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(target.toPath()));
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(this.amazonS3).getObject(request.capture());
+        assertEquals(Collections.singletonList("etag-1"), request.getValue().getNonmatchingETagConstraints());
+        verify(this.amazonS3, times(1)).getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void getResourceDownloadsChangedContent() throws Exception {
+        // GIVEN
+        File source = new File("src/test/resources/test.txt");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "etag-1");
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent())
+                .thenReturn(new S3ObjectInputStream(new FileInputStream(source), null));
+        this.wagon.setContentCacheDirectory(newContentCacheDirectory());
+        this.wagon.getResource(FILE_NAME, new File("target/robots.txt"), this.transferProgress);
+
+        S3Object changed = new S3Object();
+        changed.getObjectMetadata().setHeader("ETag", "etag-2");
+        changed.setObjectContent(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(changed);
+
+        File target = new File("target/robots-changed.txt");
+
+        // WHEN
+        this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+
+        // THEN
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void getResourceIfNewerModified() throws Exception {
+        // GIVEN
+        S3Object modified = new S3Object();
+        modified.setObjectContent(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(modified);
+        File target = new File("target/robots-newer.txt");
+
+        // WHEN
+        boolean newer = this.wagon.getResourceIfNewer(FILE_NAME, target, 1000, this.transferProgress);
+
+        // THEN
+        assertTrue(newer);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(target.toPath()));
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(this.amazonS3).getObject(request.capture());
+        assertEquals(new Date(1000), request.getValue().getModifiedSinceConstraint());
+        verify(this.amazonS3, times(0)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test
+    public void getResourceIfNewerNotModified() throws Exception {
+        // GIVEN
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(null);
+
+        // WHEN
+        boolean newer = this.wagon.getResourceIfNewer(FILE_NAME, new File("target/robots-newer.txt"), 1000,
+                this.transferProgress);
+
+        // THEN
+        assertFalse(newer);
+        verify(this.amazonS3, times(1)).getObject(any(GetObjectRequest.class));
+        verify(this.amazonS3, times(0)).getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test(expected = ResourceDoesNotExistException.class)
+    public void getResourceIfNewerDoesNotExist() throws Exception {
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenThrow(serviceException(404));
+        this.wagon.getResourceIfNewer(FILE_NAME, new File("target/robots-newer.txt"), 1000, this.transferProgress);
+    }
+
     @Test(expected = ResourceDoesNotExistException.class)
-    public void getResourceSourceDoesNotExist() throws TransferFailedException, ResourceDoesNotExistException {
+    public void getResourceSourceDoesNotExist() throws WagonException {
         when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
-                .thenThrow(new AmazonServiceException(""));
+                .thenThrow(serviceException(404));
+        File target = new File("target/robots.txt");
+        this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+    }
+
+    @Test
+    public void getResourceUsesMissingOfHead() throws WagonException {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(404));
+        this.wagon.doesRemoteResourceExist(FILE_NAME);
+
+        // WHEN
+        try {
+            this.wagon.getResource(FILE_NAME, new File("target/robots.txt"), this.transferProgress);
+            fail("Expected ResourceDoesNotExistException");
+        } catch (ResourceDoesNotExistException e) {
+            // expected
+        }
+
+        // THEN
+        verify(this.amazonS3, times(0)).getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME);
+    }
+
+    @Test(expected = TransferFailedException.class)
+    public void getResourceThrottled() throws WagonException {
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(503));
+        this.wagon.getResource(FILE_NAME, new File("target/robots.txt"), this.transferProgress);
+    }
+
+    @Test
+    public void getResourceCorruptContent() throws Exception {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", "00000000000000000000000000000000");
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent())
+                .thenReturn(new S3ObjectInputStream(new FileInputStream("src/test/resources/test.txt"), null));
+
+        File target = new File("target/robots.txt");
+        try {
+            this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+            fail("Exception must occur");
+        } catch (TransferFailedException e) {
+            assertFalse(target.exists());
+        }
+    }
+
+    @Test
+    public void getResourceVerifiesContent() throws Exception {
+        File source = new File("src/test/resources/test.txt");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader("ETag", BinaryUtils.toHex(
+                MessageDigest.getInstance("MD5").digest(Files.readAllBytes(source.toPath()))));
+        when(this.amazonS3.getObject(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(this.s3Object);
+        when(this.s3Object.getObjectMetadata()).thenReturn(metadata);
+        when(this.s3Object.getObjectContent()).thenReturn(new S3ObjectInputStream(new FileInputStream(source), null));
+
         File target = new File("target/robots.txt");
         this.wagon.getResource(FILE_NAME, target, this.transferProgress);
+
+        assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(target.toPath()));
     }
 
     @Test
@@ -244,7 +707,9 @@ public class AmazonS3WagonTest {
         ArgumentCaptor<PutObjectRequest> putObjectRequest = ArgumentCaptor.forClass(PutObjectRequest.class);
         verify(this.amazonS3, times(3)).putObject(putObjectRequest.capture());
 
-        List<PutObjectRequest> putObjectRequests = putObjectRequest.getAllValues();
+        // directory markers are written concurrently with the file, so the order of the requests is not fixed
+        List<PutObjectRequest> putObjectRequests = new ArrayList<>(putObjectRequest.getAllValues());
+        putObjectRequests.sort(Comparator.comparing(PutObjectRequest::getKey));
         for (int i = 0; i < 2; i++) {
             assertEquals(BUCKET_NAME, putObjectRequests.get(i).getBucketName());
             assertNotNull(putObjectRequests.get(i).getInputStream());
@@ -267,6 +732,79 @@ public class AmazonS3WagonTest {
         assertEquals("text/plain", objectMetadata.getContentType());
     }
 
+    @Test
+    public void putResourceSkipsIdenticalFile() throws Exception {
+        // GIVEN
+        File file = new File("src/test/resources/test.txt");
+        ObjectMetadata remote = new ObjectMetadata();
+        remote.setContentLength(file.length());
+        remote.setHeader("ETag", BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(
+                Files.readAllBytes(file.toPath()))));
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(remote);
+        this.wagon.setSkipIdenticalUploads(true);
+
+        // WHEN
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        // THEN
+        verify(this.amazonS3, times(0)).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void putResourceReportsSkippedFile() throws Exception {
+        // GIVEN
+        File file = new File("src/test/resources/test.txt");
+        ObjectMetadata remote = new ObjectMetadata();
+        remote.setContentLength(file.length());
+        remote.setHeader("ETag", BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(
+                Files.readAllBytes(file.toPath()))));
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(remote);
+        this.wagon.setSkipIdenticalUploads(true);
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+
+        // WHEN
+        this.wagon.putResource(file, FILE_NAME, (buffer, length) -> reported.write(buffer, 0, length));
+
+        // THEN
+        assertArrayEquals(Files.readAllBytes(file.toPath()), reported.toByteArray());
+    }
+
+    @Test
+    public void putResourceUploadsChangedFile() throws Exception {
+        // GIVEN
+        File file = new File("src/test/resources/test.txt");
+        ObjectMetadata remote = new ObjectMetadata();
+        remote.setContentLength(file.length());
+        remote.setHeader("ETag", "0123456789abcdef0123456789abcdef");
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenReturn(remote);
+        this.wagon.setSkipIdenticalUploads(true);
+        this.wagon.setDirectoryMarkers(false);
+
+        // WHEN
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        // THEN
+        verify(this.amazonS3, times(1)).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void putResourceUploadsMissingFile() throws Exception {
+        // GIVEN
+        when(this.amazonS3.getObjectMetadata(AmazonS3WagonTest.BUCKET_NAME, BASE_DIRECTORY + FILE_NAME))
+                .thenThrow(serviceException(404));
+        this.wagon.setSkipIdenticalUploads(true);
+        this.wagon.setDirectoryMarkers(false);
+
+        // WHEN
+        this.wagon.putResource(new File("src/test/resources/test.txt"), FILE_NAME, this.transferProgress);
+
+        // THEN
+        verify(this.amazonS3, times(1)).putObject(any(PutObjectRequest.class));
+    }
+
     @Test(expected = TransferFailedException.class)
     public void putResourceMkdirException() throws TransferFailedException, ResourceDoesNotExistException {
         when(this.amazonS3.putObject(any(PutObjectRequest.class))).thenThrow(new AmazonServiceException(""));
@@ -281,4 +819,174 @@ public class AmazonS3WagonTest {
         File file = new File("src/test/resources/test.txt");
         this.wagon.putResource(file, FILE_NAME, this.transferProgress);
     }
+
+    @Test
+    public void putResourceSmallObject() throws Exception {
+        this.wagon.setDirectoryMarkers(false);
+        File file = new File("src/test/resources/test.txt");
+        byte[] content = Files.readAllBytes(file.toPath());
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        ArgumentCaptor<PutObjectRequest> putObjectRequest = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(this.amazonS3).putObject(putObjectRequest.capture());
+        ObjectMetadata objectMetadata = putObjectRequest.getValue().getMetadata();
+        assertEquals(content.length, objectMetadata.getContentLength());
+        assertEquals(BinaryUtils.toBase64(MessageDigest.getInstance("MD5").digest(content)),
+                objectMetadata.getContentMD5());
+        assertTrue(putObjectRequest.getValue().getInputStream() instanceof ByteArrayInputStream);
+        verify(this.transferProgress).notify(any(byte[].class), eq(content.length));
+    }
+
+    @Test
+    public void putResourceCapsSmallObjectThreshold() throws Exception {
+        this.wagon.setDirectoryMarkers(false);
+        this.wagon.setSmallObjectThreshold(Long.MAX_VALUE);
+        this.wagon.setMultipartThreshold(Long.MAX_VALUE);
+        File file = new File("target/large-small-object.bin");
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(16L * 1024 * 1024 + 1);
+        }
+
+        try {
+            this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+            ArgumentCaptor<PutObjectRequest> putObjectRequest = ArgumentCaptor.forClass(PutObjectRequest.class);
+            verify(this.amazonS3).putObject(putObjectRequest.capture());
+            assertFalse(putObjectRequest.getValue().getInputStream() instanceof ByteArrayInputStream);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = TransferFailedException.class)
+    public void putResourceCorruptUpload() throws WagonException {
+        this.wagon.setDirectoryMarkers(false);
+        this.wagon.setSmallObjectThreshold(0);
+        PutObjectResult putObjectResult = new PutObjectResult();
+        putObjectResult.setETag("00000000000000000000000000000000");
+        when(this.amazonS3.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            byte[] buffer = new byte[1024];
+            while (((PutObjectRequest) invocation.getArgument(0)).getInputStream().read(buffer) != -1) {
+                // the upload reads the whole content
+            }
+            return putObjectResult;
+        });
+        this.wagon.putResource(new File("src/test/resources/test.txt"), FILE_NAME, this.transferProgress);
+    }
+
+    @Test
+    public void putResourceMultipart() throws TransferFailedException, ResourceDoesNotExistException {
+        when(this.amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(new InitiateMultipartUploadResult());
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenReturn(new UploadPartResult());
+        this.wagon.setMultipartThreshold(1);
+
+        File file = new File("src/test/resources/test.txt");
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        ArgumentCaptor<UploadPartRequest> uploadPartRequest = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(this.amazonS3).uploadPart(uploadPartRequest.capture());
+        assertEquals(BASE_DIRECTORY + FILE_NAME, uploadPartRequest.getValue().getKey());
+        assertEquals(file.length(), uploadPartRequest.getValue().getPartSize());
+        verify(this.amazonS3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(this.amazonS3, times(2)).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test(expected = TransferFailedException.class)
+    public void putResourceMultipartException() throws TransferFailedException, ResourceDoesNotExistException {
+        when(this.amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenThrow(new AmazonServiceException(""));
+        this.wagon.setMultipartThreshold(1);
+
+        File file = new File("src/test/resources/test.txt");
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+    }
+
+    @Test
+    public void putResourceWritesEachDirectoryMarkerOnce() throws TransferFailedException,
+            ResourceDoesNotExistException {
+        File file = new File("src/test/resources/test.txt");
+        List<String> deployedFiles = deployModules(this.wagon, file);
+
+        // 5 shared markers (foo/ to com/example/project/) and 2 per module, instead of 7 for every file
+        verify(this.amazonS3, times(deployedFiles.size() + 5 + 2 * 3)).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void putResourceWithoutDirectoryMarkers() throws TransferFailedException, ResourceDoesNotExistException {
+        this.wagon.setDirectoryMarkers(false);
+        File file = new File("src/test/resources/test.txt");
+        List<String> deployedFiles = deployModules(this.wagon, file);
+
+        verify(this.amazonS3, times(deployedFiles.size())).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void putResourceSharesDirectoryMarkers() throws TransferFailedException, ResourceDoesNotExistException {
+        AmazonS3Wagon sharingWagon = new AmazonS3Wagon(this.amazonS3, "s3.shared.bucket", BASE_DIRECTORY);
+        sharingWagon.setShareDirectoryMarkers(true);
+        AmazonS3Wagon otherSharingWagon = new AmazonS3Wagon(this.amazonS3, "s3.shared.bucket", BASE_DIRECTORY);
+        otherSharingWagon.setShareDirectoryMarkers(true);
+        File file = new File("src/test/resources/test.txt");
+
+        sharingWagon.putResource(file, FILE_NAME, this.transferProgress);
+        otherSharingWagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        verify(this.amazonS3, times(2 + 2)).putObject(any(PutObjectRequest.class));
+    }
+
+    @Test
+    public void putResourceReleasesDirectoryMarkersOfFailedUpload() throws TransferFailedException,
+            ResourceDoesNotExistException {
+        // GIVEN
+        when(this.amazonS3.putObject(any(PutObjectRequest.class))).thenThrow(new SdkClientException(""))
+                .thenReturn(new PutObjectResult());
+        when(this.amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenThrow(new AmazonServiceException("")).thenReturn(new InitiateMultipartUploadResult());
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenReturn(new UploadPartResult());
+        this.wagon.setMultipartThreshold(1);
+        File file = new File("src/test/resources/test.txt");
+
+        // WHEN
+        try {
+            this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+            fail();
+        } catch (TransferFailedException e) {
+            // the upload failure is reported, not the marker failure
+        }
+        this.wagon.putResource(file, FILE_NAME, this.transferProgress);
+
+        // THEN
+        verify(this.amazonS3, times(1 + 2)).putObject(any(PutObjectRequest.class));
+    }
+
+    private List<String> deployModules(AmazonS3Wagon wagon, File file) throws TransferFailedException,
+            ResourceDoesNotExistException {
+        List<String> deployedFiles = new ArrayList<>();
+        for (int module = 1; module <= 3; module++) {
+            String directory = String.format("com/example/project/module-%d/1.0/", module);
+            String artifact = String.format("module-%d-1.0", module);
+            for (String extension : Arrays.asList(".jar", ".jar.sha1", ".jar.md5", ".pom", ".pom.sha1", ".pom.md5")) {
+                wagon.putResource(file, directory + artifact + extension, this.transferProgress);
+                deployedFiles.add(directory + artifact + extension);
+            }
+        }
+        return deployedFiles;
+    }
+
+    private static String newContentCacheDirectory() throws IOException {
+        Path directory = new File("target/wagon-content-cache").toPath();
+        if (Files.exists(directory)) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        return directory.toString();
+    }
+
+    private static AmazonServiceException serviceException(int statusCode) {
+        AmazonServiceException exception = new AmazonServiceException("");
+        exception.setStatusCode(statusCode);
+        return exception;
+    }
 }
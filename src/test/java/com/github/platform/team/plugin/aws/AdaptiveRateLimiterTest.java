@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, this.clock::get);
+
+    @Test
+    public void reserveDoesNotLimitBeforeThrottling() {
+        // WHEN
+        long first = this.limiter.reserve();
+        long second = this.limiter.reserve();
+
+        // THEN
+        assertThat(first, equalTo(0L));
+        assertThat(second, equalTo(0L));
+        assertThat(this.limiter.getRate(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void onThrottleCutsTheSendRate() {
+        // GIVEN
+        sendPerSecond(100, 2);
+
+        // WHEN
+        this.limiter.onThrottle(this.clock.get());
+
+        // THEN
+        assertThat(this.limiter.getRate(), closeTo(80, 1));
+    }
+
+    @Test
+    public void reservePacesRequests() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        this.limiter.onThrottle(this.clock.get());
+        long now = this.clock.get();
+
+        // WHEN
+        long first = this.limiter.reserve();
+        long second = this.limiter.reserve();
+
+        // THEN
+        double interval = SECOND / this.limiter.getRate();
+        assertThat((double) (first - now), closeTo(interval, 1000));
+        assertThat((double) (second - now), closeTo(2 * interval, 1000));
+    }
+
+    @Test
+    public void onThrottleIgnoresRequestsSentBeforeTheLastCut() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        long sentAt = this.clock.get();
+        this.clock.addAndGet(SECOND / 100);
+        this.limiter.onThrottle(sentAt);
+        double rate = this.limiter.getRate();
+
+        // WHEN
+        this.limiter.onThrottle(sentAt);
+
+        // THEN
+        assertThat(this.limiter.getRate(), equalTo(rate));
+    }
+
+    @Test
+    public void onThrottleCutsAgainForRequestsSentAfterTheLastCut() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        this.limiter.onThrottle(this.clock.get());
+        double rate = this.limiter.getRate();
+        this.clock.addAndGet(SECOND / 10);
+
+        // WHEN
+        this.limiter.onThrottle(this.limiter.reserve());
+
+        // THEN
+        assertThat(this.limiter.getRate(), closeTo(rate * 0.8, 1));
+    }
+
+    @Test
+    public void onThrottleDoesNotCutBelowTheMinimum() {
+        // WHEN
+        for (int i = 0; i < 20; i++) {
+            this.limiter.onThrottle(this.limiter.reserve());
+            this.clock.addAndGet(SECOND);
+        }
+
+        // THEN
+        assertThat(this.limiter.getRate(), equalTo(1.0));
+    }
+
+    @Test
+    public void onSuccessRaisesTheRateAdditively() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        this.limiter.onThrottle(this.clock.get());
+
+        // WHEN
+        sendPerSecond(100, 1);
+        this.limiter.onSuccess();
+        double afterOneSecond = this.limiter.getRate();
+        sendPerSecond(100, 1);
+        this.limiter.onSuccess();
+
+        // THEN
+        assertThat(afterOneSecond, closeTo(130, 1));
+        assertThat(this.limiter.getRate(), closeTo(180, 1));
+    }
+
+    @Test
+    public void onSuccessStopsPacingOnceRequestsAreSentBelowTheRate() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        this.limiter.onThrottle(this.clock.get());
+
+        // WHEN
+        sendPerSecond(20, 2);
+        this.limiter.onSuccess();
+
+        // THEN
+        assertThat(this.limiter.getRate(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void onThrottleAfterPacingStoppedCutsTheSendRate() {
+        // GIVEN
+        sendPerSecond(100, 2);
+        this.limiter.onThrottle(this.clock.get());
+        sendPerSecond(20, 2);
+        this.limiter.onSuccess();
+        sendPerSecond(50, 2);
+
+        // WHEN
+        this.limiter.onThrottle(this.clock.get());
+
+        // THEN
+        assertThat(this.limiter.getRate(), closeTo(40, 1));
+    }
+
+    private void sendPerSecond(int rate, int seconds) {
+        for (int i = 0; i < rate * seconds; i++) {
+            this.limiter.reserve();
+            this.clock.addAndGet(SECOND / rate);
+        }
+    }
+}
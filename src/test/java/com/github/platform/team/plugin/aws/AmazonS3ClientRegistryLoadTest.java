@@ -0,0 +1,206 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.IOUtils;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Compares wagon sessions that share clients through an {@link AmazonS3ClientRegistry} with sessions that build a
+ * client each, the way every wagon connect did before the registry, against a {@link LocalS3Server}. Each session
+ * acquires a client, looks up an object, uploads and downloads a small one and releases the client again. The logged
+ * report shows the connections the server accepted and the latency of the first request of a session, which includes
+ * building the client and opening its connection. The local server speaks plain HTTP, so a session against S3 would
+ * add a TLS handshake to every new connection. It runs with the {@code load} profile, the load can be raised with
+ * the {@code load.threads} and {@code load.cycles} system properties.
+ */
+public class AmazonS3ClientRegistryLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AmazonS3ClientRegistryLoadTest.class);
+
+    private static final String BUCKET_NAME = "registry";
+
+    private static final int THREADS = Integer.getInteger("load.threads", 4);
+
+    private static final int SESSIONS = Integer.getInteger("load.cycles", 10);
+
+    private static final byte[] CONTENT = new byte[1024];
+
+    private final AuthenticationInfo authenticationInfo = new AuthenticationInfo();
+
+    private LocalS3Server server;
+
+    private int setUpConnections;
+
+    @Before
+    public void before() throws IOException {
+        this.server = new LocalS3Server();
+        this.server.createBucket(BUCKET_NAME);
+        this.server.start();
+        this.authenticationInfo.setUserName("access-key");
+        this.authenticationInfo.setPassword("secret-key");
+
+        AmazonS3 amazonS3 = newClient();
+        amazonS3.putObject(BUCKET_NAME, "existing.jar", new ByteArrayInputStream(CONTENT), metadata());
+        amazonS3.shutdown();
+        this.setUpConnections = this.server.getConnectionCount();
+    }
+
+    @After
+    public void after() {
+        this.server.close();
+    }
+
+    @Test
+    public void sharedClientsReuseConnections() throws Exception {
+        // GIVEN
+        AmazonS3ClientRegistry registry = new AmazonS3ClientRegistry(TimeUnit.MINUTES.toMillis(5));
+
+        // WHEN
+        List<Long> latencies = runSessions(registry);
+
+        // THEN
+        log("shared clients", latencies);
+        assertThat(getSessionConnections(), lessThanOrEqualTo(2 * THREADS));
+    }
+
+    @Test
+    public void unsharedClientsConnectPerSession() throws Exception {
+        // WHEN
+        List<Long> latencies = runSessions(null);
+
+        // THEN
+        log("a client per session", latencies);
+        assertThat(getSessionConnections(), greaterThanOrEqualTo(THREADS * SESSIONS));
+    }
+
+    /**
+     * Runs the sessions of all threads
+     *
+     * @param registry The registry clients are shared through, {@code null} to build and shut down a client per
+     *                 session
+     * @return The latency of the first request of every session
+     */
+    private List<Long> runSessions(AmazonS3ClientRegistry registry) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> threads = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                threads.add(executor.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    for (int session = 0; session < SESSIONS; session++) {
+                        latencies.add(runSession(registry, String.format("%d/%d.jar", thread, session)));
+                    }
+                    return latencies;
+                }));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            for (Future<List<Long>> thread : threads) {
+                latencies.addAll(thread.get());
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long runSession(AmazonS3ClientRegistry registry, String key) throws IOException {
+        AmazonS3ClientRegistry.Key clientKey = new AmazonS3ClientRegistry.Key(BUCKET_NAME, "us-east-1",
+                this.server.getEndpoint(), true, this.authenticationInfo, new ClientConfiguration());
+
+        long start = System.nanoTime();
+        AmazonS3 amazonS3 = registry != null ? registry.acquire(clientKey, this::newClient) : newClient();
+        try {
+            amazonS3.getObjectMetadata(BUCKET_NAME, "existing.jar");
+            long latency = System.nanoTime() - start;
+
+            amazonS3.putObject(BUCKET_NAME, key, new ByteArrayInputStream(CONTENT), metadata());
+            try (S3Object s3Object = amazonS3.getObject(BUCKET_NAME, key)) {
+                // reading the content to its end hands the connection back to the pool
+                IOUtils.toByteArray(s3Object.getObjectContent());
+            }
+            return latency;
+        } finally {
+            if (registry != null) {
+                registry.release(clientKey);
+            } else {
+                amazonS3.shutdown();
+            }
+        }
+    }
+
+    private AmazonS3 newClient() {
+        return AmazonS3Client.builder()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("access-key",
+                        "secret-key")))
+                .withPathStyleAccessEnabled(true)
+                .withEndpointConfiguration(new EndpointConfiguration(this.server.getEndpoint(), "us-east-1"))
+                .build();
+    }
+
+    private void log(String scenario, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        LOGGER.info(String.format("Registry load test with %s: %d sessions on %d connections, first request p50 "
+                        + "%.2f ms, p90 %.2f ms, max %.2f ms", scenario, sorted.size(), getSessionConnections(),
+                percentile(sorted, 0.5), percentile(sorted, 0.9), sorted.get(sorted.size() - 1) / 1e6));
+    }
+
+    private int getSessionConnections() {
+        return this.server.getConnectionCount() - this.setUpConnections;
+    }
+
+    private static ObjectMetadata metadata() {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(CONTENT.length);
+        return objectMetadata;
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class AmazonS3ClientRegistryTest {
+
+    private final AmazonS3ClientRegistry registry = new AmazonS3ClientRegistry(0);
+
+    @Test
+    public void acquireSharesClientForEqualKeys() {
+        // GIVEN
+        AmazonS3ClientRegistry.Key key = key("bucket", "user");
+        AmazonS3ClientRegistry.Key sameKey = key("bucket", "user");
+
+        // WHEN
+        AmazonS3 first = this.registry.acquire(key, () -> mock(AmazonS3.class));
+        AmazonS3 second = this.registry.acquire(sameKey, () -> mock(AmazonS3.class));
+
+        // THEN
+        assertThat(second, sameInstance(first));
+        assertThat(this.registry.size(), equalTo(1));
+    }
+
+    @Test
+    public void acquireSeparatesClientsForDifferentKeys() {
+        // GIVEN
+
+        // WHEN
+        AmazonS3 first = this.registry.acquire(key("bucket", "user"), () -> mock(AmazonS3.class));
+        AmazonS3 second = this.registry.acquire(key("bucket", "other"), () -> mock(AmazonS3.class));
+
+        // THEN
+        assertThat(second, not(sameInstance(first)));
+        assertThat(this.registry.size(), equalTo(2));
+    }
+
+    @Test
+    public void acquireSeparatesClientsForDifferentEndpoints() {
+        // GIVEN
+        AmazonS3ClientRegistry.Key aws = new AmazonS3ClientRegistry.Key("bucket", "us-east-1", null, false, null,
+                new ClientConfiguration());
+        AmazonS3ClientRegistry.Key local = new AmazonS3ClientRegistry.Key("bucket", "us-east-1",
+                "http://localhost:9000", true, null, new ClientConfiguration());
+
+        // WHEN
+        AmazonS3 first = this.registry.acquire(aws, () -> mock(AmazonS3.class));
+        AmazonS3 second = this.registry.acquire(local, () -> mock(AmazonS3.class));
+
+        // THEN
+        assertThat(second, not(sameInstance(first)));
+        assertThat(this.registry.size(), equalTo(2));
+    }
+
+    @Test
+    public void acquireSeparatesClientsForDifferentProxyPasswords() {
+        // GIVEN
+        AmazonS3ClientRegistry.Key key = new AmazonS3ClientRegistry.Key("bucket", "us-east-1", null,
+                new ClientConfiguration().withProxyHost("proxy").withProxyPort(8080).withProxyUsername("user")
+                        .withProxyPassword("first"));
+        AmazonS3ClientRegistry.Key otherKey = new AmazonS3ClientRegistry.Key("bucket", "us-east-1", null,
+                new ClientConfiguration().withProxyHost("proxy").withProxyPort(8080).withProxyUsername("user")
+                        .withProxyPassword("second"));
+
+        // WHEN
+        AmazonS3 first = this.registry.acquire(key, () -> mock(AmazonS3.class));
+        AmazonS3 second = this.registry.acquire(otherKey, () -> mock(AmazonS3.class));
+
+        // THEN
+        assertThat(second, not(sameInstance(first)));
+        assertThat(this.registry.size(), equalTo(2));
+    }
+
+    @Test
+    public void releaseKeepsReferencedClients() {
+        // GIVEN
+        AmazonS3 client = mock(AmazonS3.class);
+        AmazonS3ClientRegistry.Key key = key("bucket", "user");
+        this.registry.acquire(key, () -> client);
+        this.registry.acquire(key, () -> client);
+
+        // WHEN
+        this.registry.release(key);
+
+        // THEN
+        verify(client, never()).shutdown();
+        assertThat(this.registry.size(), equalTo(1));
+    }
+
+    @Test
+    public void releaseShutsDownIdleClients() {
+        // GIVEN
+        AmazonS3 client = mock(AmazonS3.class);
+        AmazonS3ClientRegistry.Key key = key("bucket", "user");
+        this.registry.acquire(key, () -> client);
+
+        // WHEN
+        this.registry.release(key);
+
+        // THEN
+        verify(client).shutdown();
+        assertThat(this.registry.size(), equalTo(0));
+    }
+
+    private static AmazonS3ClientRegistry.Key key(String bucketName, String userName) {
+        AuthenticationInfo authenticationInfo = new AuthenticationInfo();
+        authenticationInfo.setUserName(userName);
+        authenticationInfo.setPassword("secret");
+        return new AmazonS3ClientRegistry.Key(bucketName, "eu-west-1", authenticationInfo, new ClientConfiguration());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.github.platform.team.plugin.cache.ResourceMetadata;
+import com.github.platform.team.plugin.util.ExecutorUtils;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchMetadataResolverTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final BatchMetadataResolver resolver = new BatchMetadataResolver(this.amazonS3, 2, 4,
+            ExecutorUtils.getExecutor());
+
+    @Test
+    public void resolveListsDenseDirectories() {
+        // GIVEN
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(page(false, "a/1.jar", "a/1.pom", "a/2.jar"));
+
+        // WHEN
+        Map<String, ResourceMetadata> found = this.resolver.resolve(BUCKET_NAME,
+                Arrays.asList("a/1.jar", "a/2.jar", "a/3.jar"));
+
+        // THEN
+        assertThat(found.keySet(), equalTo(set("a/1.jar", "a/2.jar")));
+        assertThat(found.get("a/1.jar").getContentLength(), equalTo(7L));
+        assertThat(found.get("a/1.jar").getETag(), equalTo("etag-a/1.jar"));
+        verify(this.amazonS3, never()).getObjectMetadata(anyString(), anyString());
+    }
+
+    @Test
+    public void resolveStopsListingPastTheLastKey() {
+        // GIVEN
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(page(true, "a/1.jar", "a/2.jar"), page(true, "a/3.jar"), page(true, "a/4.jar"),
+                        page(false, "a/5.jar"));
+
+        // WHEN
+        Map<String, ResourceMetadata> found = this.resolver.resolve(BUCKET_NAME, Arrays.asList("a/1.jar", "a/3.jar"));
+
+        // THEN
+        assertThat(found.keySet(), equalTo(set("a/1.jar", "a/3.jar")));
+        // the page after the last key may be prefetched in the background, the one after it is never requested
+        verify(this.amazonS3, atMost(3)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void resolveLooksUpSparseDirectories() {
+        // GIVEN
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(3);
+        when(this.amazonS3.getObjectMetadata(BUCKET_NAME, "a/1.jar")).thenReturn(metadata);
+        when(this.amazonS3.getObjectMetadata(BUCKET_NAME, "b/1.jar")).thenThrow(serviceException(404));
+
+        // WHEN
+        Map<String, ResourceMetadata> found = this.resolver.resolve(BUCKET_NAME, Arrays.asList("a/1.jar", "b/1.jar"));
+
+        // THEN
+        assertThat(found.keySet(), equalTo(set("a/1.jar")));
+        assertThat(found.get("a/1.jar").getContentLength(), equalTo(3L));
+        verify(this.amazonS3, never()).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void resolvePropagatesFailures() {
+        // GIVEN
+        AmazonServiceException exception = serviceException(503);
+        when(this.amazonS3.getObjectMetadata(BUCKET_NAME, "a/1.jar")).thenThrow(exception);
+        when(this.amazonS3.getObjectMetadata(BUCKET_NAME, "b/1.jar")).thenReturn(new ObjectMetadata());
+
+        // WHEN
+        try {
+            this.resolver.resolve(BUCKET_NAME, Arrays.asList("a/1.jar", "b/1.jar"));
+            fail();
+        } catch (AmazonServiceException e) {
+            // THEN
+            assertThat(e, equalTo(exception));
+        }
+    }
+
+    private static ListObjectsV2Result page(boolean truncated, String... keys) {
+        ListObjectsV2Result page = new ListObjectsV2Result();
+        page.setTruncated(truncated);
+        page.setNextContinuationToken(truncated ? "token" : null);
+        for (String key : keys) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(key);
+            summary.setETag("etag-" + key);
+            summary.setSize(7);
+            summary.setLastModified(new Date(42));
+            page.getObjectSummaries().add(summary);
+        }
+        return page;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static AmazonServiceException serviceException(int statusCode) {
+        AmazonServiceException exception = new AmazonServiceException("");
+        exception.setStatusCode(statusCode);
+        return exception;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.HeadBucketRequest;
+import com.amazonaws.services.s3.model.HeadBucketResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BucketRegionResolverTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final long TIME_TO_LIVE = 60000;
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final File cacheFile = new File("target/bucket-regions.properties");
+
+    @Before
+    public void before() {
+        this.cacheFile.delete();
+    }
+
+    @Test
+    public void resolveLooksUpBucketLocation() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenReturn("eu-central-1");
+
+        // WHEN
+        String region = newResolver(null).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(region, equalTo("eu-central-1"));
+        verify(this.amazonS3).shutdown();
+    }
+
+    @Test
+    public void resolveNormalizesLegacyLocations() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenReturn("US", "EU");
+
+        // WHEN
+        String us = newResolver(null).resolve(BUCKET_NAME, () -> this.amazonS3);
+        String eu = newResolver(null).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(us, equalTo("us-east-1"));
+        assertThat(eu, equalTo("eu-west-1"));
+    }
+
+    @Test
+    public void resolveCachesInMemory() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenReturn("eu-central-1");
+        BucketRegionResolver resolver = newResolver(null);
+
+        // WHEN
+        resolver.resolve(BUCKET_NAME, () -> this.amazonS3);
+        String region = resolver.resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(region, equalTo("eu-central-1"));
+        verify(this.amazonS3, times(1)).getBucketLocation(BUCKET_NAME);
+    }
+
+    @Test
+    public void resolveCachesOnDisk() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenReturn("ap-southeast-2");
+        newResolver(this.cacheFile).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // WHEN
+        String region = newResolver(this.cacheFile).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(region, equalTo("ap-southeast-2"));
+        verify(this.amazonS3, times(1)).getBucketLocation(BUCKET_NAME);
+    }
+
+    @Test
+    public void resolveExpiresCachedRegions() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenReturn("eu-central-1");
+        BucketRegionResolver resolver = new BucketRegionResolver(new ConcurrentHashMap<>(), null, 0);
+
+        // WHEN
+        resolver.resolve(BUCKET_NAME, () -> this.amazonS3);
+        resolver.resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        verify(this.amazonS3, times(2)).getBucketLocation(BUCKET_NAME);
+    }
+
+    @Test
+    public void resolveFallsBackToRegionHeader() {
+        // GIVEN
+        AmazonServiceException redirect = new AmazonServiceException("Moved Permanently");
+        redirect.setStatusCode(301);
+        redirect.setHttpHeaders(Collections.singletonMap("x-amz-bucket-region", "us-west-2"));
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenThrow(redirect);
+
+        // WHEN
+        String region = newResolver(null).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(region, equalTo("us-west-2"));
+    }
+
+    @Test
+    public void resolveFallsBackToHeadBucket() {
+        // GIVEN
+        when(this.amazonS3.getBucketLocation(BUCKET_NAME)).thenThrow(new AmazonServiceException("Access Denied"));
+        when(this.amazonS3.headBucket(any(HeadBucketRequest.class)))
+                .thenReturn(new HeadBucketResult().withBucketRegion("sa-east-1"));
+
+        // WHEN
+        String region = newResolver(null).resolve(BUCKET_NAME, () -> this.amazonS3);
+
+        // THEN
+        assertThat(region, equalTo("sa-east-1"));
+    }
+
+    private BucketRegionResolver newResolver(File cacheFile) {
+        return new BucketRegionResolver(new ConcurrentHashMap<>(), cacheFile, TIME_TO_LIVE);
+    }
+}
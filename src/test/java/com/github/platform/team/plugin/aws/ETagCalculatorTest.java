@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.util.BinaryUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class ETagCalculatorTest {
+
+    private static final int PART_SIZE = 1000;
+
+    private final File file = new File("target/etag.bin");
+
+    private final ETagCalculator calculator = new ETagCalculator(ForkJoinPool.commonPool());
+
+    private byte[] content;
+
+    @Before
+    public void before() throws IOException {
+        this.content = new byte[100 * PART_SIZE + 123];
+        new Random(42).nextBytes(this.content);
+        Files.write(this.file.toPath(), this.content);
+    }
+
+    @Test
+    public void singlePartIsContentDigest() throws Exception {
+        assertThat(this.calculator.singlePart(this.file), equalTo(BinaryUtils.toHex(md5(this.content))));
+    }
+
+    @Test
+    public void multipartIsDigestOfPartDigests() throws Exception {
+        // GIVEN
+        MessageDigest composite = MessageDigest.getInstance("MD5");
+        for (int offset = 0; offset < this.content.length; offset += PART_SIZE) {
+            composite.update(md5(Arrays.copyOfRange(this.content, offset,
+                    Math.min(offset + PART_SIZE, this.content.length))));
+        }
+
+        // WHEN
+        String eTag = this.calculator.multipart(this.file, PART_SIZE);
+
+        // THEN
+        assertThat(eTag, equalTo(BinaryUtils.toHex(composite.digest()) + "-101"));
+    }
+
+    @Test
+    public void matchesSinglePartETag() throws Exception {
+        String eTag = "\"" + BinaryUtils.toHex(md5(this.content)).toUpperCase() + "\"";
+
+        assertThat(this.calculator.matches(this.file, eTag), is(true));
+        assertThat(this.calculator.matches(this.file, "0123456789abcdef0123456789abcdef"), is(false));
+    }
+
+    @Test
+    public void matchesMultipartETagWithCandidatePartSize() throws Exception {
+        String eTag = this.calculator.multipart(this.file, PART_SIZE);
+
+        assertThat(this.calculator.matches(this.file, eTag, 10 * PART_SIZE, PART_SIZE), is(true));
+        assertThat(this.calculator.matches(this.file, eTag, 10 * PART_SIZE), is(false));
+        assertThat(this.calculator.matches(this.file, "0123456789abcdef0123456789abcdef-x", PART_SIZE), is(false));
+    }
+
+    private static byte[] md5(byte[] bytes) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("MD5").digest(bytes);
+    }
+}
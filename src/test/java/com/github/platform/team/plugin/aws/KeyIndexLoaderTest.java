@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.github.platform.team.plugin.cache.KeyIndex;
+import com.github.platform.team.plugin.util.ExecutorUtils;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KeyIndexLoaderTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String PREFIX = "release/";
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final KeyIndexLoader loader = new KeyIndexLoader(this.amazonS3, 2, ExecutorUtils.getExecutor());
+
+    @Test
+    public void loadListsSubdirectoriesRecursively() {
+        // GIVEN
+        ListObjectsV2Result topLevel = page(false, PREFIX, PREFIX + "index.html");
+        topLevel.getCommonPrefixes().addAll(Arrays.asList(PREFIX + "a/", PREFIX + "b/"));
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX, "/", null)))).thenReturn(topLevel);
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX + "a/", null, null))))
+                .thenReturn(page(true, PREFIX + "a/1.0/a.jar"));
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX + "a/", null, "token"))))
+                .thenReturn(page(false, PREFIX + "a/1.0/a.pom"));
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX + "b/", null, null))))
+                .thenReturn(page(false, PREFIX + "b/", PREFIX + "b/2.0/b.jar"));
+
+        // WHEN
+        KeyIndex keyIndex = this.loader.load(BUCKET_NAME, PREFIX);
+
+        // THEN
+        assertThat(keyIndex.size(), equalTo(6));
+        assertThat(keyIndex.list(""), equalTo(Arrays.asList("a/", "b/", "", "index.html")));
+        assertThat(keyIndex.list("a/1.0/"), equalTo(Arrays.asList("a.jar", "a.pom")));
+        assertThat(keyIndex.list("b/"), equalTo(Arrays.asList("2.0/", "")));
+        verify(this.amazonS3, times(4)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void loadEmptyPrefix() {
+        // GIVEN
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(false));
+
+        // WHEN
+        KeyIndex keyIndex = this.loader.load(BUCKET_NAME, PREFIX);
+
+        // THEN
+        assertThat(keyIndex.list(""), equalTo(Collections.emptyList()));
+        verify(this.amazonS3, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void loadFailsIfSubdirectoryListingFails() {
+        // GIVEN
+        ListObjectsV2Result topLevel = page(false);
+        topLevel.getCommonPrefixes().add(PREFIX + "a/");
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX, "/", null)))).thenReturn(topLevel);
+        when(this.amazonS3.listObjectsV2(argThat(isListing(PREFIX + "a/", null, null))))
+                .thenThrow(serviceException(403));
+
+        // WHEN
+        try {
+            this.loader.load(BUCKET_NAME, PREFIX);
+            fail();
+        } catch (AmazonServiceException e) {
+            // THEN
+            assertThat(e.getStatusCode(), equalTo(403));
+        }
+    }
+
+    private static ArgumentMatcher<ListObjectsV2Request> isListing(String prefix, String delimiter,
+                                                                   String continuationToken) {
+        return request -> request != null && prefix.equals(request.getPrefix())
+                && Objects.equals(delimiter, request.getDelimiter())
+                && Objects.equals(continuationToken, request.getContinuationToken());
+    }
+
+    private static ListObjectsV2Result page(boolean truncated, String... keys) {
+        ListObjectsV2Result page = new ListObjectsV2Result();
+        page.setTruncated(truncated);
+        page.setNextContinuationToken(truncated ? "token" : null);
+        for (String key : keys) {
+            S3ObjectSummary summary = new S3ObjectSummary();
+            summary.setKey(key);
+            page.getObjectSummaries().add(summary);
+        }
+        return page;
+    }
+
+    private static AmazonServiceException serviceException(int statusCode) {
+        AmazonServiceException exception = new AmazonServiceException("");
+        exception.setStatusCode(statusCode);
+        return exception;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.github.platform.team.plugin.util.ExecutorUtils;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ListObjectsV2PagerTest {
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final ListObjectsV2Request listObjectsRequest = new ListObjectsV2Request()
+            .withBucketName("bucket")
+            .withPrefix("foo/")
+            .withDelimiter("/");
+
+    private final ListObjectsV2Pager pager = new ListObjectsV2Pager(this.amazonS3, this.listObjectsRequest,
+            ExecutorUtils.getExecutor());
+
+    @Test
+    public void pagesFollowContinuationTokens() {
+        // GIVEN
+        ListObjectsV2Result first = page(true, "one");
+        ListObjectsV2Result second = page(true, "two");
+        ListObjectsV2Result third = page(false, null);
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(first, second, third);
+
+        // WHEN
+        ListObjectsV2Result[] pages = {this.pager.next(), this.pager.next(), this.pager.next()};
+
+        // THEN
+        assertThat(pages[0], sameInstance(first));
+        assertThat(pages[1], sameInstance(second));
+        assertThat(pages[2], sameInstance(third));
+        assertThat(this.pager.hasNext(), equalTo(false));
+
+        ArgumentCaptor<ListObjectsV2Request> requests = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+        verify(this.amazonS3, times(3)).listObjectsV2(requests.capture());
+        List<ListObjectsV2Request> values = requests.getAllValues();
+        assertThat(values.get(0).getContinuationToken(), nullValue());
+        assertThat(values.get(1).getContinuationToken(), equalTo("one"));
+        assertThat(values.get(2).getContinuationToken(), equalTo("two"));
+        assertThat(values.get(2).getPrefix(), equalTo("foo/"));
+        assertThat(values.get(2).getDelimiter(), equalTo("/"));
+    }
+
+    @Test
+    public void nextPageIsPrefetched() {
+        // GIVEN
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(page(true, "one"), page(false, null));
+
+        // WHEN
+        this.pager.next();
+
+        // THEN
+        verify(this.amazonS3, timeout(1000).times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    public void failedPrefetchSurfacesFromNext() {
+        // GIVEN
+        AmazonServiceException failure = new AmazonServiceException("Slow Down");
+        when(this.amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(page(true, "one"))
+                .thenThrow(failure);
+        this.pager.next();
+
+        // WHEN
+        try {
+            this.pager.next();
+            fail("Exception must occur");
+        } catch (AmazonServiceException e) {
+            // THEN
+            assertThat(e, sameInstance(failure));
+            assertThat(this.pager.hasNext(), equalTo(false));
+        }
+    }
+
+    private static ListObjectsV2Result page(boolean truncated, String nextContinuationToken) {
+        ListObjectsV2Result result = new ListObjectsV2Result();
+        result.setTruncated(truncated);
+        result.setNextContinuationToken(nextContinuationToken);
+        return result;
+    }
+}
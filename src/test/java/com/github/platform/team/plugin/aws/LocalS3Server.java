@@ -0,0 +1,748 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.DateUtils;
+import com.github.platform.team.plugin.util.S3Utils;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An S3 compatible HTTP server held in memory, for tests that drive the wagon through a real S3 client without network
+ * access. It serves path style requests for GET, HEAD, PUT and DELETE of objects, ranged and conditional GETs,
+ * ListObjectsV2 listings, multipart uploads and bucket location lookups. Authentication is not checked.
+ * <p>
+ * Every request can be delayed by a fixed latency and request and response bodies can be capped to a bandwidth. Every
+ * n-th request can be answered with {@code 503 SlowDown} or have its connection dropped without a response, so that
+ * retries and failure handling can be exercised with a deterministic number of faults. A request rate limit answers
+ * the requests beyond it with {@code 503 SlowDown}, the way S3 throttles a busy prefix; like S3 it limits reads and
+ * writes separately.
+ */
+public final class LocalS3Server implements AutoCloseable {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+    private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private static final String SSE_HEADER = "x-amz-server-side-encryption";
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private static final Pattern PART = Pattern.compile(
+            "<PartNumber>(\\d+)</PartNumber>\\s*<ETag>\"?([^<\"]+)\"?</ETag>");
+
+    static {
+        // without it small responses wait for delayed acknowledgements, which dwarfs the latency being measured
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong slowDowns = new AtomicLong();
+
+    private final AtomicLong resets = new AtomicLong();
+
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private volatile long latency;
+
+    private volatile long bandwidth;
+
+    private volatile int slowDownEvery;
+
+    private volatile int resetEvery;
+
+    private final RateLimit readLimit = new RateLimit();
+
+    private final RateLimit writeLimit = new RateLimit();
+
+    /**
+     * Creates a server listening on a free port of the loopback interface. It is started with {@link #start()}.
+     *
+     * @throws IOException if the server cannot be bound
+     */
+    public LocalS3Server() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-s3");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Returns the URL clients connect to, with path style access
+     *
+     * @return The endpoint of the server
+     */
+    public String getEndpoint() {
+        return String.format("http://localhost:%d", this.server.getAddress().getPort());
+    }
+
+    public void createBucket(String bucketName) {
+        // S3 lists keys in the order of their UTF-8 bytes
+        this.buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<>(S3Utils::compareKeys));
+    }
+
+    /**
+     * Returns the content of an object
+     *
+     * @param bucketName The bucket of the object
+     * @param key        The key of the object
+     * @return The content, or {@code null} if there is no such object
+     */
+    public byte[] getContent(String bucketName, String key) {
+        NavigableMap<String, StoredObject> objects = this.buckets.get(bucketName);
+        StoredObject storedObject = objects == null ? null : objects.get(key);
+        return storedObject == null ? null : storedObject.content;
+    }
+
+    /**
+     * Sets the time every request is held before it is answered
+     *
+     * @param latency  The latency, {@code 0} to answer at once
+     * @param timeUnit The unit of the latency
+     */
+    public void setLatency(long latency, TimeUnit timeUnit) {
+        this.latency = timeUnit.toNanos(latency);
+    }
+
+    /**
+     * Caps the rate request bodies are read and response bodies are written at, for each request on its own
+     *
+     * @param bytesPerSecond The bandwidth, {@code 0} for no cap
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bandwidth = bytesPerSecond;
+    }
+
+    /**
+     * Answers every n-th request with {@code 503 SlowDown}
+     *
+     * @param every The interval in requests, {@code 0} to never slow down
+     */
+    public void setSlowDownEvery(int every) {
+        this.slowDownEvery = every;
+    }
+
+    /**
+     * Drops the connection of every n-th request after reading the request but before answering it. Requests that
+     * are due a slow down are not dropped.
+     *
+     * @param every The interval in requests, {@code 0} to never drop a connection
+     */
+    public void setResetEvery(int every) {
+        this.resetEvery = every;
+    }
+
+    /**
+     * Answers the reads (GET and HEAD) beyond a rate and the writes beyond the same rate with {@code 503 SlowDown}.
+     * Short bursts of up to a tenth of a second's worth of requests are let through.
+     *
+     * @param requestsPerSecond The rate, {@code 0} for no limit
+     */
+    public void setRateLimit(int requestsPerSecond) {
+        this.readLimit.setRate(requestsPerSecond);
+        this.writeLimit.setRate(requestsPerSecond);
+    }
+
+    public long getRequestCount() {
+        return this.requests.get();
+    }
+
+    public long getSlowDownCount() {
+        return this.slowDowns.get();
+    }
+
+    public long getResetCount() {
+        return this.resets.get();
+    }
+
+    /**
+     * Returns the number of connections requests were received on. Connections are told apart by the port of the
+     * client, which the loopback interface does not hand out again while a test runs.
+     *
+     * @return The number of connections
+     */
+    public int getConnectionCount() {
+        return this.connections.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            long number = this.requests.incrementAndGet();
+            this.connections.add(exchange.getRemoteAddress());
+            long latencyNanos = this.latency;
+            if (latencyNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+            }
+
+            byte[] body = readBody(exchange);
+            int slowDown = this.slowDownEvery;
+            int reset = this.resetEvery;
+            String method = exchange.getRequestMethod();
+            RateLimit rateLimit = "GET".equals(method) || "HEAD".equals(method) ? this.readLimit : this.writeLimit;
+            if (slowDown > 0 && number % slowDown == 0 || !rateLimit.tryAcquire()) {
+                this.slowDowns.incrementAndGet();
+                sendError(exchange, 503, "SlowDown", "Please reduce your request rate.");
+            } else if (reset > 0 && number % reset == 0) {
+                // closing the exchange before the response headers are sent closes the connection
+                this.resets.incrementAndGet();
+            } else {
+                dispatch(exchange, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            // the client gave up on the request or the request could not be parsed, either way it is not answered
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, byte[] body) throws IOException, InterruptedException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        int separator = path.indexOf('/', 1);
+        String bucketName = decode(separator == -1 ? path.substring(1) : path.substring(1, separator));
+        String key = separator == -1 ? "" : decode(path.substring(separator + 1));
+        NavigableMap<String, StoredObject> objects = this.buckets.get(bucketName);
+        if (objects == null) {
+            sendError(exchange, 404, "NoSuchBucket", String.format("The bucket '%s' does not exist", bucketName));
+            return;
+        }
+
+        if (key.isEmpty()) {
+            if ("GET".equals(method) && query.containsKey("location")) {
+                sendXml(exchange, 200, "<LocationConstraint xmlns=\"" + NAMESPACE + "\"/>");
+            } else if ("GET".equals(method)) {
+                listObjects(exchange, bucketName, objects, query);
+            } else if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                sendError(exchange, 405, "MethodNotAllowed", method);
+            }
+            return;
+        }
+
+        switch (method) {
+            case "GET":
+            case "HEAD":
+                getObject(exchange, objects.get(key), key);
+                break;
+            case "PUT":
+                if (query.containsKey("uploadId")) {
+                    uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")), body);
+                } else {
+                    putObject(exchange, objects, key, body);
+                }
+                break;
+            case "POST":
+                if (query.containsKey("uploads")) {
+                    initiateMultipartUpload(exchange, bucketName, key);
+                } else {
+                    completeMultipartUpload(exchange, objects, bucketName, key, query.get("uploadId"), body);
+                }
+                break;
+            case "DELETE":
+                if (query.containsKey("uploadId")) {
+                    this.uploads.remove(query.get("uploadId"));
+                } else {
+                    objects.remove(key);
+                }
+                exchange.sendResponseHeaders(204, -1);
+                break;
+            default:
+                sendError(exchange, 405, "MethodNotAllowed", method);
+        }
+    }
+
+    private void getObject(HttpExchange exchange, StoredObject storedObject, String key)
+            throws IOException, InterruptedException {
+        if (storedObject == null) {
+            sendError(exchange, 404, "NoSuchKey", String.format("The key '%s' does not exist", key));
+            return;
+        }
+
+        Headers requestHeaders = exchange.getRequestHeaders();
+        String ifMatch = requestHeaders.getFirst("If-Match");
+        if (ifMatch != null && !unquote(ifMatch).equals(storedObject.eTag)) {
+            sendError(exchange, 412, "PreconditionFailed", "At least one of the preconditions did not hold");
+            return;
+        }
+        String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+        String ifModifiedSince = requestHeaders.getFirst("If-Modified-Since");
+        if ((ifNoneMatch != null && unquote(ifNoneMatch).equals(storedObject.eTag))
+                || (ifNoneMatch == null && ifModifiedSince != null
+                && storedObject.lastModified <= DateUtils.parseRFC822Date(ifModifiedSince).getTime())) {
+            setObjectHeaders(exchange, storedObject);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] content = storedObject.content;
+        int start = 0;
+        int end = content.length;
+        int status = 200;
+        String range = requestHeaders.getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        if (matcher != null && matcher.matches()) {
+            start = Integer.parseInt(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? content.length
+                    : Math.min(content.length, Integer.parseInt(matcher.group(2)) + 1);
+            if (start >= content.length) {
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range",
+                    String.format("bytes %d-%d/%d", start, end - 1, content.length));
+        }
+
+        setObjectHeaders(exchange, storedObject);
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(end - start));
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            exchange.sendResponseHeaders(status, end - start == 0 ? -1 : end - start);
+            writeBody(exchange, content, start, end - start);
+        }
+    }
+
+    private void putObject(HttpExchange exchange, NavigableMap<String, StoredObject> objects, String key, byte[] body)
+            throws IOException {
+        String contentMD5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        if (contentMD5 != null && !contentMD5.equals(Base64.encodeAsString(md5(body)))) {
+            sendError(exchange, 400, "BadDigest", "The Content-MD5 you specified did not match what was received");
+            return;
+        }
+
+        Headers requestHeaders = exchange.getRequestHeaders();
+        StoredObject storedObject = new StoredObject(body, BinaryUtils.toHex(md5(body)),
+                requestHeaders.getFirst("Content-Type"), requestHeaders.getFirst(SSE_HEADER));
+        objects.put(key, storedObject);
+
+        setEncryptionHeader(exchange, storedObject.sseAlgorithm);
+        exchange.getResponseHeaders().set("ETag", quote(storedObject.eTag));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void initiateMultipartUpload(HttpExchange exchange, String bucketName, String key) throws IOException {
+        Headers requestHeaders = exchange.getRequestHeaders();
+        String uploadId = UUID.randomUUID().toString();
+        this.uploads.put(uploadId, new MultipartUpload(requestHeaders.getFirst("Content-Type"),
+                requestHeaders.getFirst(SSE_HEADER)));
+
+        setEncryptionHeader(exchange, requestHeaders.getFirst(SSE_HEADER));
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Bucket", bucketName) + element("Key", key) + element("UploadId", uploadId)
+                + "</InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber, byte[] body) throws IOException {
+        MultipartUpload upload = this.uploads.get(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", String.format("The upload '%s' does not exist", uploadId));
+            return;
+        }
+        upload.parts.put(partNumber, body);
+
+        setEncryptionHeader(exchange, upload.sseAlgorithm);
+        exchange.getResponseHeaders().set("ETag", quote(BinaryUtils.toHex(md5(body))));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, NavigableMap<String, StoredObject> objects,
+                                         String bucketName, String key, String uploadId, byte[] body)
+            throws IOException {
+        MultipartUpload upload = uploadId == null ? null : this.uploads.remove(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", String.format("The upload '%s' does not exist", uploadId));
+            return;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        Matcher matcher = PART.matcher(new String(body, StandardCharsets.UTF_8));
+        int parts = 0;
+        while (matcher.find()) {
+            byte[] part = upload.parts.get(Integer.parseInt(matcher.group(1)));
+            if (part == null || !BinaryUtils.toHex(md5(part)).equals(matcher.group(2))) {
+                sendError(exchange, 400, "InvalidPart", String.format("Part %s is missing", matcher.group(1)));
+                return;
+            }
+            content.write(part);
+            digests.write(md5(part));
+            parts++;
+        }
+
+        StoredObject storedObject = new StoredObject(content.toByteArray(),
+                String.format("%s-%d", BinaryUtils.toHex(md5(digests.toByteArray())), parts), upload.contentType,
+                upload.sseAlgorithm);
+        objects.put(key, storedObject);
+
+        setEncryptionHeader(exchange, storedObject.sseAlgorithm);
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Location", String.format("%s/%s/%s", getEndpoint(), bucketName, key))
+                + element("Bucket", bucketName) + element("Key", key) + element("ETag", quote(storedObject.eTag))
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private void listObjects(HttpExchange exchange, String bucketName, NavigableMap<String, StoredObject> objects,
+                             Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = query.containsKey("max-keys") ? Integer.parseInt(query.get("max-keys")) : DEFAULT_MAX_KEYS;
+        String after = query.containsKey("continuation-token") ? query.get("continuation-token")
+                : query.get("start-after");
+        boolean encode = "url".equals(query.get("encoding-type"));
+
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        boolean truncated = false;
+        // a continuation token naming a common prefix skips the keys below it
+        String last = after;
+        NavigableMap<String, StoredObject> candidates = after == null ? objects.tailMap(prefix, true)
+                : objects.tailMap(after, false);
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            int index = delimiter == null || delimiter.isEmpty() ? -1 : key.indexOf(delimiter, prefix.length());
+            String commonPrefix = index == -1 ? null : key.substring(0, index + delimiter.length());
+            if (commonPrefix != null && commonPrefix.equals(last)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            if (commonPrefix != null) {
+                contents.append("<CommonPrefixes>").append(element("Prefix", encode(commonPrefix, encode)))
+                        .append("</CommonPrefixes>");
+                last = commonPrefix;
+            } else {
+                StoredObject storedObject = entry.getValue();
+                contents.append("<Contents>").append(element("Key", encode(key, encode)))
+                        .append(element("LastModified",
+                                DateUtils.formatISO8601Date(new Date(storedObject.lastModified))))
+                        .append(element("ETag", quote(storedObject.eTag)))
+                        .append(element("Size", Integer.toString(storedObject.content.length)))
+                        .append(element("StorageClass", "STANDARD"))
+                        .append("</Contents>");
+                last = key;
+            }
+            count++;
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"" + NAMESPACE + "\">")
+                .append(element("Name", bucketName))
+                .append(element("Prefix", encode(prefix, encode)))
+                .append(element("KeyCount", Integer.toString(count)))
+                .append(element("MaxKeys", Integer.toString(maxKeys)));
+        if (delimiter != null) {
+            xml.append(element("Delimiter", encode(delimiter, encode)));
+        }
+        if (encode) {
+            xml.append(element("EncodingType", "url"));
+        }
+        xml.append(element("IsTruncated", Boolean.toString(truncated)));
+        if (truncated) {
+            xml.append(element("NextContinuationToken", last));
+        }
+        sendXml(exchange, 200, xml.append(contents).append("</ListBucketResult>").toString());
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long start = System.nanoTime();
+        long total = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+                throttle(start, total);
+            }
+        }
+
+        Headers requestHeaders = exchange.getRequestHeaders();
+        String contentSha256 = requestHeaders.getFirst("x-amz-content-sha256");
+        String contentEncoding = requestHeaders.getFirst("Content-Encoding");
+        if ((contentSha256 != null && contentSha256.startsWith("STREAMING-"))
+                || (contentEncoding != null && contentEncoding.contains("aws-chunked"))) {
+            return decodeChunks(out.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    private void writeBody(HttpExchange exchange, byte[] content, int offset, int length)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int written = 0; written < length; ) {
+                int count = Math.min(BUFFER_SIZE, length - written);
+                out.write(content, offset + written, count);
+                written += count;
+                throttle(start, written);
+            }
+        }
+    }
+
+    private void throttle(long start, long transferred) throws InterruptedException {
+        long bytesPerSecond = this.bandwidth;
+        if (bytesPerSecond > 0) {
+            long due = start + TimeUnit.SECONDS.toNanos(1) * transferred / bytesPerSecond;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
+
+    private static byte[] decodeChunks(byte[] body) throws IOException {
+        // aws-chunked bodies are a series of "<hex size>;chunk-signature=<signature>\r\n<data>\r\n" ending with size 0
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int position = 0;
+        while (true) {
+            int lineEnd = indexOfLineEnd(body, position);
+            String header = new String(body, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+            position = lineEnd + 2;
+            if (size == 0) {
+                return out.toByteArray();
+            }
+            if (position + size > body.length) {
+                throw new EOFException("Chunk exceeds the request body");
+            }
+            out.write(body, position, size);
+            position += size + 2;
+        }
+    }
+
+    private static int indexOfLineEnd(byte[] body, int from) throws EOFException {
+        for (int i = from; i < body.length - 1; i++) {
+            if (body[i] == '\r' && body[i + 1] == '\n') {
+                return i;
+            }
+        }
+        throw new EOFException("Chunk header is not terminated");
+    }
+
+    private static void setObjectHeaders(HttpExchange exchange, StoredObject storedObject) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", quote(storedObject.eTag));
+        headers.set("Last-Modified", DateUtils.formatRFC822Date(new Date(storedObject.lastModified)));
+        if (storedObject.contentType != null) {
+            headers.set("Content-Type", storedObject.contentType);
+        }
+        setEncryptionHeader(exchange, storedObject.sseAlgorithm);
+    }
+
+    private static void setEncryptionHeader(HttpExchange exchange, String sseAlgorithm) {
+        if (sseAlgorithm != null) {
+            exchange.getResponseHeaders().set(SSE_HEADER, sseAlgorithm);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message)
+            throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        sendXml(exchange, status, "<Error>" + element("Code", code) + element("Message", message)
+                + element("RequestId", UUID.randomUUID().toString()) + "</Error>");
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] content = (XML_HEADER + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, content.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int index = parameter.indexOf('=');
+                query.put(decode(index == -1 ? parameter : parameter.substring(0, index)),
+                        index == -1 ? "" : decode(parameter.substring(index + 1)));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static String encode(String value, boolean encode) throws UnsupportedEncodingException {
+        return encode ? URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20") : value;
+    }
+
+    private static String element(String name, String value) {
+        String escaped = value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return String.format("<%s>%s</%s>", name, escaped, name);
+    }
+
+    private static String quote(String eTag) {
+        return String.format("\"%s\"", eTag);
+    }
+
+    private static String unquote(String eTag) {
+        return eTag.replace("\"", "");
+    }
+
+    private static byte[] md5(byte[] content) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class StoredObject {
+
+        private final byte[] content;
+
+        private final String eTag;
+
+        private final String contentType;
+
+        private final String sseAlgorithm;
+
+        // HTTP dates have a resolution of seconds
+        private final long lastModified = TimeUnit.SECONDS.toMillis(
+                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+
+        private StoredObject(byte[] content, String eTag, String contentType, String sseAlgorithm) {
+            this.content = content;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.sseAlgorithm = sseAlgorithm;
+        }
+    }
+
+    private static final class MultipartUpload {
+
+        private final String contentType;
+
+        private final String sseAlgorithm;
+
+        private final Map<Integer, byte[]> parts = new ConcurrentHashMap<>();
+
+        private MultipartUpload(String contentType, String sseAlgorithm) {
+            this.contentType = contentType;
+            this.sseAlgorithm = sseAlgorithm;
+        }
+    }
+
+    private static final class RateLimit {
+
+        private int rate;
+
+        private double tokens;
+
+        private long lastRefill;
+
+        private synchronized void setRate(int rate) {
+            this.rate = rate;
+            this.tokens = Math.max(1, rate / 10.0);
+            this.lastRefill = System.nanoTime();
+        }
+
+        private synchronized boolean tryAcquire() {
+            if (this.rate <= 0) {
+                return true;
+            }
+            long now = System.nanoTime();
+            double capacity = Math.max(1, this.rate / 10.0);
+            this.tokens = Math.min(capacity, this.tokens + this.rate * (now - this.lastRefill) / 1e9);
+            this.lastRefill = now;
+            if (this.tokens < 1) {
+                return false;
+            }
+            this.tokens -= 1;
+            return true;
+        }
+    }
+}
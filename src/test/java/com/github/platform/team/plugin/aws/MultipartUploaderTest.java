@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.SSEAlgorithm;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.util.ExecutorUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultipartUploaderTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String KEY = "foo/bar.zip";
+
+    private static final String UPLOAD_ID = "upload-id";
+
+    private static final int PART_SIZE = 4096;
+
+    private static final int LENGTH = 2 * PART_SIZE + 1000;
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final MultipartUploader uploader = new MultipartUploader(this.amazonS3, PART_SIZE, 2,
+            ExecutorUtils.getExecutor());
+
+    private final AtomicLong progress = new AtomicLong();
+
+    private final File source = new File("target/multipart.bin");
+
+    private byte[] content;
+
+    @Before
+    public void before() throws Exception {
+        this.content = new byte[LENGTH];
+        new Random(42).nextBytes(this.content);
+        Files.write(this.source.toPath(), this.content);
+
+        when(this.amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenReturn(initiateResult());
+    }
+
+    @Test
+    public void uploadSendsPartsFromFileOffsets() throws Exception {
+        // GIVEN
+        byte[][] received = new byte[3][];
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            received[request.getPartNumber() - 1] = readFully(request.getInputStream());
+            return partResult(request.getPartNumber(), received[request.getPartNumber() - 1]);
+        });
+
+        // WHEN
+        this.uploader.upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                (buffer, length) -> this.progress.addAndGet(length));
+
+        // THEN
+        assertThat(received[0], equalTo(Arrays.copyOfRange(this.content, 0, PART_SIZE)));
+        assertThat(received[1], equalTo(Arrays.copyOfRange(this.content, PART_SIZE, 2 * PART_SIZE)));
+        assertThat(received[2], equalTo(Arrays.copyOfRange(this.content, 2 * PART_SIZE, LENGTH)));
+        assertThat(this.progress.get(), equalTo((long) LENGTH));
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(this.amazonS3).completeMultipartUpload(complete.capture());
+        List<Integer> partNumbers = complete.getValue().getPartETags().stream().map(PartETag::getPartNumber)
+                .collect(Collectors.toList());
+        assertThat(partNumbers, contains(1, 2, 3));
+        verify(this.amazonS3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void uploadReportsProgressInFileOrder() throws Exception {
+        // GIVEN
+        CountDownLatch laterPartsSent = new CountDownLatch(1);
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.getPartNumber() == 1) {
+                laterPartsSent.await(5, TimeUnit.SECONDS);
+            }
+            byte[] part = readFully(request.getInputStream());
+            if (request.getPartNumber() == 2) {
+                laterPartsSent.countDown();
+            }
+            return partResult(request.getPartNumber(), part);
+        });
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+
+        // WHEN
+        this.uploader.upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                (buffer, length) -> reported.write(buffer, 0, length));
+
+        // THEN
+        assertThat(reported.toByteArray(), equalTo(this.content));
+    }
+
+    @Test
+    public void uploadAbortsOnFailedPart() throws Exception {
+        // GIVEN
+        AmazonServiceException failure = new AmazonServiceException("part failed");
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.getPartNumber() == 2) {
+                throw failure;
+            }
+            return partResult(request.getPartNumber(), readFully(request.getInputStream()));
+        });
+
+        // WHEN
+        try {
+            this.uploader.upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                    (buffer, length) -> this.progress.addAndGet(length));
+            fail("Exception must occur");
+        } catch (AmazonServiceException e) {
+            // THEN
+            assertThat(e, equalTo(failure));
+        }
+
+        ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(this.amazonS3).abortMultipartUpload(abort.capture());
+        assertThat(abort.getValue().getUploadId(), equalTo(UPLOAD_ID));
+        verify(this.amazonS3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void uploadAbortsOnCorruptPart() throws Exception {
+        // GIVEN
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            byte[] part = readFully(request.getInputStream());
+            if (request.getPartNumber() == 2) {
+                part[0]++;
+            }
+            return partResult(request.getPartNumber(), part);
+        });
+
+        // WHEN
+        try {
+            this.uploader.upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                    (buffer, length) -> this.progress.addAndGet(length));
+            fail("Exception must occur");
+        } catch (AmazonClientException e) {
+            // THEN
+            assertThat(e.getMessage(), containsString("Part 2 of 'foo/bar.zip'"));
+        }
+
+        verify(this.amazonS3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(this.amazonS3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    public void uploadDoesNotVerifyKmsEncryptedParts() throws Exception {
+        // GIVEN
+        when(this.amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            readFully(request.getInputStream());
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("kms-" + request.getPartNumber());
+            return result;
+        });
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setSSEAlgorithm(SSEAlgorithm.KMS.getAlgorithm());
+
+        // WHEN
+        this.uploader.upload(BUCKET_NAME, KEY, this.source, objectMetadata,
+                (buffer, length) -> this.progress.addAndGet(length));
+
+        // THEN
+        verify(this.amazonS3).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(this.amazonS3, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    private static InitiateMultipartUploadResult initiateResult() {
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setUploadId(UPLOAD_ID);
+        return result;
+    }
+
+    private static UploadPartResult partResult(int partNumber, byte[] content) throws Exception {
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(partNumber);
+        result.setETag(BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(content)));
+        return result;
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
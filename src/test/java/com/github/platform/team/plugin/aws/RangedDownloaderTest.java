@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.BinaryUtils;
+import com.github.platform.team.plugin.util.ExecutorUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RangedDownloaderTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String KEY = "foo/bar.zip";
+
+    private static final int PART_SIZE = 4096;
+
+    private static final int LENGTH = 3 * PART_SIZE + 123;
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final RangedDownloader downloader = new RangedDownloader(this.amazonS3, PART_SIZE, 2,
+            ExecutorUtils.getExecutor());
+
+    private final ByteArrayOutputStream progress = new ByteArrayOutputStream();
+
+    private final File destination = new File("target/ranged.bin");
+
+    private byte[] content;
+
+    private String eTag;
+
+    @Before
+    public void before() throws Exception {
+        this.content = new byte[LENGTH];
+        new Random(7).nextBytes(this.content);
+        this.eTag = BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(this.content));
+        this.destination.delete();
+    }
+
+    @Test
+    public void downloadAssemblesRangesAndReportsInOrder() throws Exception {
+        // GIVEN
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            assertThat(request.getMatchingETagConstraints(), equalTo(Arrays.asList(this.eTag)));
+            long[] range = request.getRange();
+            return newS3Object(Arrays.copyOfRange(this.content, (int) range[0], (int) range[1] + 1));
+        });
+
+        // WHEN
+        this.downloader.download(BUCKET_NAME, KEY, newS3Object(this.content), this.destination,
+                (buffer, length) -> this.progress.write(buffer, 0, length));
+
+        // THEN
+        assertThat(Files.readAllBytes(this.destination.toPath()), equalTo(this.content));
+        assertThat(this.progress.toByteArray(), equalTo(this.content));
+    }
+
+    @Test
+    public void downloadFailsWhenObjectChanges() throws Exception {
+        // GIVEN
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(null);
+
+        // WHEN
+        try {
+            this.downloader.download(BUCKET_NAME, KEY, newS3Object(this.content), this.destination,
+                    (buffer, length) -> this.progress.write(buffer, 0, length));
+            fail("Exception must occur");
+        } catch (IOException e) {
+            // THEN
+            assertThat(e.getMessage(), containsString("changed during the download"));
+        }
+    }
+
+    @Test
+    public void downloadVerifiesETag() throws Exception {
+        // GIVEN
+        byte[] corrupt = this.content.clone();
+        corrupt[LENGTH - 1]++;
+        when(this.amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            long[] range = ((GetObjectRequest) invocation.getArgument(0)).getRange();
+            return newS3Object(Arrays.copyOfRange(corrupt, (int) range[0], (int) range[1] + 1));
+        });
+
+        // WHEN
+        try {
+            this.downloader.download(BUCKET_NAME, KEY, newS3Object(this.content), this.destination,
+                    (buffer, length) -> this.progress.write(buffer, 0, length));
+            fail("Exception must occur");
+        } catch (IOException e) {
+            // THEN
+            assertThat(e.getMessage(), containsString("does not match its ETag"));
+        }
+    }
+
+    private S3Object newS3Object(byte[] bytes) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(bytes.length);
+        objectMetadata.setHeader("ETag", this.eTag);
+
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectMetadata(objectMetadata);
+        s3Object.setObjectContent(new ByteArrayInputStream(bytes));
+        return s3Object;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class RetryBudgetTest {
+
+    private final RetryBudget retryBudget = new RetryBudget(10);
+
+    @Test
+    public void tryWithdrawUntilExhausted() {
+        // WHEN
+        boolean first = this.retryBudget.tryWithdraw(5);
+        boolean second = this.retryBudget.tryWithdraw(5);
+        boolean third = this.retryBudget.tryWithdraw(5);
+
+        // THEN
+        assertThat(first, is(true));
+        assertThat(second, is(true));
+        assertThat(third, is(false));
+        assertThat(this.retryBudget.getBalance(), equalTo(0));
+    }
+
+    @Test
+    public void depositRefillsUpToTheCapacity() {
+        // GIVEN
+        this.retryBudget.tryWithdraw(5);
+
+        // WHEN
+        this.retryBudget.deposit(4);
+        this.retryBudget.deposit(4);
+
+        // THEN
+        assertThat(this.retryBudget.getBalance(), equalTo(10));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.util.BinaryUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SmallObjectUploaderTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final String KEY = "foo/bar.pom";
+
+    private static final int LENGTH = 5000;
+
+    private final AmazonS3 amazonS3 = mock(AmazonS3.class);
+
+    private final SmallObjectUploader uploader = new SmallObjectUploader(this.amazonS3);
+
+    private final AtomicLong progress = new AtomicLong();
+
+    private final File source = new File("target/small.bin");
+
+    private byte[] content;
+
+    @Before
+    public void before() throws Exception {
+        this.content = new byte[LENGTH];
+        new Random(42).nextBytes(this.content);
+        Files.write(this.source.toPath(), this.content);
+    }
+
+    @Test
+    public void uploadSendsContentWithMD5() throws Exception {
+        // GIVEN
+        byte[][] received = new byte[2][];
+        when(this.amazonS3.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            InputStream in = ((PutObjectRequest) invocation.getArgument(0)).getInputStream();
+            // a retry resets the body to its start
+            in.mark(LENGTH);
+            received[0] = readFully(in);
+            in.reset();
+            received[1] = readFully(in);
+            return new PutObjectResult();
+        });
+
+        // WHEN
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        this.uploader.upload(BUCKET_NAME, KEY, this.source, objectMetadata,
+                (buffer, length) -> this.progress.addAndGet(length));
+
+        // THEN
+        assertThat(received[0], equalTo(this.content));
+        assertThat(received[1], equalTo(this.content));
+        assertThat(objectMetadata.getContentLength(), equalTo((long) LENGTH));
+        assertThat(objectMetadata.getContentMD5(),
+                equalTo(BinaryUtils.toBase64(MessageDigest.getInstance("MD5").digest(this.content))));
+        assertThat(this.progress.get(), equalTo((long) LENGTH));
+    }
+
+    @Test
+    public void uploadDoesNotReportFailedUpload() throws Exception {
+        // GIVEN
+        AmazonServiceException failure = new AmazonServiceException("put failed");
+        when(this.amazonS3.putObject(any(PutObjectRequest.class))).thenThrow(failure);
+
+        // WHEN
+        try {
+            this.uploader.upload(BUCKET_NAME, KEY, this.source, new ObjectMetadata(),
+                    (buffer, length) -> this.progress.addAndGet(length));
+            fail("Exception must occur");
+        } catch (AmazonServiceException e) {
+            // THEN
+            assertThat(e, equalTo(failure));
+        }
+        assertThat(this.progress.get(), equalTo(0L));
+    }
+
+    @Test(expected = NoSuchFileException.class)
+    public void uploadMissingFile() throws Exception {
+        try {
+            this.uploader.upload(BUCKET_NAME, KEY, new File("target/missing.bin"), new ObjectMetadata(),
+                    (buffer, length) -> this.progress.addAndGet(length));
+        } finally {
+            verify(this.amazonS3, never()).putObject(any(PutObjectRequest.class));
+        }
+    }
+
+    @Test
+    public void uploadRejectsFileTooLargeForAnArray() throws Exception {
+        // GIVEN
+        File large = new File("target/small-too-large.bin");
+        try (RandomAccessFile file = new RandomAccessFile(large, "rw")) {
+            // sparse, no content is written
+            file.setLength(Integer.MAX_VALUE + 1L);
+        }
+
+        // WHEN
+        try {
+            this.uploader.upload(BUCKET_NAME, KEY, large, new ObjectMetadata(),
+                    (buffer, length) -> this.progress.addAndGet(length));
+            fail("Exception must occur");
+        } catch (IOException e) {
+            // THEN
+            assertThat(e.getMessage(), containsString("too large to be uploaded from memory"));
+        } finally {
+            large.delete();
+        }
+        verify(this.amazonS3, never()).putObject(any(PutObjectRequest.class));
+    }
+
+    private static byte[] readFully(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.aws;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ThrottleControllerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AdaptiveRateLimiter reads = new AdaptiveRateLimiter(1, this.clock::get);
+
+    private final AdaptiveRateLimiter writes = new AdaptiveRateLimiter(1, this.clock::get);
+
+    private final RetryBudget retryBudget = new RetryBudget(10);
+
+    private final ThrottleController controller = new ThrottleController(this.reads, this.writes, this.retryBudget);
+
+    private final GetObjectRequest getObjectRequest = new GetObjectRequest("bucket", "key");
+
+    @Test
+    public void retryPolicyRetriesThrottlingWithinTheBudget() {
+        // GIVEN
+        RetryPolicy.RetryCondition retryCondition = this.controller.getRetryPolicy().getRetryCondition();
+        AmazonServiceException slowDown = serviceException(503, "SlowDown");
+
+        // WHEN
+        boolean first = retryCondition.shouldRetry(this.getObjectRequest, slowDown, 0);
+        boolean second = retryCondition.shouldRetry(this.getObjectRequest, slowDown, 1);
+        boolean third = retryCondition.shouldRetry(this.getObjectRequest, slowDown, 2);
+
+        // THEN
+        assertThat(first, is(true));
+        assertThat(second, is(true));
+        assertThat(third, is(false));
+    }
+
+    @Test
+    public void retryPolicyDoesNotRetryMissingObjects() {
+        // WHEN
+        boolean retry = this.controller.getRetryPolicy().getRetryCondition()
+                .shouldRetry(this.getObjectRequest, serviceException(404, "NoSuchKey"), 0);
+
+        // THEN
+        assertThat(retry, is(false));
+        assertThat(this.retryBudget.getBalance(), equalTo(10));
+    }
+
+    @Test
+    public void retryPolicyJittersBelowAGrowingBound() {
+        // GIVEN
+        RetryPolicy.BackoffStrategy backoffStrategy = this.controller.getRetryPolicy().getBackoffStrategy();
+
+        // THEN
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoffStrategy.delayBeforeNextRetry(this.getObjectRequest, serviceException(500, null), 0),
+                    lessThanOrEqualTo(100L));
+            assertThat(backoffStrategy.delayBeforeNextRetry(this.getObjectRequest, serviceException(500, null), 2),
+                    lessThanOrEqualTo(400L));
+            assertThat(backoffStrategy.delayBeforeNextRetry(this.getObjectRequest,
+                    serviceException(503, "SlowDown"), 0), lessThanOrEqualTo(500L));
+            assertThat(backoffStrategy.delayBeforeNextRetry(this.getObjectRequest,
+                    serviceException(503, "SlowDown"), 30), lessThanOrEqualTo(20000L));
+        }
+    }
+
+    @Test
+    public void requestHandlerPacesReadsAndWritesSeparately() {
+        // GIVEN
+        RequestHandler2 requestHandler = this.controller.getRequestHandler();
+        DefaultRequest<?> request = new DefaultRequest<>("Amazon S3");
+        request.setHttpMethod(HttpMethodName.HEAD);
+
+        // WHEN
+        requestHandler.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+        requestHandler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request)
+                .withException(serviceException(503, "SlowDown")).build());
+
+        // THEN
+        assertThat(this.reads.getRate(), lessThan(Double.POSITIVE_INFINITY));
+        assertThat(this.writes.getRate(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void requestHandlerIgnoresOtherFailures() {
+        // GIVEN
+        RequestHandler2 requestHandler = this.controller.getRequestHandler();
+        DefaultRequest<?> request = new DefaultRequest<>("Amazon S3");
+        request.setHttpMethod(HttpMethodName.PUT);
+
+        // WHEN
+        requestHandler.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+        requestHandler.afterAttempt(HandlerAfterAttemptContext.builder().withRequest(request)
+                .withException(serviceException(403, "AccessDenied")).build());
+
+        // THEN
+        assertThat(this.writes.getRate(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void requestHandlerRefillsTheBudget() {
+        // GIVEN
+        this.retryBudget.tryWithdraw(5);
+
+        // WHEN
+        this.controller.getRequestHandler().afterResponse(new DefaultRequest<>("Amazon S3"), null);
+
+        // THEN
+        assertThat(this.retryBudget.getBalance(), equalTo(6));
+    }
+
+    @Test
+    public void isThrottling() {
+        assertThat(ThrottleController.isThrottling(serviceException(503, "SlowDown")), is(true));
+        assertThat(ThrottleController.isThrottling(serviceException(429, "TooManyRequests")), is(true));
+        assertThat(ThrottleController.isThrottling(serviceException(400, "Throttling")), is(true));
+        assertThat(ThrottleController.isThrottling(serviceException(404, "NoSuchKey")), is(false));
+        assertThat(ThrottleController.isThrottling(new SdkClientException("")), is(false));
+    }
+
+    private static AmazonServiceException serviceException(int statusCode, String errorCode) {
+        AmazonServiceException exception = new AmazonServiceException("");
+        exception.setStatusCode(statusCode);
+        exception.setErrorCode(errorCode);
+        return exception;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import com.github.platform.team.plugin.data.TransferProgress;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ContentCacheTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private final Path directory = new File("target/content-cache").toPath();
+
+    private final File source = new File("target/content-cache-source.bin");
+
+    private final File destination = new File("target/content-cache-destination.bin");
+
+    private final ContentCache cache = new ContentCache(this.directory, 25);
+
+    @Before
+    public void before() throws IOException {
+        if (Files.exists(this.directory)) {
+            try (Stream<Path> paths = Files.walk(this.directory)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void retrieveCopiesStoredContent() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+        ByteArrayOutputStream reported = new ByteArrayOutputStream();
+        TransferProgress transferProgress = (buffer, length) -> reported.write(buffer, 0, length);
+
+        // WHEN
+        boolean retrieved = this.cache.retrieve(BUCKET_NAME, "foo", "etag-1", this.destination, transferProgress);
+
+        // THEN
+        assertThat(retrieved, is(true));
+        assertThat(new String(Files.readAllBytes(this.destination.toPath()), StandardCharsets.UTF_8),
+                equalTo("0123456789"));
+        assertThat(reported.toString("UTF-8"), equalTo("0123456789"));
+        assertThat(this.cache.getETag(BUCKET_NAME, "foo"), equalTo("etag-1"));
+        assertThat(this.cache.getETag("other", "foo"), nullValue());
+    }
+
+    @Test
+    public void retrieveMissingEntry() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+
+        // WHEN
+        boolean retrieved = this.cache.retrieve(BUCKET_NAME, "foo", "etag-2", this.destination, (buffer, length) -> {
+        });
+
+        // THEN
+        assertThat(retrieved, is(false));
+    }
+
+    @Test
+    public void storeReplacesOtherETags() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+
+        // WHEN
+        store("foo", "\"etag/2\"", "9876543210");
+
+        // THEN
+        assertThat(this.cache.getETag(BUCKET_NAME, "foo"), equalTo("\"etag/2\""));
+        assertThat(this.cache.size(), equalTo(10L));
+    }
+
+    @Test
+    public void storeEvictsLeastRecentlyUsed() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+        setLastModified(1000);
+        store("bar", "etag-2", "0123456789");
+        setLastModified(2000);
+        this.cache.retrieve(BUCKET_NAME, "foo", "etag-1", this.destination, (buffer, length) -> {
+        });
+
+        // WHEN
+        store("baz", "etag-3", "0123456789");
+
+        // THEN
+        assertThat(this.cache.getETag(BUCKET_NAME, "foo"), equalTo("etag-1"));
+        assertThat(this.cache.getETag(BUCKET_NAME, "bar"), nullValue());
+        assertThat(this.cache.getETag(BUCKET_NAME, "baz"), equalTo("etag-3"));
+        assertThat(this.cache.size(), equalTo(20L));
+    }
+
+    @Test
+    public void storeCorrectsTrackedSizeBeforeEvicting() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+        setLastModified(1000);
+        store("bar", "etag-2", "0123456789");
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            // removed by hand, the tracked size still counts it
+            paths.filter(path -> path.getFileName().toString().equals("etag-1"))
+                    .forEach(path -> path.toFile().delete());
+        }
+
+        // WHEN
+        store("baz", "etag-3", "0123456789");
+
+        // THEN
+        assertThat(this.cache.getETag(BUCKET_NAME, "bar"), equalTo("etag-2"));
+        assertThat(this.cache.getETag(BUCKET_NAME, "baz"), equalTo("etag-3"));
+        assertThat(this.cache.size(), equalTo(20L));
+    }
+
+    @Test
+    public void storeRecreatesEvictedEntryDirectory() throws IOException {
+        // GIVEN
+        store("foo", "etag-1", "0123456789");
+        store("bar", "etag-2", "0123456789");
+        store("baz", "etag-3", "0123456789");
+
+        // WHEN
+        store("foo", "etag-4", "0123456789");
+
+        // THEN
+        assertThat(this.cache.getETag(BUCKET_NAME, "foo"), equalTo("etag-4"));
+        assertThat(this.cache.size(), equalTo(20L));
+    }
+
+    @Test
+    public void storeSkipsObjectsLargerThanTheCache() throws IOException {
+        // WHEN
+        store("foo", "etag-1", "0123456789012345678901234567890123456789");
+
+        // THEN
+        assertThat(this.cache.getETag(BUCKET_NAME, "foo"), nullValue());
+    }
+
+    private void store(String key, String eTag, String content) throws IOException {
+        Files.write(this.source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        this.cache.store(BUCKET_NAME, key, eTag, this.source);
+    }
+
+    private void setLastModified(long time) throws IOException {
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .forEach(path -> {
+                        try {
+                            if (Files.getLastModifiedTime(path).toMillis() > time) {
+                                Files.setLastModifiedTime(path, FileTime.fromMillis(time));
+                            }
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+        }
+    }
+}
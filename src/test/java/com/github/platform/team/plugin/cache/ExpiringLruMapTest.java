@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ExpiringLruMapTest {
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ExpiringLruMap<String, String> map = new ExpiringLruMap<>(2, this.clock::get);
+
+    @Test
+    public void getReturnsStoredValues() {
+        // GIVEN
+        this.map.put("foo", "bar");
+
+        // WHEN
+        String value = this.map.get("foo", TIME_TO_LIVE);
+
+        // THEN
+        assertThat(value, equalTo("bar"));
+        assertThat(this.map.get("baz", TIME_TO_LIVE), nullValue());
+    }
+
+    @Test
+    public void getExpiresOldEntries() {
+        // GIVEN
+        this.map.put("foo", "bar");
+
+        // WHEN
+        this.clock.set(TIME_TO_LIVE);
+
+        // THEN
+        assertThat(this.map.get("foo", TIME_TO_LIVE + 1), equalTo("bar"));
+        assertThat(this.map.get("foo", TIME_TO_LIVE), nullValue());
+        assertThat(this.map.size(), equalTo(0));
+    }
+
+    @Test
+    public void putRestartsTheAgeOfAnEntry() {
+        // GIVEN
+        this.map.put("foo", "bar");
+        this.clock.set(TIME_TO_LIVE);
+
+        // WHEN
+        this.map.put("foo", "baz");
+
+        // THEN
+        assertThat(this.map.get("foo", TIME_TO_LIVE), equalTo("baz"));
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsed() {
+        // GIVEN
+        this.map.put("foo", "1");
+        this.map.put("bar", "2");
+        this.map.get("foo", TIME_TO_LIVE);
+
+        // WHEN
+        this.map.put("baz", "3");
+
+        // THEN
+        assertThat(this.map.size(), equalTo(2));
+        assertThat(this.map.get("foo", TIME_TO_LIVE), equalTo("1"));
+        assertThat(this.map.get("bar", TIME_TO_LIVE), nullValue());
+        assertThat(this.map.get("baz", TIME_TO_LIVE), equalTo("3"));
+    }
+
+    @Test
+    public void removeForgetsEntry() {
+        // GIVEN
+        this.map.put("foo", "bar");
+
+        // WHEN
+        this.map.remove("foo");
+
+        // THEN
+        assertThat(this.map.get("foo", TIME_TO_LIVE), nullValue());
+    }
+}
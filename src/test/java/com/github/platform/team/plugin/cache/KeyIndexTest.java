@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class KeyIndexTest {
+
+    private final KeyIndex keyIndex = new KeyIndex();
+
+    @Test
+    public void listReturnsDirectoriesBeforeFiles() {
+        // GIVEN
+        this.keyIndex.add("b.txt");
+        this.keyIndex.add("a/1.0/a.jar");
+        this.keyIndex.add("a.txt");
+        this.keyIndex.add("c/");
+
+        // WHEN
+        List<String> names = this.keyIndex.list("");
+
+        // THEN
+        assertThat(names, equalTo(Arrays.asList("a/", "c/", "a.txt", "b.txt")));
+    }
+
+    @Test
+    public void listNestedDirectory() {
+        // GIVEN
+        this.keyIndex.add("a/1.0/a.jar");
+        this.keyIndex.add("a/1.0/a.pom");
+        this.keyIndex.add("a/1.0/");
+        this.keyIndex.add("a/2.0/a.jar");
+
+        // THEN
+        assertThat(this.keyIndex.list("a/"), equalTo(Arrays.asList("1.0/", "2.0/")));
+        assertThat(this.keyIndex.list("a/1.0/"), equalTo(Arrays.asList("", "a.jar", "a.pom")));
+        assertThat(this.keyIndex.list("a/1.0"), equalTo(Arrays.asList("", "a.jar", "a.pom")));
+        assertThat(this.keyIndex.list("a/2.0/"), equalTo(Collections.singletonList("a.jar")));
+    }
+
+    @Test
+    public void listFollowsUtf8Order() {
+        // GIVEN
+        this.keyIndex.add("\uD83D\uDE00/a.jar");
+        this.keyIndex.add("\uFF21/a.jar");
+        this.keyIndex.add("a/a.jar");
+        this.keyIndex.add("a-b/a.jar");
+        this.keyIndex.add("\uD83D\uDE00.txt");
+        this.keyIndex.add("\uFF21.txt");
+
+        // WHEN
+        List<String> names = this.keyIndex.list("");
+
+        // THEN
+        assertThat(names, equalTo(Arrays.asList("a-b/", "a/", "\uFF21/", "\uD83D\uDE00/", "\uFF21.txt",
+                "\uD83D\uDE00.txt")));
+    }
+
+    @Test
+    public void listListsNameAsFileAndDirectory() {
+        // GIVEN
+        this.keyIndex.add("a");
+        this.keyIndex.add("a/b");
+
+        // THEN
+        assertThat(this.keyIndex.list(""), equalTo(Arrays.asList("a/", "a")));
+    }
+
+    @Test
+    public void listMissingDirectory() {
+        // GIVEN
+        this.keyIndex.add("a/a.jar");
+
+        // THEN
+        assertThat(this.keyIndex.list("b/"), equalTo(Collections.emptyList()));
+        assertThat(this.keyIndex.list("a/a.jar/"), equalTo(Collections.emptyList()));
+    }
+
+    @Test
+    public void sizeCountsKeysOnce() {
+        // GIVEN
+        this.keyIndex.add("a/a.jar");
+        this.keyIndex.add("a/a.jar");
+        this.keyIndex.add("a/");
+        this.keyIndex.add("a/");
+
+        // THEN
+        assertThat(this.keyIndex.size(), equalTo(2));
+    }
+}
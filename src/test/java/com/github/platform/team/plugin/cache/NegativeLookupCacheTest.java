@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class NegativeLookupCacheTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final NegativeLookupCache cache = new NegativeLookupCache(2, this.clock::get);
+
+    @Test
+    public void isMissingReturnsRecordedMisses() {
+        // GIVEN
+        this.cache.recordMissing(BUCKET_NAME, "foo");
+
+        // WHEN
+        boolean missing = this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE);
+
+        // THEN
+        assertThat(missing, is(true));
+        assertThat(this.cache.isMissing("other", "foo", TIME_TO_LIVE), is(false));
+        assertThat(this.cache.isMissing(BUCKET_NAME, "bar", TIME_TO_LIVE), is(false));
+    }
+
+    @Test
+    public void isMissingExpiresOldEntries() {
+        // GIVEN
+        this.cache.recordMissing(BUCKET_NAME, "foo");
+
+        // WHEN
+        this.clock.set(TIME_TO_LIVE);
+
+        // THEN
+        assertThat(this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE + 1), is(true));
+        assertThat(this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE), is(false));
+        assertThat(this.cache.size(), equalTo(0));
+    }
+
+    @Test
+    public void recordMissingEvictsLeastRecentlyUsed() {
+        // GIVEN
+        this.cache.recordMissing(BUCKET_NAME, "foo");
+        this.cache.recordMissing(BUCKET_NAME, "bar");
+        this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE);
+
+        // WHEN
+        this.cache.recordMissing(BUCKET_NAME, "baz");
+
+        // THEN
+        assertThat(this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE), is(true));
+        assertThat(this.cache.isMissing(BUCKET_NAME, "bar", TIME_TO_LIVE), is(false));
+        assertThat(this.cache.isMissing(BUCKET_NAME, "baz", TIME_TO_LIVE), is(true));
+    }
+
+    @Test
+    public void invalidateRemovesEntry() {
+        // GIVEN
+        this.cache.recordMissing(BUCKET_NAME, "foo");
+
+        // WHEN
+        this.cache.invalidate(BUCKET_NAME, "foo");
+
+        // THEN
+        assertThat(this.cache.isMissing(BUCKET_NAME, "foo", TIME_TO_LIVE), is(false));
+    }
+}
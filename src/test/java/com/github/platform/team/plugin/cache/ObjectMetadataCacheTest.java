@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.cache;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ObjectMetadataCacheTest {
+
+    private static final String BUCKET_NAME = "bucket";
+
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final ObjectMetadataCache cache = new ObjectMetadataCache(2, this.clock::get);
+
+    private final ResourceMetadata metadata = new ResourceMetadata("etag", new Date(42), 7);
+
+    @Test
+    public void getReturnsStoredMetadata() {
+        // GIVEN
+        this.cache.put(BUCKET_NAME, "foo", this.metadata);
+
+        // WHEN
+        ResourceMetadata cached = this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE);
+
+        // THEN
+        assertThat(cached, sameInstance(this.metadata));
+        assertThat(this.cache.get("other", "foo", TIME_TO_LIVE), nullValue());
+    }
+
+    @Test
+    public void getExpiresOldEntries() {
+        // GIVEN
+        this.cache.put(BUCKET_NAME, "foo", this.metadata);
+
+        // WHEN
+        this.clock.set(TIME_TO_LIVE);
+
+        // THEN
+        assertThat(this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE + 1), sameInstance(this.metadata));
+        assertThat(this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE), nullValue());
+        assertThat(this.cache.size(), equalTo(0));
+    }
+
+    @Test
+    public void putEvictsLeastRecentlyUsed() {
+        // GIVEN
+        this.cache.put(BUCKET_NAME, "foo", this.metadata);
+        this.cache.put(BUCKET_NAME, "bar", this.metadata);
+        this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE);
+
+        // WHEN
+        this.cache.put(BUCKET_NAME, "baz", this.metadata);
+
+        // THEN
+        assertThat(this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE), sameInstance(this.metadata));
+        assertThat(this.cache.get(BUCKET_NAME, "bar", TIME_TO_LIVE), nullValue());
+        assertThat(this.cache.get(BUCKET_NAME, "baz", TIME_TO_LIVE), sameInstance(this.metadata));
+    }
+
+    @Test
+    public void invalidateRemovesEntry() {
+        // GIVEN
+        this.cache.put(BUCKET_NAME, "foo", this.metadata);
+
+        // WHEN
+        this.cache.invalidate(BUCKET_NAME, "foo");
+
+        // THEN
+        assertThat(this.cache.get(BUCKET_NAME, "foo", TIME_TO_LIVE), nullValue());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.github.platform.team.plugin.data.TransferProgress;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CoalescingTransferProgressTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final RecordingTransferProgress delegate = new RecordingTransferProgress();
+
+    @Test
+    public void passesOnEveryNotificationWithoutThreshold() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(0);
+
+        // WHEN
+        progress.notify(bytes(0, 10), 10);
+        progress.notify(bytes(10, 10), 2, 5);
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(10, 5));
+        assertThat(this.delegate.content.toByteArray(), equalTo(concat(bytes(0, 10), bytes(12, 5))));
+    }
+
+    @Test
+    public void collectsUntilThreshold() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(100);
+
+        // WHEN
+        for (int i = 0; i < 25; i++) {
+            progress.notify(bytes(i * 10, 10), 10);
+        }
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(100, 100));
+        assertThat(this.delegate.content.toByteArray(), equalTo(bytes(0, 200)));
+    }
+
+    @Test
+    public void flushPassesOnTheRest() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(100);
+        progress.notify(bytes(0, 30), 30);
+        progress.notify(bytes(30, 30), 30);
+
+        // WHEN
+        progress.flush();
+        progress.flush();
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(60));
+        assertThat(this.delegate.content.toByteArray(), equalTo(bytes(0, 60)));
+    }
+
+    @Test
+    public void passesOnAfterInterval() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(100);
+        progress.notify(bytes(0, 10), 10);
+
+        // WHEN
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        progress.notify(bytes(10, 10), 10);
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(20));
+    }
+
+    @Test
+    public void largeChunksArePassedOnDirectly() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(100);
+        byte[] large = bytes(20, 150);
+        progress.notify(bytes(0, 20), 20);
+
+        // WHEN
+        progress.notify(large, 150);
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(20, 150));
+        assertThat(this.delegate.buffers.get(1), sameInstance(large));
+        assertThat(this.delegate.content.toByteArray(), equalTo(bytes(0, 170)));
+    }
+
+    @Test
+    public void keepsChunksThatDoNotFitApart() {
+        // GIVEN
+        CoalescingTransferProgress progress = newProgress(100);
+        progress.notify(bytes(0, 70), 70);
+
+        // WHEN
+        progress.notify(bytes(70, 50), 50);
+
+        // THEN
+        assertThat(this.delegate.lengths, contains(70));
+        progress.flush();
+        assertThat(this.delegate.content.toByteArray(), equalTo(bytes(0, 120)));
+    }
+
+    @Test
+    public void emptyProgress() {
+        // WHEN
+        newProgress(100).flush();
+
+        // THEN
+        assertThat(this.delegate.lengths, empty());
+    }
+
+    private CoalescingTransferProgress newProgress(int threshold) {
+        return new CoalescingTransferProgress(this.delegate, threshold, TimeUnit.MILLISECONDS.toNanos(100),
+                this.clock::get);
+    }
+
+    private static byte[] bytes(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (start + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private static final class RecordingTransferProgress implements TransferProgress {
+
+        private final List<Integer> lengths = new ArrayList<>();
+
+        private final List<byte[]> buffers = new ArrayList<>();
+
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        @Override
+        public void notify(byte[] buffer, int length) {
+            notify(buffer, 0, length);
+        }
+
+        @Override
+        public void notify(byte[] buffer, int offset, int length) {
+            this.lengths.add(length);
+            this.buffers.add(buffer);
+            this.content.write(buffer, offset, length);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class DigestingTransferProgressTest {
+
+    private static final byte[] CONTENT = "xxhello worldxx".getBytes(StandardCharsets.UTF_8);
+
+    private final StubTransferProgress delegate = new StubTransferProgress();
+
+    @Test
+    public void notifyDigestsRegion() {
+        // GIVEN
+        DigestingTransferProgress transferProgress = new DigestingTransferProgress(this.delegate, "MD5", "SHA-1");
+
+        // WHEN
+        transferProgress.notify(CONTENT, 2, 5);
+        transferProgress.notify(CONTENT, 7, 6);
+
+        // THEN
+        assertThat(transferProgress.getDigest("MD5"), equalTo("5eb63bbbe01eeed093cb22bb8f5acdc3"));
+        assertThat(transferProgress.getDigest("SHA-1"), equalTo("2aae6c35c94fcfb415dbe95f408b9ce91ee846ed"));
+        assertThat(this.delegate.getLength(), equalTo(6));
+        assertThat(new String(this.delegate.getBuffer(), 0, 6, StandardCharsets.UTF_8), equalTo(" world"));
+    }
+
+    @Test
+    public void notifyWithoutOffset() {
+        // GIVEN
+        DigestingTransferProgress transferProgress = new DigestingTransferProgress(this.delegate, "MD5");
+
+        // WHEN
+        transferProgress.notify("hello world".getBytes(StandardCharsets.UTF_8), 11);
+
+        // THEN
+        assertThat(transferProgress.getDigest("MD5"), equalTo("5eb63bbbe01eeed093cb22bb8f5acdc3"));
+        assertThat(this.delegate.getLength(), equalTo(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAlgorithm() {
+        new DigestingTransferProgress(this.delegate, "MD6");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void digestNotComputed() {
+        new DigestingTransferProgress(this.delegate, "MD5").getDigest("SHA-1");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class FileRegionInputStreamTest {
+
+    private static final int OFFSET = 10;
+    private static final int LENGTH = 20;
+
+    private final AtomicInteger notified = new AtomicInteger();
+    private FileChannel channel;
+    private FileRegionInputStream inputStream;
+
+    @Before
+    public void before() throws Exception {
+        this.channel = FileChannel.open(new File("src/test/resources/test.txt").toPath(), StandardOpenOption.READ);
+        this.inputStream = new FileRegionInputStream(this.channel, OFFSET, LENGTH,
+                (buffer, length) -> this.notified.addAndGet(length));
+    }
+
+    @After
+    public void after() throws Exception {
+        this.channel.close();
+    }
+
+    @Test
+    public void readStopsAtEndOfRegion() throws Exception {
+        // GIVEN
+        byte[] buffer = new byte[1024];
+
+        // WHEN
+        int first = this.inputStream.read(buffer, 0, buffer.length);
+        int second = this.inputStream.read(buffer, 0, buffer.length);
+
+        // THEN
+        assertThat(first, equalTo(LENGTH));
+        assertThat(second, equalTo(-1));
+        assertThat(new String(buffer, 0, 5, "UTF-8"), equalTo("01112"));
+    }
+
+    @Test
+    public void resetDoesNotReportBytesTwice() throws Exception {
+        // GIVEN
+        byte[] buffer = new byte[LENGTH];
+        this.inputStream.mark(LENGTH);
+        this.inputStream.read(buffer, 0, LENGTH / 2);
+
+        // WHEN
+        this.inputStream.reset();
+        int read = this.inputStream.read(buffer, 0, LENGTH);
+
+        // THEN
+        assertThat(read, equalTo(LENGTH));
+        assertThat(this.notified.get(), equalTo(LENGTH));
+    }
+
+    @Test
+    public void readSingleByte() throws Exception {
+        // GIVEN
+
+        // WHEN
+        int b = this.inputStream.read();
+
+        // THEN
+        assertThat(b, equalTo((int) '0'));
+        assertThat(this.notified.get(), equalTo(1));
+    }
+}
@@ -27,7 +27,10 @@ import java.io.IOException;
 import static com.github.platform.team.plugin.maven.matchers.Matchers.eq;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 public class StandardSessionListenerSupportTest {
@@ -48,6 +51,23 @@ public class StandardSessionListenerSupportTest {
         assertFalse(this.sessionListenerSupport.hasSessionListener(this.sessionListener));
     }
 
+    @Test
+    public void sessionListenerRemovedWhileFiring() {
+        SessionListener other = mock(SessionListener.class);
+        this.sessionListenerSupport.addSessionListener(other);
+        doAnswer(invocation -> {
+            this.sessionListenerSupport.removeSessionListener(this.sessionListener);
+            return null;
+        }).when(this.sessionListener).sessionOpening(any());
+
+        this.sessionListenerSupport.fireSessionOpening();
+        this.sessionListenerSupport.fireSessionOpened();
+
+        verify(other).sessionOpening(any());
+        verify(other).sessionOpened(any());
+        verify(this.sessionListener, never()).sessionOpened(any());
+    }
+
     @Test
     public void fireSessionOpening() {
         this.sessionListenerSupport.fireSessionOpening();
@@ -23,14 +23,20 @@ import org.apache.maven.wagon.events.TransferListener;
 import org.apache.maven.wagon.resource.Resource;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 
 import java.io.IOException;
 
 import static com.github.platform.team.plugin.maven.matchers.Matchers.eq;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class StandardTransferListenerSupportTest {
@@ -79,6 +85,70 @@ public class StandardTransferListenerSupportTest {
                 ArgumentMatchers.eq(buffer), ArgumentMatchers.eq(length));
     }
 
+    @Test
+    public void fireTransferProgressReusesEvent() {
+        byte[] buffer = new byte[0];
+        ArgumentCaptor<TransferEvent> events = ArgumentCaptor.forClass(TransferEvent.class);
+        Resource other = mock(Resource.class);
+
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferProgress(other, REQUEST_TYPE, buffer, 0);
+
+        verify(this.transferListener, times(3)).transferProgress(events.capture(), ArgumentMatchers.eq(buffer),
+                ArgumentMatchers.eq(0));
+        assertSame(events.getAllValues().get(0), events.getAllValues().get(1));
+        assertNotSame(events.getAllValues().get(1), events.getAllValues().get(2));
+        assertSame(other, events.getAllValues().get(2).getResource());
+    }
+
+    @Test
+    public void fireTransferProgressKeepsEventPerTransfer() {
+        byte[] buffer = new byte[0];
+        ArgumentCaptor<TransferEvent> events = ArgumentCaptor.forClass(TransferEvent.class);
+        Resource other = mock(Resource.class);
+
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferProgress(other, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+
+        verify(this.transferListener, times(3)).transferProgress(events.capture(), ArgumentMatchers.eq(buffer),
+                ArgumentMatchers.eq(0));
+        assertSame(events.getAllValues().get(0), events.getAllValues().get(2));
+        assertNotSame(events.getAllValues().get(0), events.getAllValues().get(1));
+    }
+
+    @Test
+    public void fireTransferCompletedReleasesProgressEvent() {
+        byte[] buffer = new byte[0];
+        ArgumentCaptor<TransferEvent> events = ArgumentCaptor.forClass(TransferEvent.class);
+
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferCompleted(this.resource, REQUEST_TYPE);
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+
+        verify(this.transferListener, times(2)).transferProgress(events.capture(), ArgumentMatchers.eq(buffer),
+                ArgumentMatchers.eq(0));
+        assertNotSame(events.getAllValues().get(0), events.getAllValues().get(1));
+    }
+
+    @Test
+    public void transferListenerRemovedWhileFiring() {
+        TransferListener other = mock(TransferListener.class);
+        this.transferListenerSupport.addTransferListener(other);
+        doAnswer(invocation -> {
+            this.transferListenerSupport.removeTransferListener(this.transferListener);
+            return null;
+        }).when(this.transferListener).transferStarted(ArgumentMatchers.any());
+
+        this.transferListenerSupport.fireTransferStarted(this.resource, REQUEST_TYPE);
+        this.transferListenerSupport.fireTransferCompleted(this.resource, REQUEST_TYPE);
+
+        verify(other).transferStarted(ArgumentMatchers.any());
+        verify(other).transferCompleted(ArgumentMatchers.any());
+        verify(this.transferListener, never()).transferCompleted(ArgumentMatchers.any());
+    }
+
     @Test
     public void fireTransferCompleted() {
         this.transferListenerSupport.fireTransferCompleted(this.resource, REQUEST_TYPE);
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.data.transfer;
+
+import com.github.platform.team.plugin.data.TransferListenerSupport;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
+import org.apache.maven.wagon.resource.Resource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SynchronizedTransferListenerSupportTest {
+
+    private static final int REQUEST_TYPE = TransferEvent.REQUEST_PUT;
+
+    private final TransferListenerSupport delegate = mock(TransferListenerSupport.class);
+    private final Resource resource = mock(Resource.class);
+    private final TransferListener transferListener = mock(TransferListener.class);
+    private final TransferListenerSupport transferListenerSupport =
+            new SynchronizedTransferListenerSupport(this.delegate);
+
+    @Test
+    public void transferListenerManagement() {
+        when(this.delegate.hasTransferListener(this.transferListener)).thenReturn(true);
+
+        this.transferListenerSupport.addTransferListener(this.transferListener);
+        assertTrue(this.transferListenerSupport.hasTransferListener(this.transferListener));
+        this.transferListenerSupport.removeTransferListener(this.transferListener);
+
+        verify(this.delegate).addTransferListener(this.transferListener);
+        verify(this.delegate).removeTransferListener(this.transferListener);
+    }
+
+    @Test
+    public void fireEvents() {
+        byte[] buffer = new byte[0];
+        Exception exception = new Exception();
+
+        this.transferListenerSupport.fireTransferInitiated(this.resource, REQUEST_TYPE);
+        this.transferListenerSupport.fireTransferStarted(this.resource, REQUEST_TYPE);
+        this.transferListenerSupport.fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        this.transferListenerSupport.fireTransferCompleted(this.resource, REQUEST_TYPE);
+        this.transferListenerSupport.fireTransferError(this.resource, REQUEST_TYPE, exception);
+
+        verify(this.delegate).fireTransferInitiated(this.resource, REQUEST_TYPE);
+        verify(this.delegate).fireTransferStarted(this.resource, REQUEST_TYPE);
+        verify(this.delegate).fireTransferProgress(this.resource, REQUEST_TYPE, buffer, 0);
+        verify(this.delegate).fireTransferCompleted(this.resource, REQUEST_TYPE);
+        verify(this.delegate).fireTransferError(this.resource, REQUEST_TYPE, exception);
+    }
+}
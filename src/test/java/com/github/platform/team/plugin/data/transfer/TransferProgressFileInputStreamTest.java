@@ -99,4 +99,37 @@ public class TransferProgressFileInputStreamTest {
         // THEN
         assertThat(actual, equalTo(expected));
     }
+
+    @Test
+    public void readByteArrayReportsBytesRead() throws Exception {
+        // GIVEN
+        long fileLength = new File("src/test/resources/test.txt").length();
+        byte[] buffer = new byte[(int) fileLength + BIG_SIZE];
+
+        // WHEN
+        int length = this.inputStream.read(buffer);
+
+        // THEN
+        assertThat((long) length, equalTo(fileLength));
+        assertThat(this.transferProgress.getLength(), equalTo(length));
+    }
+
+    @Test
+    public void readAtEndOfFileReportsNothing() throws Exception {
+        // GIVEN
+        byte[] buffer = new byte[BIG_SIZE];
+        while (this.inputStream.read(buffer, START_POSITION, SIZE) != -1) {
+            // skip to the end of the file
+        }
+        int reported = this.transferProgress.getLength();
+
+        // WHEN
+        int b = this.inputStream.read();
+        int length = this.inputStream.read(buffer, START_POSITION, SIZE);
+
+        // THEN
+        assertThat(b, equalTo(-1));
+        assertThat(length, equalTo(-1));
+        assertThat(this.transferProgress.getLength(), equalTo(reported));
+    }
 }
@@ -20,8 +20,17 @@ import com.github.platform.team.plugin.data.TransferListenerSupport;
 import org.apache.maven.wagon.events.TransferEvent;
 import org.apache.maven.wagon.resource.Resource;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class TransferProgressTest {
@@ -43,4 +52,35 @@ public class TransferProgressTest {
         // THEN
         verify(this.transferListenerSupport).fireTransferProgress(this.resource, REQUEST_TYPE, buffer, length);
     }
+
+    @Test
+    public void notifyProgressWithOffset() {
+        // GIVEN
+        byte[] buffer = {0, 1, 2, 3, 4, 5};
+        ArgumentCaptor<byte[]> notified = ArgumentCaptor.forClass(byte[].class);
+
+        // WHEN
+        this.transferProgress.notify(buffer, 2, 3);
+
+        // THEN
+        verify(this.transferListenerSupport).fireTransferProgress(eq(this.resource), eq(REQUEST_TYPE),
+                notified.capture(), eq(3));
+        assertThat(Arrays.copyOf(notified.getValue(), 3), equalTo(new byte[]{2, 3, 4}));
+    }
+
+    @Test
+    public void notifyProgressWithOffsetReusesBuffer() {
+        // GIVEN
+        byte[] buffer = new byte[16];
+        ArgumentCaptor<byte[]> notified = ArgumentCaptor.forClass(byte[].class);
+
+        // WHEN
+        this.transferProgress.notify(buffer, 4, 8);
+        this.transferProgress.notify(buffer, 8, 4);
+
+        // THEN
+        verify(this.transferListenerSupport, times(2)).fireTransferProgress(eq(this.resource), eq(REQUEST_TYPE),
+                notified.capture(), anyInt());
+        assertThat(notified.getAllValues().get(1), sameInstance(notified.getAllValues().get(0)));
+    }
 }
@@ -23,6 +23,7 @@ import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.TransferFailedException;
 import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
 import org.apache.maven.wagon.authorization.AuthorizationException;
@@ -34,11 +35,20 @@ import org.apache.maven.wagon.proxy.ProxyInfoProvider;
 import org.apache.maven.wagon.repository.Repository;
 import org.apache.maven.wagon.resource.Resource;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -47,8 +57,11 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -241,6 +254,148 @@ public class AbstractWagonTest {
         verify(this.transferListenerSupport).fireTransferCompleted(new Resource("foo"), TransferEvent.REQUEST_GET);
     }
 
+    @Test
+    public void getCoalescesProgress() throws TransferFailedException, ResourceDoesNotExistException,
+            AuthorizationException {
+        // GIVEN
+        this.wagon.setProgressThreshold(1024);
+        this.wagon.setProgressInterval(TimeUnit.HOURS.toMillis(1));
+        doAnswer(invocation -> {
+            TransferProgress transferProgress = invocation.getArgument(2);
+            for (int i = 0; i < 3; i++) {
+                transferProgress.notify(new byte[100], 100);
+            }
+            return null;
+        }).when(this.wagon).getResource(eq("foo"), eq(new File("bar")), any(TransferProgress.class));
+
+        // WHEN
+        this.wagon.get("foo", new File("bar"));
+
+        // THEN
+        InOrder inOrder = inOrder(this.transferListenerSupport);
+        inOrder.verify(this.transferListenerSupport).fireTransferProgress(eq(new Resource("foo")),
+                eq(TransferEvent.REQUEST_GET), any(byte[].class), eq(300));
+        inOrder.verify(this.transferListenerSupport).fireTransferCompleted(new Resource("foo"),
+                TransferEvent.REQUEST_GET);
+    }
+
+    @Test
+    public void getAsync() throws Exception {
+        // WHEN
+        this.wagon.getAsync("foo", new File("bar")).get(10, TimeUnit.SECONDS);
+
+        // THEN
+        verify(this.transferListenerSupport).fireTransferInitiated(new Resource("foo"), TransferEvent.REQUEST_GET);
+        verify(this.transferListenerSupport).fireTransferStarted(new Resource("foo"), TransferEvent.REQUEST_GET);
+        verify(this.wagon).getResource(eq("foo"), eq(new File("bar")), any(TransferProgress.class));
+        verify(this.transferListenerSupport).fireTransferCompleted(new Resource("foo"), TransferEvent.REQUEST_GET);
+    }
+
+    @Test
+    public void getAsyncTransferFailedException() throws Exception {
+        // GIVEN
+        TransferFailedException exception = new TransferFailedException("");
+        doThrow(exception).when(this.wagon).getResource(eq("foo"), eq(new File("bar")), any(TransferProgress.class));
+
+        // WHEN
+        try {
+            this.wagon.getAsync("foo", new File("bar")).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            // THEN
+            assertEquals(exception, e.getCause());
+            verify(this.transferListenerSupport).fireTransferError(new Resource("foo"), TransferEvent.REQUEST_GET,
+                    exception);
+        }
+    }
+
+    @Test
+    public void asyncOperationsOnOneResourceRunInOrder() throws Exception {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            calls.add("get");
+            return null;
+        }).when(this.wagon).getResource(eq("foo"), eq(new File("bar")), any(TransferProgress.class));
+        doAnswer(invocation -> {
+            calls.add("put");
+            return null;
+        }).when(this.wagon).putResource(eq(new File("bar")), eq("foo"), any(TransferProgress.class));
+        this.wagon.setAsyncConcurrency(4);
+
+        // WHEN
+        CompletableFuture<Void> get = this.wagon.getAsync("foo", new File("bar"));
+        CompletableFuture<Void> put = this.wagon.putAsync(new File("bar"), "foo");
+        release.countDown();
+        CompletableFuture.allOf(get, put).get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals(Arrays.asList("get", "put"), calls);
+    }
+
+    @Test
+    public void asyncTransfersFireEventsOneAtATime() throws Exception {
+        // GIVEN
+        AtomicInteger firing = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (firing.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.sleep(5);
+            firing.decrementAndGet();
+            return null;
+        }).when(this.transferListenerSupport).fireTransferStarted(any(Resource.class), eq(TransferEvent.REQUEST_GET));
+        this.wagon.setAsyncConcurrency(4);
+
+        // WHEN
+        List<CompletableFuture<Void>> gets = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            gets.add(this.wagon.getAsync("async" + i, new File("bar")));
+        }
+        CompletableFuture.allOf(gets.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test(timeout = 10000)
+    public void syncTransfersFireEventsWithoutLocking() throws Exception {
+        // GIVEN
+        CountDownLatch asyncStarted = new CountDownLatch(1);
+        CountDownLatch syncCompleted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            asyncStarted.countDown();
+            syncCompleted.await();
+            return null;
+        }).when(this.transferListenerSupport).fireTransferStarted(new Resource("async"), TransferEvent.REQUEST_GET);
+        CompletableFuture<Void> get = this.wagon.getAsync("async", new File("bar"));
+        asyncStarted.await();
+
+        // WHEN
+        this.wagon.get("sync", new File("bar"));
+        syncCompleted.countDown();
+
+        // THEN
+        get.get(10, TimeUnit.SECONDS);
+        verify(this.transferListenerSupport).fireTransferCompleted(new Resource("sync"), TransferEvent.REQUEST_GET);
+    }
+
+    @Test
+    public void resourceExistsAsync() throws Exception {
+        when(this.wagon.doesRemoteResourceExist("foo")).thenReturn(true);
+        assertTrue(this.wagon.resourceExistsAsync("foo").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void getFileListAsync() throws Exception {
+        List<String> fileList = Arrays.asList("foo", "bar");
+        when(this.wagon.listDirectory("foo")).thenReturn(fileList);
+        assertEquals(fileList, this.wagon.getFileListAsync("foo").get(10, TimeUnit.SECONDS));
+    }
+
     @Test
     public void getTransferFailedException() throws ResourceDoesNotExistException, AuthorizationException,
             TransferFailedException {
@@ -349,6 +504,8 @@ public class AbstractWagonTest {
             AuthorizationException {
         when(this.wagon.isRemoteResourceNewer("foo", 0)).thenReturn(false);
         assertFalse(this.wagon.getIfNewer("foo", new File("bar"), 0));
+        verify(this.transferListenerSupport, never()).fireTransferInitiated(new Resource("foo"),
+                TransferEvent.REQUEST_GET);
     }
 
     @Test
@@ -360,6 +517,30 @@ public class AbstractWagonTest {
         verify(this.wagon).getResource(eq("foo"), eq(new File("bar")), any(TransferProgress.class));
     }
 
+    @Test
+    public void getIfNewerFiresTransferEventsBeforeProgress() throws TransferFailedException,
+            ResourceDoesNotExistException, AuthorizationException {
+        // GIVEN
+        doAnswer(invocation -> {
+            ((TransferProgress) invocation.getArgument(3)).notify(new byte[] { 1 }, 1);
+            return true;
+        }).when(this.wagon).getResourceIfNewer(eq("foo"), eq(new File("bar")), eq(0L), any(TransferProgress.class));
+
+        // WHEN
+        assertTrue(this.wagon.getIfNewer("foo", new File("bar"), 0));
+
+        // THEN
+        InOrder inOrder = inOrder(this.transferListenerSupport);
+        inOrder.verify(this.transferListenerSupport).fireTransferInitiated(new Resource("foo"),
+                TransferEvent.REQUEST_GET);
+        inOrder.verify(this.transferListenerSupport).fireTransferStarted(new Resource("foo"),
+                TransferEvent.REQUEST_GET);
+        inOrder.verify(this.transferListenerSupport).fireTransferProgress(eq(new Resource("foo")),
+                eq(TransferEvent.REQUEST_GET), any(byte[].class), eq(1));
+        inOrder.verify(this.transferListenerSupport).fireTransferCompleted(new Resource("foo"),
+                TransferEvent.REQUEST_GET);
+    }
+
     @Test
     public void getIfNewerTransferFailedException() throws TransferFailedException, ResourceDoesNotExistException,
             AuthorizationException {
@@ -491,6 +672,87 @@ public class AbstractWagonTest {
                 TransferEvent.REQUEST_PUT);
     }
 
+    @Test
+    public void putDirectoryRecursive() throws IOException, TransferFailedException, ResourceDoesNotExistException,
+            AuthorizationException {
+        File directory = new File("target/test-recursive");
+        File nested = new File(directory, "bar/baz");
+        nested.mkdirs();
+        for (int i = 0; i < 5; i++) {
+            new File(directory, "test" + i + ".txt").createNewFile();
+            new File(nested, "test" + i + ".txt").createNewFile();
+        }
+
+        this.wagon.putDirectory(directory, "foo");
+
+        for (int i = 0; i < 5; i++) {
+            verify(this.wagon).putResource(eq(new File(directory, "test" + i + ".txt")), eq("foo/test" + i + ".txt"),
+                    any(TransferProgress.class));
+            verify(this.wagon).putResource(eq(new File(nested, "test" + i + ".txt")),
+                    eq("foo/bar/baz/test" + i + ".txt"), any(TransferProgress.class));
+            verify(this.transferListenerSupport).fireTransferCompleted(new Resource("foo/bar/baz/test" + i + ".txt"),
+                    TransferEvent.REQUEST_PUT);
+        }
+    }
+
+    @Test
+    public void concurrentPutDirectoriesFireEventsOneAtATime() throws Exception {
+        // GIVEN
+        File first = new File("target/test-concurrent/first");
+        File second = new File("target/test-concurrent/second");
+        first.mkdirs();
+        second.mkdirs();
+        for (int i = 0; i < 5; i++) {
+            new File(first, "test" + i + ".txt").createNewFile();
+            new File(second, "test" + i + ".txt").createNewFile();
+        }
+        AtomicInteger firing = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (firing.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.sleep(5);
+            firing.decrementAndGet();
+            return null;
+        }).when(this.transferListenerSupport).fireTransferStarted(any(Resource.class), eq(TransferEvent.REQUEST_PUT));
+
+        // WHEN
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> {
+            try {
+                this.wagon.putDirectory(second, "bar");
+            } catch (WagonException e) {
+                throw new CompletionException(e);
+            }
+        });
+        this.wagon.putDirectory(first, "foo");
+        other.get(10, TimeUnit.SECONDS);
+
+        // THEN
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    public void putDirectoryTransferFailedException() throws IOException, TransferFailedException,
+            ResourceDoesNotExistException, AuthorizationException {
+        File directory = new File("target/test-failure");
+        directory.mkdirs();
+        File file = new File(directory, "test0.txt");
+        file.createNewFile();
+        new File(directory, "test1.txt").createNewFile();
+        TransferFailedException exception = new TransferFailedException("");
+        doThrow(exception).when(this.wagon).putResource(eq(file), eq("foo/test0.txt"), any(TransferProgress.class));
+
+        try {
+            this.wagon.putDirectory(directory, "foo");
+            fail();
+        } catch (TransferFailedException e) {
+            assertEquals(exception, e);
+            verify(this.transferListenerSupport).fireTransferError(new Resource("foo/test0.txt"),
+                    TransferEvent.REQUEST_PUT, exception);
+        }
+    }
+
     @Test
     public void resourceExists() throws TransferFailedException, AuthorizationException {
         this.wagon.resourceExists("foo");
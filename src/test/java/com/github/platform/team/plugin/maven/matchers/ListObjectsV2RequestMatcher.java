@@ -16,29 +16,29 @@
 
 package com.github.platform.team.plugin.maven.matchers;
 
-import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import org.mockito.ArgumentMatcher;
 
-public class ListObjectsRequestMatcher implements ArgumentMatcher<ListObjectsRequest> {
+public class ListObjectsV2RequestMatcher implements ArgumentMatcher<ListObjectsV2Request> {
 
-    private final ListObjectsRequest listObjectsRequest;
+    private final ListObjectsV2Request listObjectsRequest;
 
-    ListObjectsRequestMatcher(ListObjectsRequest listObjectsRequest) {
+    ListObjectsV2RequestMatcher(ListObjectsV2Request listObjectsRequest) {
         this.listObjectsRequest = listObjectsRequest;
     }
 
     @Override
-    public boolean matches(ListObjectsRequest obj) {
+    public boolean matches(ListObjectsV2Request obj) {
         if (this.listObjectsRequest == obj) {
             return true;
         }
         if (obj == null) {
             return false;
         }
-        if (ListObjectsRequest.class != obj.getClass()) {
+        if (ListObjectsV2Request.class != obj.getClass()) {
             return false;
         }
-        ListObjectsRequest other = obj;
+        ListObjectsV2Request other = obj;
         if (this.listObjectsRequest.getBucketName() == null) {
             if (other.getBucketName() != null) {
                 return false;
@@ -60,11 +60,11 @@ public class ListObjectsRequestMatcher implements ArgumentMatcher<ListObjectsReq
         } else if (!this.listObjectsRequest.getDelimiter().equals(other.getDelimiter())) {
             return false;
         }
-        if (this.listObjectsRequest.getMarker() == null) {
-            if (other.getMarker() != null) {
+        if (this.listObjectsRequest.getContinuationToken() == null) {
+            if (other.getContinuationToken() != null) {
                 return false;
             }
-        } else if (!this.listObjectsRequest.getMarker().equals(other.getMarker())) {
+        } else if (!this.listObjectsRequest.getContinuationToken().equals(other.getContinuationToken())) {
             return false;
         }
         if (this.listObjectsRequest.getMaxKeys() == null) {
@@ -16,15 +16,15 @@
 
 package com.github.platform.team.plugin.maven.matchers;
 
-import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import org.apache.maven.wagon.events.SessionEvent;
 import org.apache.maven.wagon.events.TransferEvent;
 import org.mockito.ArgumentMatchers;
 
 public abstract class Matchers {
 
-    public static ListObjectsRequest eq(ListObjectsRequest listObjectsRequest) {
-        return ArgumentMatchers.argThat(new ListObjectsRequestMatcher(listObjectsRequest));
+    public static ListObjectsV2Request eq(ListObjectsV2Request listObjectsRequest) {
+        return ArgumentMatchers.argThat(new ListObjectsV2RequestMatcher(listObjectsRequest));
     }
 
     public static SessionEvent eq(SessionEvent sessionEvent) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void indexIsExactForSmallValues() {
+        for (int value = 0; value < 64; value++) {
+            assertThat(LatencyHistogram.getUpperBound(LatencyHistogram.indexOf(value)), equalTo((long) value));
+        }
+    }
+
+    @Test
+    public void upperBoundIsWithinThreePercent() {
+        for (long value = 64; value < (1L << 36); value = value * 3 / 2 + 1) {
+            long upperBound = LatencyHistogram.getUpperBound(LatencyHistogram.indexOf(value));
+            assertThat(upperBound, allOf(greaterThanOrEqualTo(value), lessThanOrEqualTo(value + value / 32)));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        // GIVEN
+        for (int i = 1; i <= 100; i++) {
+            this.histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        // WHEN
+        long median = this.histogram.getValueAtPercentile(0.5);
+        long p99 = this.histogram.getValueAtPercentile(0.99);
+        long p100 = this.histogram.getValueAtPercentile(1);
+
+        // THEN
+        assertThat(median, allOf(greaterThanOrEqualTo(50_000L), lessThanOrEqualTo(51_600L)));
+        assertThat(p99, allOf(greaterThanOrEqualTo(99_000L), lessThanOrEqualTo(102_100L)));
+        assertThat(p100, equalTo(100_000L));
+        assertThat(this.histogram.getCount(), equalTo(100L));
+        assertThat(this.histogram.getTotal(), equalTo(5_050_000L));
+        assertThat(this.histogram.getMaximum(), equalTo(100_000L));
+    }
+
+    @Test
+    public void percentileOfEmptyHistogram() {
+        assertThat(this.histogram.getValueAtPercentile(0.5), equalTo(0L));
+    }
+
+    @Test
+    public void largeValuesAreClamped() {
+        // WHEN
+        this.histogram.record(365, TimeUnit.DAYS);
+
+        // THEN
+        assertThat(this.histogram.getMaximum(), equalTo((1L << 36) - 1));
+        assertThat(this.histogram.getValueAtPercentile(1), equalTo((1L << 36) - 1));
+    }
+
+    @Test
+    public void minus() {
+        // GIVEN
+        this.histogram.record(10, TimeUnit.MILLISECONDS);
+        LatencyHistogram earlier = this.histogram.copy();
+        this.histogram.record(2, TimeUnit.MILLISECONDS);
+        this.histogram.record(3, TimeUnit.MILLISECONDS);
+
+        // WHEN
+        LatencyHistogram difference = this.histogram.minus(earlier);
+
+        // THEN
+        assertThat(difference.getCount(), equalTo(2L));
+        assertThat(difference.getTotal(), equalTo(5_000L));
+        assertThat(difference.getValueAtPercentile(1), allOf(greaterThanOrEqualTo(3_000L),
+                lessThanOrEqualTo(3_100L)));
+        assertThat(earlier.getCount(), equalTo(1L));
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.metrics;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
+
+public class S3MetricsTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final S3Metrics metrics = new S3Metrics("bucket", this.clock::get);
+
+    private final RequestHandler2 requestHandler = this.metrics.getRequestHandler();
+
+    @Test
+    public void operation() {
+        assertThat(S3Metrics.getOperation(new GetObjectRequest("bucket", "key")), equalTo("GetObject"));
+        assertThat(S3Metrics.getOperation(new GetObjectMetadataRequest("bucket", "key")),
+                equalTo("GetObjectMetadata"));
+        assertThat(S3Metrics.getOperation(new ListObjectsV2Request()), equalTo("ListObjectsV2"));
+        assertThat(S3Metrics.getOperation(putObjectRequest("key")), equalTo("PutObject"));
+        assertThat(S3Metrics.getOperation(putObjectRequest("directory/")), equalTo("PutDirectoryMarker"));
+    }
+
+    @Test
+    public void errorClass() {
+        assertThat(S3Metrics.getErrorClass(serviceException(404, "NoSuchKey")), equalTo("NotFound"));
+        assertThat(S3Metrics.getErrorClass(serviceException(503, "SlowDown")), equalTo("Throttled"));
+        assertThat(S3Metrics.getErrorClass(serviceException(403, "AccessDenied")), equalTo("ClientError"));
+        assertThat(S3Metrics.getErrorClass(serviceException(500, "InternalError")), equalTo("ServerError"));
+        assertThat(S3Metrics.getErrorClass(new SdkClientException("Connection reset")), equalTo("Network"));
+    }
+
+    @Test
+    public void countsSuccessfulRequest() {
+        // GIVEN
+        Request<?> request = request(putObjectRequest("key"));
+        request.addHeader("Content-Length", "1024");
+
+        // WHEN
+        this.requestHandler.beforeRequest(request);
+        attempt(request);
+        this.clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        this.requestHandler.afterResponse(request, response(request, "0"));
+
+        // THEN
+        OperationStatistics statistics = this.metrics.snapshot().getOperations().get(0);
+        assertThat(statistics.getOperation(), equalTo("PutObject"));
+        assertThat(statistics.getRequests(), equalTo(1L));
+        assertThat(statistics.getRetries(), equalTo(0L));
+        assertThat(statistics.getBytesSent(), equalTo(1024L));
+        assertThat(statistics.getMaxMillis(), equalTo(20.0));
+        assertThat(statistics.getErrors(), equalTo(Collections.emptyMap()));
+    }
+
+    @Test
+    public void registersMXBean() throws Exception {
+        // GIVEN
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(
+                "com.github.platform.team.plugin:type=S3Metrics,bucket=" + ObjectName.quote("mxbean-bucket"));
+        Request<?> request = request(new GetObjectRequest("mxbean-bucket", "key"));
+
+        // WHEN
+        RequestHandler2 requestHandler = S3Metrics.forBucket("mxbean-bucket").getRequestHandler();
+        requestHandler.beforeRequest(request);
+        attempt(requestHandler, request);
+        attempt(requestHandler, request);
+        requestHandler.afterResponse(request, response(request, "512"));
+
+        // THEN
+        assertThat(mBeanServer.getAttribute(objectName, "BucketName"), equalTo("mxbean-bucket"));
+        assertThat(mBeanServer.getAttribute(objectName, "Requests"), equalTo(1L));
+        assertThat(mBeanServer.getAttribute(objectName, "Retries"), equalTo(1L));
+        assertThat(mBeanServer.getAttribute(objectName, "BytesReceived"), equalTo(512L));
+        CompositeData[] operations = (CompositeData[]) mBeanServer.getAttribute(objectName, "Operations");
+        assertThat(operations.length, equalTo(1));
+        assertThat(operations[0].get("operation"), equalTo("GetObject"));
+        assertThat(operations[0].get("requests"), equalTo(1L));
+    }
+
+    @Test
+    public void countsRetriesAndBytesReceived() {
+        // GIVEN
+        Request<?> request = request(new GetObjectRequest("bucket", "key"));
+
+        // WHEN
+        this.requestHandler.beforeRequest(request);
+        attempt(request);
+        attempt(request);
+        attempt(request);
+        this.requestHandler.afterResponse(request, response(request, "2048"));
+
+        // THEN
+        assertThat(this.metrics.getRequests(), equalTo(1L));
+        assertThat(this.metrics.getRetries(), equalTo(2L));
+        assertThat(this.metrics.getBytesReceived(), equalTo(2048L));
+        assertThat(this.metrics.getBytesSent(), equalTo(0L));
+    }
+
+    @Test
+    public void countsObjectContentAsItIsRead() throws IOException {
+        // GIVEN
+        Request<?> request = request(new GetObjectRequest("bucket", "key"));
+        S3Object s3Object = new S3Object();
+        s3Object.setObjectContent(new ByteArrayInputStream(new byte[4096]));
+        this.requestHandler.beforeRequest(request);
+        attempt(request);
+        this.requestHandler.afterResponse(request, new Response<>(s3Object, new HttpResponse(request, null)));
+
+        // WHEN
+        int read = s3Object.getObjectContent().read(new byte[1000]);
+
+        // THEN
+        assertThat(read, equalTo(1000));
+        assertThat(this.metrics.getBytesReceived(), equalTo(1000L));
+    }
+
+    @Test
+    public void countsErrorsByClass() {
+        // GIVEN
+        Request<?> request = request(new GetObjectMetadataRequest("bucket", "key"));
+
+        // WHEN
+        this.requestHandler.beforeRequest(request);
+        attempt(request);
+        this.requestHandler.afterError(request, null, serviceException(404, "NoSuchKey"));
+
+        // THEN
+        OperationStatistics statistics = this.metrics.snapshot().getOperations().get(0);
+        assertThat(statistics.getRequests(), equalTo(1L));
+        assertThat(statistics.getErrors(), equalTo(Collections.singletonMap("NotFound", 1L)));
+        assertThat(this.metrics.getErrors(), equalTo(1L));
+    }
+
+    @Test
+    public void snapshotDifference() {
+        // GIVEN
+        complete(request(new GetObjectRequest("bucket", "first")));
+        MetricsSnapshot earlier = this.metrics.snapshot();
+        this.clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        complete(request(new GetObjectRequest("bucket", "second")));
+        complete(request(putObjectRequest("directory/")));
+
+        // WHEN
+        MetricsSnapshot difference = this.metrics.snapshot().minus(earlier);
+
+        // THEN
+        assertThat(difference.getRequests(), equalTo(2L));
+        assertThat(difference.getElapsed(TimeUnit.SECONDS), equalTo(2L));
+        assertThat(difference.getOperations().stream().map(OperationStatistics::getOperation)
+                .toArray(String[]::new), equalTo(new String[]{"GetObject", "PutDirectoryMarker"}));
+    }
+
+    @Test
+    public void formats() {
+        // GIVEN
+        Request<?> request = request(putObjectRequest("key"));
+        request.addHeader("Content-Length", "1048576");
+        complete(request);
+        Request<?> failed = request(new GetObjectMetadataRequest("bucket", "key"));
+        this.requestHandler.beforeRequest(failed);
+        this.requestHandler.afterError(failed, null, serviceException(404, "NoSuchKey"));
+        this.clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        // WHEN
+        MetricsSnapshot snapshot = this.metrics.snapshot();
+
+        // THEN
+        assertThat(snapshot.toSummary(), equalTo("S3 bucket 'bucket': 2 requests, 0 retries, 1 errors in 1.0 s; "
+                + "sent 1.0 MiB (1.0 MiB/s), received 0.0 MiB (0.0 MiB/s); "
+                + "GetObjectMetadata 1 (p50 0.0 ms, p99 0.0 ms, busy 0.0 s), "
+                + "PutObject 1 (p50 0.0 ms, p99 0.0 ms, busy 0.0 s)"));
+        assertThat(snapshot.toJson(), equalTo("{\"bucket\":\"bucket\",\"elapsedSeconds\":1.000,\"requests\":2,"
+                + "\"retries\":0,\"errors\":1,\"bytesSent\":1048576,\"bytesReceived\":0,\"operations\":["
+                + "{\"operation\":\"GetObjectMetadata\",\"requests\":1,\"retries\":0,\"bytesSent\":0,"
+                + "\"bytesReceived\":0,\"meanMillis\":0.000,\"p50Millis\":0.000,\"p90Millis\":0.000,"
+                + "\"p99Millis\":0.000,\"maxMillis\":0.000,\"errors\":{\"NotFound\":1}},"
+                + "{\"operation\":\"PutObject\",\"requests\":1,\"retries\":0,\"bytesSent\":1048576,"
+                + "\"bytesReceived\":0,\"meanMillis\":0.000,\"p50Millis\":0.000,\"p90Millis\":0.000,"
+                + "\"p99Millis\":0.000,\"maxMillis\":0.000,\"errors\":{}}]}"));
+        assertThat(Arrays.asList(snapshot.toPrometheus().split("\n")), hasItems(
+                "aws_maven_s3_requests_total{bucket=\"bucket\",operation=\"PutObject\"} 1",
+                "aws_maven_s3_sent_bytes_total{bucket=\"bucket\",operation=\"PutObject\"} 1048576",
+                "aws_maven_s3_errors_total{bucket=\"bucket\",operation=\"GetObjectMetadata\",error=\"NotFound\"} 1",
+                "aws_maven_s3_latency_seconds{bucket=\"bucket\",operation=\"PutObject\",quantile=\"0.99\"} 0.000000",
+                "aws_maven_s3_latency_seconds_count{bucket=\"bucket\",operation=\"PutObject\"} 1"));
+    }
+
+    private void attempt(Request<?> request) {
+        attempt(this.requestHandler, request);
+    }
+
+    private static void attempt(RequestHandler2 requestHandler, Request<?> request) {
+        requestHandler.beforeAttempt(HandlerBeforeAttemptContext.builder().withRequest(request).build());
+    }
+
+    private void complete(Request<?> request) {
+        this.requestHandler.beforeRequest(request);
+        attempt(request);
+        this.requestHandler.afterResponse(request, response(request, null));
+    }
+
+    private static Request<?> request(AmazonWebServiceRequest originalRequest) {
+        return new DefaultRequest<>(originalRequest, "Amazon S3");
+    }
+
+    private static Response<?> response(Request<?> request, String contentLength) {
+        HttpResponse httpResponse = new HttpResponse(request, null);
+        if (contentLength != null) {
+            httpResponse.addHeader("content-length", contentLength);
+        }
+        return new Response<>(null, httpResponse);
+    }
+
+    private static PutObjectRequest putObjectRequest(String key) {
+        return new PutObjectRequest("bucket", key, new ByteArrayInputStream(new byte[0]), null);
+    }
+
+    private static AmazonServiceException serviceException(int statusCode, String errorCode) {
+        AmazonServiceException exception = new AmazonServiceException("");
+        exception.setStatusCode(statusCode);
+        exception.setErrorCode(errorCode);
+        return exception;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedExecutorTest {
+
+    private static final int CONCURRENCY = 3;
+
+    private static final int TASKS = 50;
+
+    @Test
+    public void executeRunsAllTasksWithinBound() throws Exception {
+        // GIVEN
+        BoundedExecutor executor = new BoundedExecutor(ExecutorUtils.getExecutor(), CONCURRENCY);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maximum = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(TASKS);
+
+        // WHEN
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                int current = running.incrementAndGet();
+                maximum.accumulateAndGet(current, Math::max);
+                sleep();
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        // THEN
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(maximum.get(), lessThanOrEqualTo(CONCURRENCY));
+    }
+
+    @Test
+    public void executeSurvivesFailingTasks() throws Exception {
+        // GIVEN
+        BoundedExecutor executor = new BoundedExecutor(ExecutorUtils.getExecutor(), 1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        // WHEN
+        executor.execute(() -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(done::countDown);
+
+        // THEN
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(done.getCount(), equalTo(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsZeroConcurrency() {
+        new BoundedExecutor(ExecutorUtils.getExecutor(), 0);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
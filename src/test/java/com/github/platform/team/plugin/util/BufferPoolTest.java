@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018-Present Platform Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.platform.team.plugin.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BufferPoolTest {
+
+    @Test
+    public void acquireRoundsUpToPowerOfTwo() {
+        // GIVEN
+
+        // WHEN
+        byte[] small = BufferPool.acquire(1);
+        byte[] medium = BufferPool.acquire(BufferPool.MINIMUM_SIZE + 1);
+        byte[] large = BufferPool.acquire(BufferPool.MAXIMUM_SIZE + 1);
+
+        // THEN
+        assertThat(small.length, equalTo(BufferPool.MINIMUM_SIZE));
+        assertThat(medium.length, equalTo(2 * BufferPool.MINIMUM_SIZE));
+        assertThat(large.length, equalTo(BufferPool.MAXIMUM_SIZE + 1));
+    }
+
+    @Test
+    public void releasedBuffersAreReused() {
+        // GIVEN
+        byte[] buffer = BufferPool.acquire(64 * 1024);
+
+        // WHEN
+        BufferPool.release(buffer);
+
+        // THEN
+        assertThat(BufferPool.acquire(64 * 1024), sameInstance(buffer));
+    }
+
+    @Test
+    public void foreignBuffersAreNotPooled() {
+        // GIVEN
+        byte[] buffer = new byte[BufferPool.MINIMUM_SIZE + 1];
+
+        // WHEN
+        BufferPool.release(buffer);
+
+        // THEN
+        assertThat(BufferPool.acquire(BufferPool.MINIMUM_SIZE + 1), not(sameInstance(buffer)));
+    }
+}
@@ -5,11 +5,21 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -30,6 +40,74 @@ public class IOUtilsTest {
         assertThat(expected, equalTo(out.toString()));
     }
 
+    @Test
+    public void copyToChannel() throws Exception {
+        // GIVEN
+        byte[] expected = new byte[3 * BufferPool.MAXIMUM_SIZE + 17];
+        new Random(3).nextBytes(expected);
+        File file = new File("target/copy.bin");
+        ByteArrayOutputStream progress = new ByteArrayOutputStream();
+        AtomicInteger notifications = new AtomicInteger();
+
+        // WHEN
+        long count;
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            count = IOUtils.copy(new ByteArrayInputStream(expected), out.getChannel(), (buffer, length) -> {
+                progress.write(buffer, 0, length);
+                notifications.incrementAndGet();
+            });
+        }
+
+        // THEN
+        assertThat(count, equalTo((long) expected.length));
+        assertThat(Files.readAllBytes(file.toPath()), equalTo(expected));
+        assertThat(progress.toByteArray(), equalTo(expected));
+        // 8 KiB doubling up to the maximum, then the rest in buffers of the maximum size
+        assertThat(notifications.get(), lessThanOrEqualTo(12));
+    }
+
+    @Test
+    public void copyToChannelFillsBuffersFromShortReads() throws Exception {
+        // GIVEN
+        byte[] expected = new byte[1000];
+        new Random(5).nextBytes(expected);
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(expected)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 10));
+            }
+        };
+        File file = new File("target/copy-short.bin");
+        AtomicInteger notifications = new AtomicInteger();
+
+        // WHEN
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            IOUtils.copy(in, out.getChannel(), (buffer, length) -> notifications.incrementAndGet());
+        }
+
+        // THEN
+        assertThat(Files.readAllBytes(file.toPath()), equalTo(expected));
+        assertThat(notifications.get(), equalTo(1));
+    }
+
+    @Test
+    public void reportRegionOfFile() throws Exception {
+        // GIVEN
+        byte[] content = new byte[1000];
+        new Random(7).nextBytes(content);
+        File file = new File("target/report.bin");
+        Files.write(file.toPath(), content);
+        ByteArrayOutputStream progress = new ByteArrayOutputStream();
+
+        // WHEN
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            IOUtils.report(channel, 100, 900, new byte[64], (buffer, length) -> progress.write(buffer, 0, length));
+        }
+
+        // THEN
+        assertThat(progress.toByteArray(), equalTo(Arrays.copyOfRange(content, 100, 900)));
+    }
+
     @Test
     public void closeQuietlyIfNoCloseables() {
         // GIVEN
@@ -89,6 +89,18 @@ public class S3UtilsTest {
         assertThat(actual, equalTo(expected));
     }
 
+    @Test
+    @Parameters(method = "regions")
+    public void getRegion(Repository repository, String expected) {
+        // GIVEN
+
+        // WHEN
+        String actual = S3Utils.getRegion(repository);
+
+        // THEN
+        assertThat(actual, equalTo(expected));
+    }
+
     @Test
     @Parameters(method = "proxyProviders")
     public void getClientConfigurationIfProxyInfoProviderIsNull(ProxyInfoProvider provider, String expectedHost, int expectedPort) {
@@ -102,11 +114,25 @@ public class S3UtilsTest {
         assertThat(actual.getProxyPort(), equalTo(expectedPort));
     }
 
+    @Test
+    @Parameters(method = "keyOrders")
+    public void compareKeys(String key, String other, int expected) {
+        // WHEN
+        int actual = S3Utils.compareKeys(key, other);
+
+        // THEN
+        assertThat(Integer.signum(actual), equalTo(expected));
+        assertThat(Integer.signum(S3Utils.compareKeys(other, key)), equalTo(-expected));
+    }
+
     public Object[][] buckets() {
         return new Object[][]{
                 {new Repository("id", ""), "localhost"},
                 {new Repository("id", "s3://bucket"), "bucket"},
                 {new Repository("id", "s3://bucket/folder"), "bucket"},
+                {new Repository("id", "s3://bucket?region=eu-west-1"), "bucket"},
+                {new Repository("id", "s3://bucket?foo=bar&region=us-east-2"), "bucket"},
+                {new Repository("id", "s3://bucket/folder?region=eu-west-1"), "bucket"},
         };
     }
 
@@ -118,6 +144,28 @@ public class S3UtilsTest {
                 {new Repository("id", "s3://bucket/folder"), "folder/"},
                 {new Repository("id", "s3://bucket/folder/subfolder"), "folder/subfolder/"},
                 {new Repository("id", "s3://bucket/folder/subfolder/"), "folder/subfolder/"},
+                {new Repository("id", "s3://bucket/folder?region=eu-west-1"), "folder/"},
+        };
+    }
+
+    public Object[][] regions() {
+        return new Object[][]{
+                {new Repository("id", "s3://bucket/folder"), null},
+                {new Repository("id", "s3://bucket/folder?region=eu-west-1"), "eu-west-1"},
+                {new Repository("id", "s3://bucket?foo=bar&region=us-east-2"), "us-east-2"},
+                {new Repository("id", "s3://bucket/folder?region="), null},
+        };
+    }
+
+    public Object[][] keyOrders() {
+        return new Object[][]{
+                {"a", "a", 0},
+                {"a", "b", -1},
+                {"a", "a/", -1},
+                {"a-b/", "a/", -1},
+                {"\uFF21", "\uD83D\uDE00", -1},
+                {"\uD7FF", "\uD83D\uDE00", -1},
+                {"\uD83D\uDE00", "\uD83D\uDE01", -1},
         };
     }
 